@@ -0,0 +1,24 @@
+#!/bin/sh
+# Builds the game from src and runs the benchmarks in bench.GameBenchmarks:
+#
+#   ./bench.sh [REGEX] [--counts 10,100,...] [--quick]
+#
+# The arguments go to GameBenchmarks as they are; see the top of src/bench/GameBenchmarks.java
+# for what they do. Exits with GameBenchmarks' status, so it is 1 when a benchmark meant to be
+# allocation-free allocates.
+#
+# Needs a JDK 11 or later (javac and java on the PATH); on Windows, run it from Git Bash.
+# Classes, assets and maps go to build/bench, which is made afresh every run, so Eclipse's bin/
+# is left alone. The list of sources is collected from src each time: sources.txt in the root
+# is an old, partial list with absolute paths from one machine, and isn't used.
+set -e
+cd "$(dirname "$0")"
+
+out=build/bench
+rm -rf "$out"
+mkdir -p "$out"
+find src -name '*.java' > build/sources.txt
+javac -encoding UTF-8 -Xlint:none -d "$out" @build/sources.txt
+cp -r src/assets src/maps "$out"/
+
+exec java -Djava.awt.headless=true -cp "$out" bench.GameBenchmarks "$@"
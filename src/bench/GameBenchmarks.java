@@ -0,0 +1,598 @@
+package bench;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Pattern;
+import entities.AttackPool;
+import entities.Enemy;
+import entities.EnemyScheduler;
+import entities.EnemyStore;
+import entities.Player;
+import entities.ProjectileStore;
+import entities.SkillWAttack;
+import entities.SlashAttack;
+import input.KeyHandler;
+import main.AutoPilot;
+import main.GameWorld;
+import main.Main;
+import tile.TileManager;
+import tile.TileView;
+
+// Benchmarks for the hot paths of the simulation and the tile renderer, each run with 10, 100,
+// 1,000 and 10,000 entities so regressions and optimizations show up as numbers:
+//
+//   java -Djava.awt.headless=true -cp <classes> bench.GameBenchmarks [REGEX] [--counts 10,100]
+//        [--quick]
+//
+// or ./bench.sh with the same arguments, which builds src first. REGEX picks benchmarks by
+// name. --quick runs shorter iterations, and skips the check that the benchmarks meant to be
+// allocation-free read 0 B/op. Worlds are built from a fixed seed, so runs are comparable.
+public class GameBenchmarks {
+
+    private static final long SEED = 42;
+    private static final int VIEW_WIDTH = 800;
+    private static final int VIEW_HEIGHT = 600;
+    private static final int PROBE_SIZE = 48; // player / enemy collision box
+
+    private static GameWorld newWorld() {
+        return newWorld(new KeyHandler());
+    }
+
+    private static GameWorld newWorld(KeyHandler keyH) {
+        return new GameWorld(keyH, new GameWorld.Host() {
+            @Override
+            public boolean isDialogueVisible() {
+                return false;
+            }
+
+            @Override
+            public void startDialogue(String speaker, List<String> lines) {
+            }
+        }, SEED);
+    }
+
+    // N collision probes at random spots on the map; one op checks them all
+    static class IsWalkable extends Harness.Benchmark {
+        private TileManager tileM;
+        private int[] xs, ys;
+
+        IsWalkable() {
+            super("TileManager.isWalkable");
+        }
+
+        @Override
+        public void setup(int count) {
+            tileM = newWorld().getTileManager();
+            int mapW = tileM.getMapWidth() * tileM.getTileSize();
+            int mapH = tileM.getMapHeight() * tileM.getTileSize();
+            Random random = new Random(SEED);
+            xs = new int[count];
+            ys = new int[count];
+            for (int i = 0; i < count; i++) {
+                xs[i] = random.nextInt(mapW - PROBE_SIZE);
+                ys[i] = random.nextInt(mapH - PROBE_SIZE);
+            }
+        }
+
+        @Override
+        public long op() {
+            long walkable = 0;
+            for (int i = 0; i < xs.length; i++) {
+                if (tileM.isWalkable(xs[i], ys[i], PROBE_SIZE, PROBE_SIZE)) walkable++;
+            }
+            return walkable;
+        }
+    }
+
+    // One tick of AI for N enemies spread around the player; fresh enemies every iteration
+    static class EnemyUpdate extends Harness.Benchmark {
+        private GameWorld world;
+        private int count;
+        private final List<Enemy> enemies = new ArrayList<>();
+        private final EnemyStore store = new EnemyStore();
+
+        EnemyUpdate() {
+            super("Enemy.update");
+        }
+
+        @Override
+        public void setup(int count) {
+            world = newWorld();
+            this.count = count;
+        }
+
+        @Override
+        public void setupIteration() {
+            Player player = world.getPlayer();
+            player.resetPlayerState();
+            Random random = new Random(SEED);
+            enemies.clear();
+            store.clear();
+            store.setTileManager(world.getTileManager());
+            store.setObjectManager(world.getObjectManager());
+            store.setRandom(random);
+            store.setFlowField(world.getFlowField());
+            world.getFlowField().update(player.getX(), player.getY());
+            for (int i = 0; i < count; i++) {
+                Enemy enemy = new Enemy(Math.max(GameWorld.TILE_SIZE, player.getX() + random.nextInt(2400) - 1200),
+                        Math.max(GameWorld.TILE_SIZE, player.getY() + random.nextInt(2400) - 1200), Enemy.EnemyType.BASIC);
+                store.add(enemy);
+                enemies.add(enemy);
+            }
+        }
+
+        @Override
+        public long op() {
+            Player player = world.getPlayer();
+            int cameraX = world.cameraXFor(player.px);
+            int cameraY = world.cameraYFor(player.py);
+            long alive = 0;
+            for (Enemy enemy : enemies) {
+                enemy.update(player.getX(), player.getY(), player, cameraX, cameraY, VIEW_WIDTH, VIEW_HEIGHT);
+                if (enemy.isAlive()) alive++;
+            }
+            return alive;
+        }
+    }
+
+    // One tick of AI for a wave of N enemies spread around the player at one per 400x400 px, so
+    // most are off screen as in a big wave: every enemy updated, or through EnemyScheduler, with
+    // the thinking done on one thread or on all cores
+    static class EnemyWave extends Harness.Benchmark {
+        private GameWorld world;
+        private int count;
+        private final boolean scheduled;
+        private final List<Enemy> enemies = new ArrayList<>();
+        private final EnemyStore store = new EnemyStore();
+        private final EnemyScheduler scheduler = new EnemyScheduler();
+
+        EnemyWave(boolean scheduled, boolean parallel) {
+            super(!scheduled ? "Enemy.update(horde)"
+                    : parallel ? "EnemyScheduler.update(horde, parallel)" : "EnemyScheduler.update(horde)");
+            this.scheduled = scheduled;
+            scheduler.setParallel(parallel);
+        }
+
+        @Override
+        public void setup(int count) {
+            world = newWorld();
+            this.count = count;
+        }
+
+        @Override
+        public void setupIteration() {
+            Player player = world.getPlayer();
+            player.resetPlayerState();
+            Random random = new Random(SEED);
+            enemies.clear();
+            store.clear();
+            store.setTileManager(world.getTileManager());
+            store.setObjectManager(world.getObjectManager());
+            store.setRandom(random);
+            store.setFlowField(world.getFlowField());
+            world.getFlowField().update(player.getX(), player.getY());
+            int extent = (int) Math.ceil(Math.sqrt(count)) * 400;
+            for (int i = 0; i < count; i++) {
+                Enemy enemy = new Enemy(player.getX() + random.nextInt(extent) - extent / 2,
+                        player.getY() + random.nextInt(extent) - extent / 2, Enemy.EnemyType.BASIC);
+                store.add(enemy);
+                enemies.add(enemy);
+            }
+            scheduler.reset();
+            if (scheduled) {
+                op(); // the first tick thinks for everyone, to sort them out
+            }
+        }
+
+        @Override
+        public long op() {
+            Player player = world.getPlayer();
+            int cameraX = world.cameraXFor(player.px);
+            int cameraY = world.cameraYFor(player.py);
+            if (scheduled) {
+                scheduler.update(store, player, cameraX, cameraY, VIEW_WIDTH, VIEW_HEIGHT);
+            } else {
+                for (Enemy enemy : enemies) {
+                    enemy.update(player.getX(), player.getY(), player, cameraX, cameraY, VIEW_WIDTH, VIEW_HEIGHT);
+                }
+            }
+            return enemies.size();
+        }
+    }
+
+    // Hit resolution of the player's attacks against N enemies crowding the player. The
+    // attacks stay alive across ops, as they do for several ticks in the game. Hits don't
+    // allocate (0 B/op, checked).
+    static class ResolveHits extends Harness.Benchmark {
+        private GameWorld world;
+        private final boolean spread;
+
+        ResolveHits(boolean spread) {
+            super(spread ? "GameWorld.resolveHits(horde)" : "GameWorld.resolveHits");
+            this.spread = spread;
+        }
+
+        @Override
+        public boolean allocationFree() {
+            return true;
+        }
+
+        @Override
+        public void setup(int count) {
+            world = newWorld();
+            world.setInventory(new main.HeadlessRunner.Inventory());
+            Player player = world.getPlayer();
+            Random random = new Random(SEED);
+            EnemyStore store = world.getEnemyStore();
+            store.clear();
+            // Crowded: all within 300 px of the player. Horde: spread around the player at one
+            // enemy per 400x400 px, so the area grows with the count as a big wave's would.
+            int extent = spread ? (int) Math.ceil(Math.sqrt(count)) * 400 : 600;
+            for (int i = 0; i < count; i++) {
+                store.add(new Enemy(player.getX() + random.nextInt(extent) - extent / 2,
+                        player.getY() + random.nextInt(extent) - extent / 2, Enemy.EnemyType.BASIC));
+            }
+        }
+
+        @Override
+        public void setupIteration() {
+            for (Enemy enemy : world.getEnemies()) {
+                enemy.setHp(Integer.MAX_VALUE / 2); // nobody dies mid-benchmark
+            }
+            Player player = world.getPlayer();
+            Random random = new Random(SEED);
+            player.getSlashes().clear();
+            player.getSkillWAttacks().clear();
+            player.getSlashes().spawn(player.getX(), player.getY(), SlashAttack.LEFT, 20, random);
+            player.getSlashes().spawn(player.getX(), player.getY(), SlashAttack.RIGHT, 20, random);
+            player.getSlashes().spawn(player.getX(), player.getY(), SlashAttack.DOWN, 20, random);
+            player.getSkillWAttacks().spawn(player.getX(), player.getY(), SlashAttack.UP, 20, random);
+        }
+
+        @Override
+        public long op() {
+            world.resolveHits();
+            return world.getEnemies().size();
+        }
+    }
+
+    // One tick of the player's attack effects: N new slashes and N skill W attacks, then every
+    // attack in play ticks and the finished ones go back to their pools. After warmup the pools
+    // hold enough attacks, so B/op has to read 0 (allocationFree).
+    static class AttackPools extends Harness.Benchmark {
+        private final AttackPool<SlashAttack> slashes = new AttackPool<>(SlashAttack::new);
+        private final AttackPool<SkillWAttack> skillWAttacks = new AttackPool<>(SkillWAttack::new);
+        private final Random random = new Random(SEED);
+        private int spawns;
+        private int direction = 0;
+
+        AttackPools() {
+            super("AttackPool.spawn/update");
+        }
+
+        @Override
+        public int[] params(int[] counts) {
+            return new int[] {1, 10, 100};
+        }
+
+        @Override
+        public String paramName() {
+            return "spawns";
+        }
+
+        @Override
+        public boolean allocationFree() {
+            return true;
+        }
+
+        @Override
+        public void setup(int spawns) {
+            this.spawns = spawns;
+            slashes.clear();
+            skillWAttacks.clear();
+        }
+
+        @Override
+        public long op() {
+            for (int i = 0; i < spawns; i++) {
+                direction = (direction + 1) & 7;
+                slashes.spawn(i * 8, 0, direction, 20, random);
+                skillWAttacks.spawn(i * 8, 100, direction, 20, random);
+            }
+            slashes.update(1f / 60);
+            skillWAttacks.update(1f / 60);
+            return slashes.size() + skillWAttacks.size();
+        }
+    }
+
+    // One tick of the player walking (a new direction every second, into walls and NPCs as it
+    // goes) and of every NPC. Movement and collision work on plain ints, so B/op has to read 0.
+    static class PlayerUpdate extends Harness.Benchmark {
+        private final KeyHandler keyH = new KeyHandler();
+        private GameWorld world;
+        private int tick = 0;
+
+        PlayerUpdate() {
+            super("Player/NPC.update");
+        }
+
+        @Override
+        public int[] params(int[] counts) {
+            return new int[] {1};
+        }
+
+        @Override
+        public String paramName() {
+            return "ticks";
+        }
+
+        @Override
+        public boolean allocationFree() {
+            return true;
+        }
+
+        @Override
+        public void setup(int ticks) {
+            world = newWorld(keyH);
+        }
+
+        @Override
+        public long op() {
+            int direction = (tick++ / 60) & 7;
+            keyH.upPressed = direction == 0 || direction == 1 || direction == 7;
+            keyH.rightPressed = direction >= 1 && direction <= 3;
+            keyH.downPressed = direction >= 3 && direction <= 5;
+            keyH.leftPressed = direction >= 5 && direction <= 7;
+            Player player = world.getPlayer();
+            player.update(1f / 60);
+            List<entities.NPC> npcs = world.getNpcs();
+            for (int i = 0; i < npcs.size(); i++) { // no Iterator: op() isn't always inlined far enough to drop it
+                npcs.get(i).update();
+            }
+            return player.getX() + player.getY();
+        }
+    }
+
+    // One tick of N projectiles in flight all over the map: fired from random open spots in
+    // random directions, stopped by walls, rocks, lifetime and range, and refilled to N every
+    // tick so the count stays put. Alone, or with hits against 1,000 enemies spread over the map;
+    // 0 B/op either way (checked).
+    static class ProjectileFlight extends Harness.Benchmark {
+        private final boolean hits;
+        private GameWorld world;
+        private ProjectileStore projectiles;
+        private Random random;
+        private int count;
+        private int mapW, mapH;
+
+        ProjectileFlight(boolean hits) {
+            super(hits ? "ProjectileStore(horde)" : "ProjectileStore.update");
+            this.hits = hits;
+        }
+
+        @Override
+        public boolean allocationFree() {
+            return true;
+        }
+
+        @Override
+        public void setup(int count) {
+            world = newWorld();
+            world.setInventory(new main.HeadlessRunner.Inventory());
+            TileManager tileM = world.getTileManager();
+            mapW = tileM.getMapWidth() * tileM.getTileSize();
+            mapH = tileM.getMapHeight() * tileM.getTileSize();
+            projectiles = world.getProjectiles();
+            this.count = count;
+            random = new Random(SEED);
+            EnemyStore store = world.getEnemyStore();
+            store.clear();
+            if (hits) {
+                for (int i = 0; i < 1000; i++) {
+                    store.add(new Enemy(random.nextInt(mapW), random.nextInt(mapH), Enemy.EnemyType.BASIC));
+                }
+            }
+        }
+
+        @Override
+        public void setupIteration() {
+            for (Enemy enemy : world.getEnemies()) {
+                enemy.setHp(Integer.MAX_VALUE / 2); // nobody dies mid-benchmark
+            }
+            projectiles.clear();
+        }
+
+        @Override
+        public long op() {
+            TileManager tileM = world.getTileManager();
+            while (projectiles.size() < count) {
+                int x = random.nextInt(mapW), y = random.nextInt(mapH);
+                if (!tileM.isWalkable(x - 8, y - 8, 16, 16)) continue; // fired from open ground
+                double angle = random.nextDouble() * 2 * Math.PI;
+                projectiles.fire(x, y, Math.cos(angle) * 8, Math.sin(angle) * 8, 10, 300, 1600, ProjectileStore.FROM_PLAYER);
+            }
+            projectiles.update(world.getTileManager());
+            if (hits) {
+                world.resolveHits();
+            }
+            return projectiles.size();
+        }
+    }
+
+    // One tick of the whole world in a fight that doesn't end: an AutoPilot player mashing every
+    // skill in a crowd of the first wave plus N enemies, none of which can die, hitting a player
+    // whose defense takes all the damage. Once warm nothing grows any more, so every hit, attack
+    // and skill has to go through without allocating (0 B/op, checked).
+    static class Combat extends Harness.Benchmark {
+        private final KeyHandler keyH = new KeyHandler();
+        private GameWorld world;
+        private AutoPilot autoPilot;
+
+        Combat() {
+            super("GameWorld.update(combat)");
+        }
+
+        @Override
+        public int[] params(int[] counts) {
+            return Arrays.stream(counts).filter(count -> count <= 1_000).toArray();
+        }
+
+        @Override
+        public boolean allocationFree() {
+            return true;
+        }
+
+        @Override
+        public void setup(int count) {
+            world = newWorld(keyH);
+            world.setInventory(new main.HeadlessRunner.Inventory());
+            autoPilot = new AutoPilot(world, keyH);
+            world.update(1f / 60); // starts the first wave
+            Player player = world.getPlayer();
+            player.setEquippedStats(player.getEquippedAttack(), 1_000);
+            Random random = new Random(SEED);
+            for (int i = 0; i < count; i++) {
+                world.getEnemyStore().add(new Enemy(player.getX() + random.nextInt(600) - 300,
+                        player.getY() + random.nextInt(600) - 300, Enemy.EnemyType.BASIC));
+            }
+        }
+
+        @Override
+        public void setupIteration() {
+            for (Enemy enemy : world.getEnemies()) {
+                enemy.setHp(Integer.MAX_VALUE / 2); // nobody dies, so no drops and no next wave
+            }
+            world.getPlayer().resetPlayerState();
+        }
+
+        @Override
+        public long op() {
+            autoPilot.drive();
+            world.storePreviousPositions();
+            world.update(1f / 60);
+            return world.getPlayer().getX();
+        }
+    }
+
+    // One TileManager.capture and draw of the visible tiles into an offscreen image, panning so
+    // capture copies a new row or column of chunks now and then; the parameter is the viewport
+    // width (16:9), since the tile count on screen follows from it
+    static class TileDraw extends Harness.Benchmark {
+        private TileManager tileM;
+        private final TileView view = new TileView();
+        private BufferedImage image;
+        private Graphics2D g2;
+        private int width, height;
+        private int frame = 0;
+
+        TileDraw() {
+            super("TileManager.draw");
+        }
+
+        @Override
+        public int[] params(int[] counts) {
+            return new int[] {800, 1280, 1920, 2560};
+        }
+
+        @Override
+        public String paramName() {
+            return "width";
+        }
+
+        @Override
+        public void setup(int width) {
+            tileM = newWorld().getTileManager();
+            this.width = width;
+            this.height = width * 9 / 16;
+            if (g2 != null) g2.dispose();
+            image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+            g2 = image.createGraphics();
+        }
+
+        @Override
+        public long op() {
+            // Pan across the map so every op draws a different, unaligned window
+            int rangeX = Math.max(1, tileM.getMapWidth() * tileM.getTileSize() - width);
+            int rangeY = Math.max(1, tileM.getMapHeight() * tileM.getTileSize() - height);
+            frame++;
+            int x = (frame * 7) % rangeX, y = (frame * 5) % rangeY;
+            tileM.capture(x, y, width, height, view);
+            tileM.draw(g2, x, y, width, height, view);
+            return frame;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (System.getProperty("java.awt.headless") == null) {
+            System.setProperty("java.awt.headless", "true");
+        }
+
+        Pattern filter = null;
+        int[] counts = {10, 100, 1_000, 10_000};
+        boolean quick = false;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--counts":
+                    counts = Arrays.stream(args[++i].split(",")).mapToInt(Integer::parseInt).toArray();
+                    break;
+                case "--quick": quick = true; break;
+                default:
+                    if (args[i].startsWith("--")) {
+                        System.err.println("Unknown argument: " + args[i]);
+                        System.err.println("Usage: GameBenchmarks [REGEX] [--counts 10,100,...] [--quick]");
+                        System.exit(2);
+                    }
+                    filter = Pattern.compile(args[i]);
+            }
+        }
+
+        Harness harness = quick ? new Harness(2, 3, 100) : new Harness(5, 5, 500);
+        List<Harness.Benchmark> benchmarks = List.of(
+                new IsWalkable(),
+                new EnemyUpdate(),
+                new EnemyWave(false, false),
+                new EnemyWave(true, false),
+                new EnemyWave(true, true),
+                new ResolveHits(false),
+                new ResolveHits(true),
+                new AttackPools(),
+                new PlayerUpdate(),
+                new ProjectileFlight(false),
+                new ProjectileFlight(true),
+                new Combat(),
+                new TileDraw());
+
+        // The simulation logs waves and pickups; keep that out of the table
+        PrintStream out = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        Main.setSoundEnabled(false);
+
+        Harness.printHeader(out);
+        List<String> allocating = new ArrayList<>();
+        for (Harness.Benchmark benchmark : benchmarks) {
+            if (filter != null && !filter.matcher(benchmark.getName()).find()) continue;
+            for (int param : benchmark.params(counts)) {
+                benchmark.setup(param);
+                Harness.Result result = harness.run(benchmark);
+                Harness.printResult(out, benchmark, param, result);
+                if (!quick && Harness.allocates(benchmark, result)) {
+                    allocating.add(benchmark.getName() + " " + benchmark.paramName() + "=" + param);
+                }
+            }
+        }
+        System.setOut(out);
+
+        // Pooled paths have to stay at 0 B/op; a regression fails the run. Not checked with
+        // --quick: its warmup is too short for the JIT to be done with them.
+        if (!allocating.isEmpty()) {
+            System.err.println("Allocating, should be 0 B/op: " + String.join(", ", allocating));
+            System.exit(1);
+        }
+    }
+}
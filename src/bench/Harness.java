@@ -0,0 +1,160 @@
+package bench;
+
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+
+// Minimal JMH-style runner: warmup iterations, then timed iterations of a benchmark's op(),
+// reporting the average time per op with its standard deviation, and the bytes the op
+// allocates (measured on the benchmark thread, so steady-state garbage shows up as a number).
+// Ops run in batches sized so System.nanoTime() stays out of the numbers, and every op's result
+// goes to a volatile sink so the JIT can't drop the work. Everything runs in the current JVM (no
+// forks), so run a single benchmark on its own when comparing numbers that matter.
+public class Harness {
+
+    public abstract static class Benchmark {
+        private final String name;
+
+        protected Benchmark(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        // Parameter values to run with, and what the parameter means
+        public int[] params(int[] counts) {
+            return counts;
+        }
+
+        public String paramName() {
+            return "count";
+        }
+
+        // Once per parameter value, untimed
+        public abstract void setup(int param) throws Exception;
+
+        // Before each iteration (warmup and measured), untimed
+        public void setupIteration() {
+        }
+
+        // One operation; return something derived from the work done
+        public abstract long op();
+
+        // True for ops that must not allocate once warm (pooled paths); see allocates()
+        public boolean allocationFree() {
+            return false;
+        }
+    }
+
+    public static final class Result {
+        public final double nanosPerOp;
+        public final double stdDev;
+        public final long ops;
+        public final double bytesPerOp; // -1 if the JVM can't tell
+
+        Result(double nanosPerOp, double stdDev, long ops, double bytesPerOp) {
+            this.nanosPerOp = nanosPerOp;
+            this.stdDev = stdDev;
+            this.ops = ops;
+            this.bytesPerOp = bytesPerOp;
+        }
+    }
+
+    public static volatile long sink;
+
+    private static final java.lang.management.ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    private final int warmupIterations;
+    private final int measureIterations;
+    private final long iterationNanos;
+
+    public Harness(int warmupIterations, int measureIterations, long iterationMillis) {
+        this.warmupIterations = warmupIterations;
+        this.measureIterations = measureIterations;
+        this.iterationNanos = iterationMillis * 1_000_000L;
+    }
+
+    public Result run(Benchmark benchmark) {
+        int batch = 1;
+        for (int i = 0; i < warmupIterations; i++) {
+            benchmark.setupIteration();
+            batch = iterate(benchmark, batch, null);
+        }
+
+        double[] scores = new double[measureIterations];
+        long[] ops = new long[1];
+        long totalOps = 0;
+        long allocated = 0;
+        for (int i = 0; i < measureIterations; i++) {
+            benchmark.setupIteration();
+            long allocatedBefore = allocatedBytes();
+            long start = System.nanoTime();
+            iterate(benchmark, batch, ops);
+            long elapsed = System.nanoTime() - start;
+            allocated += allocatedBytes() - allocatedBefore;
+            scores[i] = elapsed / (double) ops[0];
+            totalOps += ops[0];
+        }
+
+        double mean = 0;
+        for (double score : scores) mean += score;
+        mean /= scores.length;
+        double variance = 0;
+        for (double score : scores) variance += (score - mean) * (score - mean);
+        double stdDev = scores.length > 1 ? Math.sqrt(variance / (scores.length - 1)) : 0;
+        double bytesPerOp = allocatedBytes() < 0 ? -1 : allocated / (double) totalOps;
+        return new Result(mean, stdDev, totalOps, bytesPerOp);
+    }
+
+    // Bytes allocated so far by this thread, or -1 if the JVM doesn't count them
+    private static long allocatedBytes() {
+        if (THREADS instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) THREADS).getCurrentThreadAllocatedBytes();
+        }
+        return -1;
+    }
+
+    // Runs batches of ops for one iteration's worth of time. Batches grow until one takes
+    // about a millisecond; returns the batch size for the next iteration.
+    private int iterate(Benchmark benchmark, int batch, long[] opsOut) {
+        long acc = 0;
+        long ops = 0;
+        long start = System.nanoTime();
+        long now = start;
+        while (now - start < iterationNanos) {
+            long batchStart = now;
+            for (int i = 0; i < batch; i++) {
+                acc += benchmark.op();
+            }
+            ops += batch;
+            now = System.nanoTime();
+            if (now - batchStart < 1_000_000L && batch < (1 << 24)) {
+                batch *= 2;
+            }
+        }
+        sink += acc;
+        if (opsOut != null) {
+            opsOut[0] = ops;
+        }
+        return batch;
+    }
+
+    // Whether result shows benchmark allocating although it must not. Anything that would print
+    // as more than 0.0 B/op counts.
+    public static boolean allocates(Benchmark benchmark, Result result) {
+        return benchmark.allocationFree() && result.bytesPerOp >= 0.05;
+    }
+
+    public static void printHeader(PrintStream out) {
+        out.printf("%-36s %10s %14s %12s %14s %10s%n", "Benchmark", "(param)", "ns/op", "error", "ns/param", "B/op");
+    }
+
+    public static void printResult(PrintStream out, Benchmark benchmark, int param, Result result) {
+        out.printf("%-36s %10s %14.1f %12s %14.2f %10s%n",
+                benchmark.getName(), benchmark.paramName() + "=" + param,
+                result.nanosPerOp, "+- " + String.format("%.1f", result.stdDev),
+                result.nanosPerOp / param,
+                result.bytesPerOp < 0 ? "-" : String.format("%.1f", result.bytesPerOp));
+    }
+}
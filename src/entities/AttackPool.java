@@ -0,0 +1,110 @@
+package entities;
+
+import java.util.Random;
+
+// The player's attack effects of one kind in play, oldest first, linked through the attacks
+// themselves. Finished ones are kept for the next spawn(), so once the pool has grown to the
+// most attacks ever in play at once, attacking allocates nothing.
+public final class AttackPool<T extends AttackPool.Attack<T>> {
+
+    // Makes an attack the pool has no spare for
+    public interface Factory<T> {
+        T create(int x, int y, int direction, int playerAttack, Random random);
+    }
+
+    // What an AttackPool holds: an effect that can be set up again for reuse, and is finished
+    // once it is no longer active
+    public abstract static class Attack<T extends Attack<T>> {
+        T next; // next in its pool: the attacks in play, or the free ones
+
+        // Next attack in play after this one, or null
+        public T next() {
+            return next;
+        }
+
+        // A fresh attack again, as the Factory would have made it
+        abstract void reset(int x, int y, int direction, int playerAttack, Random random);
+
+        public abstract void update(float deltaTime);
+
+        public abstract boolean isActive();
+    }
+
+    private final Factory<T> factory;
+    private T first, last;
+    private T free;
+    private int size = 0;
+
+    public AttackPool(Factory<T> factory) {
+        this.factory = factory;
+    }
+
+    public T spawn(int x, int y, int direction, int playerAttack, Random random) {
+        T attack = free;
+        if (attack == null) {
+            attack = factory.create(x, y, direction, playerAttack, random);
+        } else {
+            free = attack.next;
+            attack.reset(x, y, direction, playerAttack, random);
+        }
+        attack.next = null;
+        if (last == null) {
+            first = attack;
+        } else {
+            last.next = attack;
+        }
+        last = attack;
+        size++;
+        return attack;
+    }
+
+    // update() on every attack in play; the finished ones go back to the pool
+    public void update(float deltaTime) {
+        T previous = null;
+        T attack = first;
+        while (attack != null) {
+            T next = attack.next;
+            attack.update(deltaTime);
+            if (attack.isActive()) {
+                previous = attack;
+            } else {
+                if (previous == null) {
+                    first = next;
+                } else {
+                    previous.next = next;
+                }
+                if (attack == last) {
+                    last = previous;
+                }
+                attack.next = free;
+                free = attack;
+                size--;
+            }
+            attack = next;
+        }
+    }
+
+    public void clear() {
+        while (first != null) {
+            T next = first.next;
+            first.next = free;
+            free = first;
+            first = next;
+        }
+        last = null;
+        size = 0;
+    }
+
+    // Oldest attack in play (follow next()), or null
+    public T first() {
+        return first;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+}
@@ -0,0 +1,299 @@
+package entities;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// Decides which enemies think each tick, so a tick costs about the number of enemies around the
+// camera instead of the size of the wave. Enemies are bucketed by where they are:
+//
+//   near: in or just around the view, close enough to detect the player, or dying or frozen;
+//         update() every tick, exactly as without the scheduler
+//   mid:  within WAKE_MARGIN of the view; update() every THINK_INTERVAL ticks, and in between
+//         they keep moving the way the last update() moved them (EnemyStore.coast())
+//   far:  asleep: nothing runs until the player comes near
+//
+// Mid and far enemies are looked at again every THINK_INTERVAL ticks, each on the phase given by
+// the order it was added in, so the thinking and waking is spread evenly over the ticks.
+// NEAR_MARGIN is far more than the player or an enemy moves in that time, so nothing that would
+// react to the player is asleep when it should. Enemies that think in a tick do so in slot order,
+// which is the order they were added in, so the shared random draws come in the order a plain
+// loop would make them. The buckets hold store slots; when the dead leave the store at the end
+// of a tick, they are moved along with the slots.
+//
+// With setLod(false) every enemy is near. With setParallel(true) the thinking enemies run
+// update() on a work-stealing pool: each changes only itself and reads the player and the map
+// as they were at the start of the phase, and what touches anything shared (player damage, the
+// world's random, the console) is put off. A sequential commit then does that in slot order,
+// which ends up exactly where the plain loop would. If an enemy's hit kills the player, the
+// enemies after it had thought with the player alive, so they are taken back and updated again
+// in turn, as they would have been.
+public class EnemyScheduler {
+
+    public static final int THINK_INTERVAL = 4;
+    private static final int NEAR_MARGIN = 160;  // px around the view (and the detection radius)
+    private static final int WAKE_MARGIN = 800;  // px around the view
+    private static final long NEAR_RADIUS_SQ = (long) ((Enemy.DETECTION_RADIUS + NEAR_MARGIN) * (Enemy.DETECTION_RADIUS + NEAR_MARGIN));
+
+    private static final int NEAR = 0, MID = 1, FAR = 2;
+
+    private static final int PARALLEL_MIN = 64; // fewer thinking enemies than this aren't worth handing out
+    private static final int TASK_SIZE = 32;    // enemies per pool task
+
+    // Slots in the enemy store. Mid and far are split by phase (EnemyStore.order % THINK_INTERVAL).
+    private static final class Bucket {
+        int[] items = new int[16];
+        int size = 0;
+
+        void add(int slot) {
+            if (size == items.length) {
+                items = Arrays.copyOf(items, size * 2);
+            }
+            items[size++] = slot;
+        }
+
+        // After EnemyStore.compact(): each slot to where it moved, dropping the ones moved out
+        void remap(int[] movedTo) {
+            int kept = 0;
+            for (int k = 0; k < size; k++) {
+                int to = movedTo[items[k]];
+                if (to >= 0) {
+                    items[kept++] = to;
+                }
+            }
+            size = kept;
+        }
+    }
+
+    private final Bucket near = new Bucket();
+    private final Bucket[] mid = new Bucket[THINK_INTERVAL];
+    private final Bucket[] far = new Bucket[THINK_INTERVAL];
+    private final Bucket thinking = new Bucket(); // this tick's update() calls, in slot order
+
+    private volatile boolean lod = true;      // false: everyone is near
+    private volatile boolean parallel = false; // may be flipped from another thread; read once per tick
+    private ForkJoinPool pool;                 // created the first time it is needed
+
+    private EnemyStore known; // store the buckets were built for, and its additions and size then
+    private int knownAdditions = -1;
+    private int knownSize = -1;
+    private long tick = 0;
+
+    public EnemyScheduler() {
+        for (int phase = 0; phase < THINK_INTERVAL; phase++) {
+            mid[phase] = new Bucket();
+            far[phase] = new Bucket();
+        }
+    }
+
+    public void setLod(boolean lod) {
+        this.lod = lod;
+        reset();
+    }
+
+    public boolean isLod() {
+        return lod;
+    }
+
+    public void setParallel(boolean parallel) {
+        this.parallel = parallel;
+    }
+
+    public boolean isParallel() {
+        return parallel;
+    }
+
+    // Buckets are rebuilt from scratch at the next update(); they also are when enemies were
+    // added to the store, or left it other than through update()
+    public void reset() {
+        known = null;
+        knownSize = -1;
+    }
+
+    // One tick of enemy AI, in place of calling update() on every enemy in the store
+    public void update(EnemyStore enemies, Player player, int cameraX, int cameraY, int viewWidth, int viewHeight) {
+        int playerX = player.getX(), playerY = player.getY();
+        boolean lod = this.lod;
+        if (enemies != known || enemies.additions != knownAdditions || enemies.size() != knownSize) {
+            classifyAll(enemies);
+        }
+        int slice = (int) (tick++ % THINK_INTERVAL);
+
+        // Everything near, the mid enemies whose turn it is, and sleepers that should wake
+        thinking.size = 0;
+        for (int k = 0; k < near.size; k++) {
+            thinking.add(near.items[k]);
+        }
+        near.size = 0;
+        Bucket thinkingMid = mid[slice];
+        for (int k = 0; k < thinkingMid.size; k++) {
+            thinking.add(thinkingMid.items[k]);
+        }
+        thinkingMid.size = 0;
+        Bucket asleep = far[slice];
+        int stillAsleep = 0;
+        for (int k = 0; k < asleep.size; k++) {
+            int i = asleep.items[k];
+            if (!enemies.isAlive(i)) continue;
+            if (lod && tierOf(enemies, i, playerX, playerY, cameraX, cameraY, viewWidth, viewHeight) == FAR) {
+                asleep.items[stillAsleep++] = i;
+            } else {
+                thinking.add(i);
+            }
+        }
+        asleep.size = stillAsleep;
+        Arrays.sort(thinking.items, 0, thinking.size);
+
+        int count = 0;
+        for (int k = 0; k < thinking.size; k++) {
+            int i = thinking.items[k];
+            if (enemies.isAlive(i)) {
+                thinking.items[count++] = i;
+            }
+        }
+        thinking.size = count;
+        if (parallel && count >= PARALLEL_MIN) {
+            thinkInParallel(enemies, player, cameraX, cameraY, viewWidth, viewHeight);
+        } else {
+            for (int k = 0; k < count; k++) {
+                enemies.update(thinking.items[k], playerX, playerY, player, cameraX, cameraY, viewWidth, viewHeight);
+            }
+        }
+
+        // The other mid enemies carry on between thinks
+        for (int phase = 0; phase < THINK_INTERVAL; phase++) {
+            if (phase == slice) continue;
+            Bucket bucket = mid[phase];
+            for (int k = 0; k < bucket.size; k++) {
+                enemies.coast(bucket.items[k]);
+            }
+        }
+
+        // Whoever thought goes where they are now; the dead are dropped
+        for (int k = 0; k < count; k++) {
+            int i = thinking.items[k];
+            if (enemies.isAlive(i)) {
+                place(enemies, i, lod ? tierOf(enemies, i, playerX, playerY, cameraX, cameraY, viewWidth, viewHeight) : NEAR);
+            }
+        }
+
+        // The dead leave the store, and the slots after them move up
+        if (enemies.compact()) {
+            int[] movedTo = enemies.movedTo;
+            near.remap(movedTo);
+            for (int phase = 0; phase < THINK_INTERVAL; phase++) {
+                mid[phase].remap(movedTo);
+                far[phase].remap(movedTo);
+            }
+        }
+        knownSize = enemies.size();
+    }
+
+    private void thinkInParallel(EnemyStore enemies, Player player, int cameraX, int cameraY, int viewWidth, int viewHeight) {
+        if (pool == null) {
+            pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        }
+        int count = thinking.size;
+        int[] slots = thinking.items;
+        enemies.prepareDeferred();
+        pool.invoke(new Think(enemies, slots, 0, count, player, cameraX, cameraY, viewWidth, viewHeight));
+
+        // Commit in slot order
+        int playerX = player.getX(), playerY = player.getY();
+        boolean playerAlive = player.isAlive();
+        for (int k = 0; k < count; k++) {
+            int i = slots[k];
+            if (player.isAlive() == playerAlive) {
+                enemies.commitDeferred(i, player);
+            } else {
+                enemies.undoDeferred(i);
+                enemies.update(i, playerX, playerY, player, cameraX, cameraY, viewWidth, viewHeight);
+            }
+        }
+    }
+
+    // Deferred update() of the enemies in slots[from, to), split in halves down to TASK_SIZE
+    private static final class Think extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final EnemyStore enemies;
+        private final int[] slots;
+        private final int from, to;
+        private final Player player;
+        private final int cameraX, cameraY, viewWidth, viewHeight;
+
+        Think(EnemyStore enemies, int[] slots, int from, int to, Player player,
+              int cameraX, int cameraY, int viewWidth, int viewHeight) {
+            this.enemies = enemies;
+            this.slots = slots;
+            this.from = from;
+            this.to = to;
+            this.player = player;
+            this.cameraX = cameraX;
+            this.cameraY = cameraY;
+            this.viewWidth = viewWidth;
+            this.viewHeight = viewHeight;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= TASK_SIZE) {
+                int playerX = player.getX(), playerY = player.getY();
+                double[] steerTarget = new double[2];
+                for (int k = from; k < to; k++) {
+                    enemies.updateDeferred(slots[k], playerX, playerY, player,
+                            cameraX, cameraY, viewWidth, viewHeight, steerTarget);
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new Think(enemies, slots, from, middle, player, cameraX, cameraY, viewWidth, viewHeight),
+                    new Think(enemies, slots, middle, to, player, cameraX, cameraY, viewWidth, viewHeight));
+        }
+    }
+
+    private void classifyAll(EnemyStore enemies) {
+        near.size = 0;
+        for (int phase = 0; phase < THINK_INTERVAL; phase++) {
+            mid[phase].size = 0;
+            far[phase].size = 0;
+        }
+        for (int i = 0; i < enemies.size(); i++) {
+            if (enemies.isAlive(i)) {
+                // Everyone starts near so each thinks once before being put off
+                place(enemies, i, NEAR);
+            }
+        }
+        known = enemies;
+        knownAdditions = enemies.additions;
+        knownSize = enemies.size();
+    }
+
+    private void place(EnemyStore enemies, int i, int tier) {
+        if (tier == NEAR) {
+            near.add(i);
+        } else if (tier == MID) {
+            mid[enemies.order[i] % THINK_INTERVAL].add(i);
+        } else {
+            far[enemies.order[i] % THINK_INTERVAL].add(i);
+        }
+    }
+
+    private static int tierOf(EnemyStore enemies, int i, int playerX, int playerY,
+                              int cameraX, int cameraY, int viewWidth, int viewHeight) {
+        if (enemies.has(i, EnemyStore.DYING) || enemies.freezeTimer[i] > 0) {
+            return NEAR; // death animation and freeze count down by the tick
+        }
+        int x = enemies.getX(i), y = enemies.getY(i);
+        long dx = x - playerX, dy = y - playerY;
+        if (dx * dx + dy * dy <= NEAR_RADIUS_SQ || inView(x, y, cameraX, cameraY, viewWidth, viewHeight, NEAR_MARGIN)) {
+            return NEAR;
+        }
+        return inView(x, y, cameraX, cameraY, viewWidth, viewHeight, WAKE_MARGIN) ? MID : FAR;
+    }
+
+    private static boolean inView(int x, int y, int cameraX, int cameraY, int viewWidth, int viewHeight, int margin) {
+        return x >= cameraX - margin && x <= cameraX + viewWidth + margin
+                && y >= cameraY - margin && y <= cameraY + viewHeight + margin;
+    }
+}
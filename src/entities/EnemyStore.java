@@ -0,0 +1,807 @@
+package entities;
+
+import java.awt.Image;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import world.Boxes;
+import world.SpatialHash;
+
+// Enemy state as parallel arrays, one slot per enemy, and what enemies do, slot by slot: the
+// tick (update, coast), taking hits and the hit boxes. Passes over every enemy are loops over
+// [0, size) that walk through contiguous memory instead of chasing one heap object per enemy.
+// Enemy is a view of one slot, for code that wants to hold on to one enemy.
+//
+// A world keeps its enemies in one store. Only enemies still on the field (alive, or playing
+// their death animation) stay in it. One that is gone for good is marked (release) and moved
+// out at the end of the pass (compact), which closes the gap without changing the order of the
+// rest: slots [0, size) are always the enemies on the field, in the order they were added.
+// Those moved out keep their final state in the store's graveyard, a store reused for every
+// enemy that leaves until the next clear(). An Enemy made on its own starts out in a store of
+// its own, until add() takes it in.
+//
+// The manager references and the random source are per store: every enemy of a world shares
+// them. So is the entity registry, which has a handle for every enemy on the field: add() creates
+// it and release() destroys it.
+public final class EnemyStore {
+
+    // flags
+    static final int ALIVE = 1, DYING = 2, FACING_LEFT = 4, RETREATING = 8, ATTACKING = 16, RELEASED = 32;
+    // deferred: what an update() on a worker thread left for the commit (see updateDeferred)
+    static final int DEFERRING = 1, PENDING_HIT = 4, PENDING_RANDOM_STEP = 8, PENDING_RELEASE = 16;
+    // spriteAnim: which of the type's animations the sprite comes from
+    static final byte IDLE = 0, WALK = 1, ATTACK = 2, DEATH = 3;
+
+    // Retreat logic
+    private static final double RETREAT_SPEED_MULTIPLIER = 0.5; // Retreat slower
+
+    // Timings in seconds; update() counts them in ticks at the store's tick rate (see Ticks)
+    private static final double FRAME_SECONDS = 10 / 60.0;
+    private static final double ATTACK_FRAME_SECONDS = 3 / 60.0; // lower = faster attack animation (reduced from 4 to 2)
+    private static final double DEATH_FRAME_SECONDS = 8 / 60.0; // Slower death animation
+    private static final double ATTACK_COOLDOWN_SECONDS = 5 / 60.0; // Very short, for continuous attacks when in range
+
+    int size = 0;
+    Enemy[] views;
+    byte[] type, flags, deferred, spriteAnim;
+    double[] x, y, prevX, prevY, lastMoveX, lastMoveY, speed;
+    int[] hp, width, height, collisionWidth, collisionHeight, attackDamage, freezeTimer, flashRed;
+    int[] currentFrame, frameTimer, idleCurrentFrame, idleFrameTimer;
+    int[] attackFrame, attackFrameTimer, attackCooldown, deathFrame, deathFrameTimer, spriteFrame;
+    int[] order;  // add() order since the last clear(): EnemyScheduler's phase
+    int[] handle; // in the registry while on the field, NONE otherwise
+    int[] movedTo; // compact(): slot each enemy moved to, -1 for the ones moved out
+    int released = 0; // slots marked by release() and not moved out yet
+    int additions = 0; // add() calls ever, so a scheduler notices new enemies
+    private int nextOrder = 0;
+
+    private EnemyStore graveyard; // where released enemies keep their final state
+    private EnemyStore saved;     // state before updateDeferred(), by slot, in case it has to be redone
+    private final double[] steerTarget = new double[2]; // Reused flowField.steer() result for update()
+
+    // The timings above and the speeds (per tick at 60) at the tick rate, see setTickRate()
+    private int frameDelay, attackFrameDelay, deathFrameDelay, attackCooldownTicks;
+    private double stepScale;
+    private final List<Enemy> onField = new AbstractList<Enemy>() {
+        @Override
+        public Enemy get(int i) {
+            if (i < 0 || i >= size) throw new IndexOutOfBoundsException("Index " + i + ", size " + size);
+            return views[i];
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    };
+
+    tile.TileManager tileManager; // for collision
+    Inventory inventory; // for potion drops
+    world.ObjectManager objectManager; // for dropped items
+    Random random = new Random(); // Replaced by the world's seeded random (setRandom)
+    world.FlowField flowField; // null: enemies walk straight at the player
+    world.EntityRegistry registry; // Replaced by the world's (setRegistry); null in stores of one
+
+    public EnemyStore() {
+        this(64);
+        registry = new world.EntityRegistry();
+    }
+
+    EnemyStore(int capacity) {
+        resize(Math.max(1, capacity));
+        setTickRate(Ticks.TUNED_RATE);
+    }
+
+    // Ticks per second update() runs at
+    public void setTickRate(int tickRate) {
+        frameDelay = Ticks.of(FRAME_SECONDS, tickRate);
+        attackFrameDelay = Ticks.of(ATTACK_FRAME_SECONDS, tickRate);
+        deathFrameDelay = Ticks.of(DEATH_FRAME_SECONDS, tickRate);
+        attackCooldownTicks = Ticks.of(ATTACK_COOLDOWN_SECONDS, tickRate);
+        stepScale = Ticks.stepScale(tickRate);
+    }
+
+    // Enemies on the field
+    public int size() {
+        return size;
+    }
+
+    // The enemies on the field as a list, in slot order; it follows the store, so it never holds
+    // enemies that have left. For code that works with Enemy objects: passes of the simulation
+    // go over the slots.
+    public List<Enemy> enemies() {
+        return onField;
+    }
+
+    public Enemy get(int i) {
+        return views[i];
+    }
+
+    // Moves enemy's state into this store, if it isn't here already
+    public void add(Enemy enemy) {
+        if (enemy.store == this) return;
+        int slot = allocate(enemy);
+        copySlot(enemy.store, enemy.slot, this, slot);
+        enemy.store.free(enemy.slot);
+        enemy.store = this;
+        enemy.slot = slot;
+        flags[slot] &= ~RELEASED;
+        order[slot] = nextOrder++;
+        handle[slot] = registry != null ? registry.create(world.EntityRegistry.ENEMY, enemy) : world.EntityRegistry.NONE;
+        additions++;
+        reserveGraveyard();
+    }
+
+    // Every enemy leaves the field. Their graveyard goes with them, so the enemies that leave
+    // from now on don't reuse its slots.
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            if ((flags[i] & RELEASED) == 0) {
+                release(i);
+            }
+        }
+        compact();
+        graveyard = null;
+        nextOrder = 0;
+    }
+
+    // Before every tick: where each enemy on the field was, for interpolated drawing
+    public void storePreviousPositions() {
+        System.arraycopy(x, 0, prevX, 0, size);
+        System.arraycopy(y, 0, prevY, 0, size);
+    }
+
+    public void setTileManager(tile.TileManager tileManager) {
+        this.tileManager = tileManager;
+    }
+
+    public void setInventory(Inventory inventory) {
+        this.inventory = inventory;
+    }
+
+    public void setObjectManager(world.ObjectManager objectManager) {
+        this.objectManager = objectManager;
+    }
+
+    public void setRandom(Random random) {
+        this.random = random;
+    }
+
+    public void setFlowField(world.FlowField flowField) {
+        this.flowField = flowField;
+    }
+
+    public void setRegistry(world.EntityRegistry registry) {
+        this.registry = registry;
+    }
+
+    // Slot i, for passes over [0, size)
+
+    public boolean isAlive(int i) {
+        return has(i, ALIVE);
+    }
+
+    public boolean isDying(int i) {
+        return has(i, DYING);
+    }
+
+    public int getX(int i) {
+        return (int) x[i];
+    }
+
+    public int getY(int i) {
+        return (int) y[i];
+    }
+
+    public int getHp(int i) {
+        return hp[i];
+    }
+
+    // Handle to the enemy in slot i in the registry
+    public int handleAt(int i) {
+        return handle[i];
+    }
+
+    // Adds every enemy on the field to grid with its bounds, in slot order, so the grid's index
+    // of an enemy (SpatialHash.matchAt) is its slot
+    public void addTo(SpatialHash<Enemy> grid) {
+        for (int i = 0; i < size; i++) {
+            grid.add(views[i], (int) x[i], (int) y[i], width[i], height[i]);
+        }
+    }
+
+    // Bounds of slot i against another box, as Rectangle.intersects would decide
+    public boolean intersects(int i, int otherX, int otherY, int otherWidth, int otherHeight) {
+        return Boxes.intersect((int) x[i], (int) y[i], width[i], height[i], otherX, otherY, otherWidth, otherHeight);
+    }
+
+    public void freeze(int i, int frames) {
+        freezeTimer[i] = frames;
+    }
+
+    public void takeDamage(int i, int amount) {
+        hp[i] -= amount;
+        flashRed[i] = 5; // for hit flash effect (optional)
+        if (hp[i] <= 0 && !has(i, DYING)) {
+            // Start death animation instead of immediately dying
+            hp[i] = 0;
+            set(i, DYING, true);
+            deathFrame[i] = 0;
+            deathFrameTimer[i] = 0;
+
+            // Drop powerups with low probability
+            dropPowerup(i);
+        }
+    }
+
+    private void dropPowerup(int i) {
+        if (objectManager == null) return;
+        double dropX = x[i], dropY = y[i];
+
+        // Determine drop chance based on enemy type with visual and potion drops
+        double dropChance = 0.0;
+        switch (Enemy.TYPES[type[i]]) {
+            case BASIC:
+                dropChance = 0.08; // 8% chance - very low
+                break;
+            case FAST:
+                dropChance = 0.15; // 15% chance - low
+                break;
+            case TANK:
+                dropChance = 0.20; // 20% chance - medium
+                break;
+            case MINOTAUR:
+                dropChance = 0.25; // 25% chance - medium
+                break;
+            case MINI_BOSS:
+                dropChance = 0.75; // 75% chance - high (mini boss is rare and valuable)
+                break;
+        }
+
+        // Drop visual sword items on ground (high chance)
+        if (random.nextDouble() < dropChance) {
+            objectManager.addDrop((int) dropX, (int) dropY);
+        }
+
+        // Additionally drop potions directly to inventory (lower chance for visibility)
+        double potionDropChance = dropChance * 0.3; // 30% of base drop chance
+        if (random.nextDouble() < potionDropChance && inventory != null) {
+            String drop = selectPowerupDrop(random);
+            inventory.addItem(drop, 1);
+        }
+    }
+
+    private static String selectPowerupDrop(Random rand) {
+        // Weighted drop table: more common drops are more likely
+        // potion_red (HP restore) - 60% chance
+        // potion_blue (Mana restore) - 40% chance
+        int roll = rand.nextInt(100);
+
+        if (roll < 60) {
+            return "potion_red";  // HP potion
+        } else {
+            return "potion_blue"; // Mana potion
+        }
+    }
+
+    private Image[][] frames(int i) {
+        return Enemy.framesOf(type[i]);
+    }
+
+    // The mini boss is one animated GIF that animates itself
+    private boolean isAnimatedGif(int i) {
+        return type[i] == Enemy.EnemyType.MINI_BOSS.ordinal();
+    }
+
+    boolean has(int i, int flag) {
+        return (flags[i] & flag) != 0;
+    }
+
+    private void set(int i, int flag, boolean on) {
+        flags[i] = (byte) (on ? flags[i] | flag : flags[i] & ~flag);
+    }
+
+    private void setSprite(int i, byte animation, int frame) {
+        spriteAnim[i] = animation;
+        spriteFrame[i] = frame;
+    }
+
+    // Next walk frame, and show it
+    private void animateWalk(int i) {
+        Image[] walkFrames = frames(i)[WALK];
+        if (!isAnimatedGif(i)) {
+            frameTimer[i]++;
+            if (frameTimer[i] >= frameDelay) {
+                currentFrame[i] = (currentFrame[i] + 1) % walkFrames.length;
+                frameTimer[i] = 0;
+            }
+        }
+        setSprite(i, WALK, currentFrame[i]);
+    }
+
+    // One tick of the enemy in slot i, on the update thread
+    void update(int i, int playerX, int playerY, Player player, int cameraX, int cameraY, int viewportWidth, int viewportHeight) {
+        update(i, playerX, playerY, player, cameraX, cameraY, viewportWidth, viewportHeight, steerTarget);
+    }
+
+    // steerTarget: flowField.steer() scratch, one per thread
+    private void update(int i, int playerX, int playerY, Player player, int cameraX, int cameraY,
+                        int viewportWidth, int viewportHeight, double[] steerTarget) {
+        if (!has(i, ALIVE)) return;
+        lastMoveX[i] = 0;
+        lastMoveY[i] = 0;
+        double x = this.x[i], y = this.y[i];
+        double speed = this.speed[i] * stepScale;
+
+        // Handle death animation
+        if (has(i, DYING)) {
+            Image[] deathFrames = frames(i)[DEATH];
+            deathFrameTimer[i]++;
+            if (deathFrameTimer[i] >= deathFrameDelay) {
+                deathFrame[i]++;
+                deathFrameTimer[i] = 0;
+
+                // End death animation and mark as truly dead after showing all frames
+                if (deathFrame[i] >= deathFrames.length) {
+                    set(i, ALIVE, false); // Now the enemy is truly dead
+                    set(i, DYING, false); // Also set dying to false so it stops being drawn
+                    if ((deferred[i] & DEFERRING) != 0) {
+                        deferred[i] |= PENDING_RELEASE;
+                    } else {
+                        release(i); // off the field: out of the live slots at the next compact()
+                    }
+                    return;
+                }
+            }
+
+            // Only set sprite if we have a valid frame
+            if (deathFrame[i] < deathFrames.length) {
+                setSprite(i, DEATH, deathFrame[i]);
+            }
+            return; // Skip all other logic while dying
+        }
+
+        // Handle freeze effect
+        if (freezeTimer[i] > 0) {
+            freezeTimer[i]--;
+            // Skip all movement and attack logic while frozen
+            return;
+        }
+
+
+
+        if (!player.isAlive()) {
+            // Player is dead, retreat by moving away from player's position
+            set(i, RETREATING, true);
+
+            // Calculate direction away from player
+            double dx = x - playerX; // Reversed: away from player
+            double dy = y - playerY; // Reversed: away from player
+            double dist = Math.sqrt(dx * dx + dy * dy);
+
+            if (dist > 0.1) { // Avoid division by zero
+                // Move away from player - normalize and multiply by speed
+                double moveX = (dx / dist) * speed * RETREAT_SPEED_MULTIPLIER;
+                double moveY = (dy / dist) * speed * RETREAT_SPEED_MULTIPLIER;
+
+                // Apply collision detection
+                applyCollisionMovement(i, moveX, moveY);
+
+                set(i, FACING_LEFT, dx < 0); // Face the direction of retreat
+
+                // Animate walking during retreat
+                animateWalk(i);
+            } else {
+                // Enemy is on the exact same position, move in a random direction
+                if ((deferred[i] & DEFERRING) != 0) {
+                    deferred[i] |= PENDING_RANDOM_STEP;
+                } else {
+                    retreatRandomStep(i);
+                }
+            }
+            return; // Stop further updates if retreating
+        } else {
+            set(i, RETREATING, false); // Reset retreating flag if player is alive again
+        }
+
+        // Normal enemy behavior (move toward player and attack)
+        double dx = playerX - x;
+        double dy = playerY - y;
+        double dist = Math.sqrt(dx * dx + dy * dy);
+
+        set(i, FACING_LEFT, dx < 0);  // face left if player is to the left
+
+        // Check if enemy is in camera viewport
+        boolean inViewport = (x >= cameraX && x <= cameraX + viewportWidth &&
+                             y >= cameraY && y <= cameraY + viewportHeight);
+
+        boolean canDetectPlayer = dist <= Enemy.DETECTION_RADIUS;
+        boolean attacking = has(i, ATTACKING);
+
+        if ((canDetectPlayer || inViewport) && dist > 1 && !attacking) { // Move toward player if detected or in viewport
+            double moveX = (dx / dist) * speed;
+            double moveY = (dy / dist) * speed;
+
+            // Head for the next tile on the way around obstacles, if the flow field has one
+            if (flowField != null && flowField.steer(x, y, steerTarget)) {
+                double stepX = steerTarget[0] - x;
+                double stepY = steerTarget[1] - y;
+                double stepDist = Math.sqrt(stepX * stepX + stepY * stepY);
+                if (stepDist > 0.1) {
+                    moveX = (stepX / stepDist) * speed;
+                    moveY = (stepY / stepDist) * speed;
+                }
+            }
+
+            // Apply collision detection
+            applyCollisionMovement(i, moveX, moveY);
+
+            // Animate walking
+            animateWalk(i);
+        } else if (dist <= 0.8 || attacking) { // Attack when reasonably close to player OR continue attack animation if already started
+            Image[] attackFrames = frames(i)[ATTACK];
+            // Start attack if not already attacking and cooldown is ready
+            if (!attacking && attackCooldown[i] <= 0) {
+                attacking = true;
+                set(i, ATTACKING, true);
+                attackFrame[i] = 0;
+                attackFrameTimer[i] = 0; // Reset timer to ensure smooth start
+                attackCooldown[i] = attackCooldownTicks;
+            }
+
+            if (attacking) {
+                attackFrameTimer[i]++;
+                if (attackFrameTimer[i] >= attackFrameDelay) {
+                    attackFrame[i]++;
+                    attackFrameTimer[i] = 0;
+
+                    // Deal damage on the middle frame of the attack animation (frame 2 out of 4)
+                    if (attackFrame[i] == 2 && dist <= 1) { // Double-check range at the moment of impact
+                        if ((deferred[i] & DEFERRING) != 0) {
+                            deferred[i] |= PENDING_HIT;
+                        } else {
+                            hitPlayer(i, player);
+                        }
+                    }
+
+                    // End attack if finished all frames
+                    if (attackFrame[i] >= attackFrames.length) {
+                        attackFrame[i] = 0;
+                        set(i, ATTACKING, false);
+                        attackCooldown[i] = attackCooldownTicks; // Ensure cooldown after attack completes
+                    }
+                }
+
+                // Always set attack sprite if attacking (prevent stuttering)
+                if (attackFrame[i] < attackFrames.length && attackFrames[attackFrame[i]] != null) {
+                    setSprite(i, ATTACK, attackFrame[i]);
+                }
+            } else {
+                // If not attacking and close, set to idle and manage cooldown
+                // Animate idle
+                Image[] idleFrames = frames(i)[IDLE];
+                if (!isAnimatedGif(i)) {
+                    idleFrameTimer[i]++;
+                    if (idleFrameTimer[i] >= frameDelay) {
+                        idleCurrentFrame[i] = (idleCurrentFrame[i] + 1) % idleFrames.length;
+                        idleFrameTimer[i] = 0;
+                    }
+                }
+                setSprite(i, IDLE, idleCurrentFrame[i]);
+                if (attackCooldown[i] > 0) {
+                    attackCooldown[i]--;
+                }
+            }
+        }
+    }
+
+    private void retreatRandomStep(int i) {
+        double angle = random.nextDouble() * 2 * Math.PI;
+        double moveX = speed[i] * stepScale * RETREAT_SPEED_MULTIPLIER * Math.cos(angle);
+        double moveY = speed[i] * stepScale * RETREAT_SPEED_MULTIPLIER * Math.sin(angle);
+
+        // Apply collision detection
+        applyCollisionMovement(i, moveX, moveY);
+    }
+
+    private void hitPlayer(int i, Player player) {
+        // Randomize enemy attack damage with a minimum of 5
+        int minEnemyDamage = 5;
+        int maxEnemyDamage = attackDamage[i] + 5; // e.g., if base attackDamage is 10, max will be 15
+        int randomizedDamage = minEnemyDamage + random.nextInt(maxEnemyDamage - minEnemyDamage + 1);
+        player.takeDamage(randomizedDamage); // Deal randomized damage at the moment of impact
+    }
+
+    // Before handing slots to updateDeferred(): room to save any of them
+    void prepareDeferred() {
+        if (saved == null || saved.x.length < size) {
+            saved = new EnemyStore(views.length);
+        }
+    }
+
+    // update() for a worker thread: only slot i changes, and only reads of the player and the
+    // map happen. The rest waits for commitDeferred() on the simulation thread.
+    void updateDeferred(int i, int playerX, int playerY, Player player, int cameraX, int cameraY,
+                        int viewportWidth, int viewportHeight, double[] steerTarget) {
+        copySlot(this, i, saved, i);
+        deferred[i] = DEFERRING;
+        try {
+            update(i, playerX, playerY, player, cameraX, cameraY, viewportWidth, viewportHeight, steerTarget);
+        } finally {
+            deferred[i] &= ~DEFERRING;
+        }
+    }
+
+    // Does what updateDeferred() put off, as update() would have at that point
+    void commitDeferred(int i, Player player) {
+        int pending = deferred[i];
+        deferred[i] = 0;
+        if ((pending & PENDING_HIT) != 0) {
+            hitPlayer(i, player);
+        }
+        if ((pending & PENDING_RANDOM_STEP) != 0) {
+            retreatRandomStep(i);
+        }
+        if ((pending & PENDING_RELEASE) != 0) {
+            release(i);
+        }
+    }
+
+    // Throws away the last updateDeferred(), for when it saw a player that has changed since
+    void undoDeferred(int i) {
+        copySlot(saved, i, this, i);
+        deferred[i] = 0;
+    }
+
+    // Tick between two update()s, for enemies EnemyScheduler only has think every few ticks:
+    // keep making the move the last update() made, walk animation and all
+    void coast(int i) {
+        if (!has(i, ALIVE) || has(i, DYING) || freezeTimer[i] > 0
+                || (lastMoveX[i] == 0 && lastMoveY[i] == 0)) return;
+        applyCollisionMovement(i, lastMoveX[i], lastMoveY[i]);
+        animateWalk(i);
+    }
+
+    // Apply collision-aware movement similar to player; isWalkable covers solid tiles and the
+    // object colliders baked into the tile grid, so enemies go around rocks too
+    private void applyCollisionMovement(int i, double moveX, double moveY) {
+        lastMoveX[i] = moveX;
+        lastMoveY[i] = moveY;
+        double x = this.x[i], y = this.y[i];
+        if (tileManager == null) {
+            // No collision detection available, move freely
+            this.x[i] = x + moveX;
+            this.y[i] = y + moveY;
+            return;
+        }
+        int collisionWidth = this.collisionWidth[i];
+        int collisionHeight = this.collisionHeight[i];
+
+        // Try to move in both directions together first (diagonal movement)
+        double newX = x + moveX;
+        double newY = y + moveY;
+
+        int topLeftX = (int) Math.round(newX - collisionWidth / 2.0);
+        int topLeftY = (int) Math.round(newY - collisionHeight / 2.0);
+
+        if (tileManager.isWalkable(topLeftX, topLeftY, collisionWidth, collisionHeight)) {
+            // Full movement is possible
+            this.x[i] = newX;
+            this.y[i] = newY;
+            return;
+        }
+
+        // If diagonal movement fails, try horizontal movement only
+        newX = x + moveX;
+        newY = y; // Keep Y the same
+
+        topLeftX = (int) Math.round(newX - collisionWidth / 2.0);
+        topLeftY = (int) Math.round(y - collisionHeight / 2.0);
+
+        if (tileManager.isWalkable(topLeftX, topLeftY, collisionWidth, collisionHeight)) {
+            this.x[i] = newX;
+            // y stays the same
+            return;
+        }
+
+        // If horizontal fails, try vertical movement only
+        newX = x; // Keep X the same
+        newY = y + moveY;
+
+        topLeftX = (int) Math.round(x - collisionWidth / 2.0);
+        topLeftY = (int) Math.round(newY - collisionHeight / 2.0);
+
+        if (tileManager.isWalkable(topLeftX, topLeftY, collisionWidth, collisionHeight)) {
+            // x stays the same
+            this.y[i] = newY;
+            return;
+        }
+
+        // If all movement attempts fail, enemy stays in place
+        // This prevents enemies from getting stuck in trees or other obstacles
+    }
+
+    // Next free slot, now viewed by enemy
+    int allocate(Enemy enemy) {
+        if (size == views.length) {
+            resize(size * 2);
+        }
+        views[size] = enemy;
+        return size++;
+    }
+
+    // The enemy in slot i is gone for good: its handle is stale from now on, and compact() moves
+    // it out. The slots don't move until then, so a pass over them can release as it goes.
+    void release(int i) {
+        flags[i] |= RELEASED;
+        released++;
+        if (registry != null) {
+            registry.destroy(handle[i]);
+        }
+    }
+
+    // Moves the released enemies out to the graveyard and closes up the rest, in order; false if
+    // there were none. movedTo then maps each old slot to its new one (-1: moved out).
+    boolean compact() {
+        if (released == 0) return false;
+        reserveGraveyard();
+        graveyard.tileManager = tileManager;
+        graveyard.inventory = inventory;
+        graveyard.objectManager = objectManager;
+        graveyard.random = random;
+        graveyard.flowField = flowField;
+        graveyard.registry = registry;
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            Enemy view = views[i];
+            if ((flags[i] & RELEASED) != 0) {
+                int slot = graveyard.allocate(view);
+                copySlot(this, i, graveyard, slot);
+                view.store = graveyard;
+                view.slot = slot;
+                movedTo[i] = -1;
+                continue;
+            }
+            if (kept != i) {
+                copySlot(this, i, this, kept);
+                views[kept] = view;
+                view.slot = kept;
+            }
+            movedTo[i] = kept++;
+        }
+        Arrays.fill(views, kept, size, null);
+        size = kept;
+        released = 0;
+        return true;
+    }
+
+    // Room in the graveyard for every enemy on the field, so that compact() doesn't allocate
+    // when they die in the middle of a fight; add() allocates anyway
+    private void reserveGraveyard() {
+        if (graveyard == null) {
+            graveyard = new EnemyStore(Math.max(views.length, 16));
+        } else if (graveyard.views.length - graveyard.size < size) {
+            graveyard.resize(Math.max(graveyard.views.length * 2, graveyard.size + size));
+        }
+    }
+
+    // Swap-remove: the last slot moves into slot (for the stores enemies are taken from by add())
+    private void free(int slot) {
+        int last = size - 1;
+        if (slot != last) {
+            copySlot(this, last, this, slot);
+            views[slot] = views[last];
+            views[slot].slot = slot;
+        }
+        views[last] = null;
+        size--;
+    }
+
+    // Everything but the view
+    static void copySlot(EnemyStore from, int i, EnemyStore to, int j) {
+        to.type[j] = from.type[i];
+        to.flags[j] = from.flags[i];
+        to.deferred[j] = from.deferred[i];
+        to.spriteAnim[j] = from.spriteAnim[i];
+        to.x[j] = from.x[i];
+        to.y[j] = from.y[i];
+        to.prevX[j] = from.prevX[i];
+        to.prevY[j] = from.prevY[i];
+        to.lastMoveX[j] = from.lastMoveX[i];
+        to.lastMoveY[j] = from.lastMoveY[i];
+        to.speed[j] = from.speed[i];
+        to.hp[j] = from.hp[i];
+        to.width[j] = from.width[i];
+        to.height[j] = from.height[i];
+        to.collisionWidth[j] = from.collisionWidth[i];
+        to.collisionHeight[j] = from.collisionHeight[i];
+        to.attackDamage[j] = from.attackDamage[i];
+        to.freezeTimer[j] = from.freezeTimer[i];
+        to.flashRed[j] = from.flashRed[i];
+        to.currentFrame[j] = from.currentFrame[i];
+        to.frameTimer[j] = from.frameTimer[i];
+        to.idleCurrentFrame[j] = from.idleCurrentFrame[i];
+        to.idleFrameTimer[j] = from.idleFrameTimer[i];
+        to.attackFrame[j] = from.attackFrame[i];
+        to.attackFrameTimer[j] = from.attackFrameTimer[i];
+        to.attackCooldown[j] = from.attackCooldown[i];
+        to.deathFrame[j] = from.deathFrame[i];
+        to.deathFrameTimer[j] = from.deathFrameTimer[i];
+        to.spriteFrame[j] = from.spriteFrame[i];
+        to.order[j] = from.order[i];
+        to.handle[j] = from.handle[i];
+    }
+
+    private void resize(int capacity) {
+        if (views == null) {
+            views = new Enemy[capacity];
+            type = new byte[capacity];
+            flags = new byte[capacity];
+            deferred = new byte[capacity];
+            spriteAnim = new byte[capacity];
+            x = new double[capacity];
+            y = new double[capacity];
+            prevX = new double[capacity];
+            prevY = new double[capacity];
+            lastMoveX = new double[capacity];
+            lastMoveY = new double[capacity];
+            speed = new double[capacity];
+            hp = new int[capacity];
+            width = new int[capacity];
+            height = new int[capacity];
+            collisionWidth = new int[capacity];
+            collisionHeight = new int[capacity];
+            attackDamage = new int[capacity];
+            freezeTimer = new int[capacity];
+            flashRed = new int[capacity];
+            currentFrame = new int[capacity];
+            frameTimer = new int[capacity];
+            idleCurrentFrame = new int[capacity];
+            idleFrameTimer = new int[capacity];
+            attackFrame = new int[capacity];
+            attackFrameTimer = new int[capacity];
+            attackCooldown = new int[capacity];
+            deathFrame = new int[capacity];
+            deathFrameTimer = new int[capacity];
+            spriteFrame = new int[capacity];
+            order = new int[capacity];
+            handle = new int[capacity];
+            movedTo = new int[capacity];
+            return;
+        }
+        views = Arrays.copyOf(views, capacity);
+        type = Arrays.copyOf(type, capacity);
+        flags = Arrays.copyOf(flags, capacity);
+        deferred = Arrays.copyOf(deferred, capacity);
+        spriteAnim = Arrays.copyOf(spriteAnim, capacity);
+        x = Arrays.copyOf(x, capacity);
+        y = Arrays.copyOf(y, capacity);
+        prevX = Arrays.copyOf(prevX, capacity);
+        prevY = Arrays.copyOf(prevY, capacity);
+        lastMoveX = Arrays.copyOf(lastMoveX, capacity);
+        lastMoveY = Arrays.copyOf(lastMoveY, capacity);
+        speed = Arrays.copyOf(speed, capacity);
+        hp = Arrays.copyOf(hp, capacity);
+        width = Arrays.copyOf(width, capacity);
+        height = Arrays.copyOf(height, capacity);
+        collisionWidth = Arrays.copyOf(collisionWidth, capacity);
+        collisionHeight = Arrays.copyOf(collisionHeight, capacity);
+        attackDamage = Arrays.copyOf(attackDamage, capacity);
+        freezeTimer = Arrays.copyOf(freezeTimer, capacity);
+        flashRed = Arrays.copyOf(flashRed, capacity);
+        currentFrame = Arrays.copyOf(currentFrame, capacity);
+        frameTimer = Arrays.copyOf(frameTimer, capacity);
+        idleCurrentFrame = Arrays.copyOf(idleCurrentFrame, capacity);
+        idleFrameTimer = Arrays.copyOf(idleFrameTimer, capacity);
+        attackFrame = Arrays.copyOf(attackFrame, capacity);
+        attackFrameTimer = Arrays.copyOf(attackFrameTimer, capacity);
+        attackCooldown = Arrays.copyOf(attackCooldown, capacity);
+        deathFrame = Arrays.copyOf(deathFrame, capacity);
+        deathFrameTimer = Arrays.copyOf(deathFrameTimer, capacity);
+        spriteFrame = Arrays.copyOf(spriteFrame, capacity);
+        order = Arrays.copyOf(order, capacity);
+        handle = Arrays.copyOf(handle, capacity);
+        movedTo = Arrays.copyOf(movedTo, capacity);
+    }
+}
@@ -3,17 +3,22 @@ package entities;
 import java.awt.Color;
 import java.awt.Font;
 import java.awt.Graphics2D;
+import java.awt.Image;
 import java.util.List;
 
+// The first inventory slots, drawn over the game with their skill cooldowns. What's in them
+// is read on the simulation thread (getIcon, getCooldown...) and drawn from the render
+// snapshot's copy.
 public class Hotbar {
 
+    public static final int SLOTS = 3;
+
     private int screenWidth;
     private int screenHeight;
     private final InventoryUI inventory;
-    private Object player; // Reference to player for cooldowns
     private final int slotSize = 48;
     private final int slotSpacing = 8; // 8 pixels spacing between slots
-    private final int numSlots = 3;
+    private final int numSlots = SLOTS;
     private final int hotbarWidth = numSlots * slotSize + (numSlots - 1) * slotSpacing;
     private final int hotbarHeight = slotSize;
     private int hotbarX;
@@ -26,9 +31,47 @@ public class Hotbar {
         updatePosition();
     }
 
-    // Set player reference for cooldown access
-    public void setPlayer(Object player) {
-        this.player = player;
+    // Icon of the item in slot i, or null if it's empty
+    public Image getIcon(int slot) {
+        InventoryUI.Item item = itemIn(slot);
+        return item != null ? item.getIcon().getImage() : null;
+    }
+
+    // Ticks left on the cooldown of the skill in slot i (0 if it isn't a skill)
+    public int getCooldown(int slot, Player player) {
+        String itemId = itemIdIn(slot);
+        // Check cooldown based on item ID
+        if ("skill_fire".equals(itemId)) {
+            return player.getBCooldown();
+        } else if ("skill_ice".equals(itemId)) {
+            return player.getNCooldown();
+        } else if ("skill_lightning".equals(itemId)) {
+            return player.getMCooldown();
+        }
+        return 0;
+    }
+
+    // Full cooldown, in ticks, of the skill in slot i (0 if it isn't a skill)
+    public int getCooldownMax(int slot, Player player) {
+        String itemId = itemIdIn(slot);
+        if ("skill_fire".equals(itemId)) {
+            return player.getBCooldownMax();
+        } else if ("skill_ice".equals(itemId)) {
+            return player.getNCooldownMax();
+        } else if ("skill_lightning".equals(itemId)) {
+            return player.getMCooldownMax();
+        }
+        return 0;
+    }
+
+    private InventoryUI.Item itemIn(int slot) {
+        List<InventoryUI.Slot> slots = inventory.getInventorySlots();
+        return slot < slots.size() ? slots.get(slot).item : null;
+    }
+
+    private String itemIdIn(int slot) {
+        InventoryUI.Item item = itemIn(slot);
+        return item != null ? item.id : null;
     }
 
     private void updatePosition() {
@@ -36,7 +79,9 @@ public class Hotbar {
         this.hotbarY = screenHeight - hotbarHeight - 50;
     }
 
-    public void draw(Graphics2D g2d) {
+    // Draws icons[i] in slot i with cooldown[i] of its cooldown left (0 = ready, 1 = just
+    // used) and secondsLeft[i] to go; all from the render snapshot
+    public void draw(Graphics2D g2d, Image[] icons, float[] cooldown, float[] secondsLeft) {
         // Draw hotbar background
         g2d.setColor(new Color(0, 0, 0, 150));
         g2d.fillRect(hotbarX, hotbarY, hotbarWidth, hotbarHeight);
@@ -49,68 +94,32 @@ public class Hotbar {
         }
 
         // Draw items in hotbar with spacing
-        List<InventoryUI.Slot> slots = inventory.getInventorySlots();
-        for (int i = 0; i < numSlots && i < slots.size(); i++) {
-            InventoryUI.Slot slot = slots.get(i);
-            if (slot.item != null) {
+        for (int i = 0; i < numSlots; i++) {
+            if (icons[i] != null) {
                 int slotX = hotbarX + i * (slotSize + slotSpacing);
-                g2d.drawImage(slot.item.getIcon().getImage(), slotX, hotbarY, slotSize, slotSize, null);
+                g2d.drawImage(icons[i], slotX, hotbarY, slotSize, slotSize, null);
 
                 // Draw cooldown overlay for skill items
-                drawCooldownOverlay(g2d, i, slot.item.id, slotX, hotbarY, slotSize);
+                drawCooldownOverlay(g2d, cooldown[i], secondsLeft[i], slotX, hotbarY, slotSize);
             }
         }
     }
 
-    private void drawCooldownOverlay(Graphics2D g2d, int slotIndex, String itemId, int x, int y, int size) {
-        if (player == null) return;
-
-        boolean onCooldown = false;
-        float cooldownProgress = 0f;
-        int cooldownMax = 0;
-
-        try {
-            // Check cooldown based on item ID using reflection
-            if ("skill_fire".equals(itemId)) {
-                int cooldown = (Integer) player.getClass().getMethod("getBCooldown").invoke(player);
-                if (cooldown > 0) {
-                    onCooldown = true;
-                    cooldownMax = (Integer) player.getClass().getMethod("getBCooldownMax").invoke(player);
-                    cooldownProgress = (float) cooldown / cooldownMax;
-                }
-            } else if ("skill_ice".equals(itemId)) {
-                int cooldown = (Integer) player.getClass().getMethod("getNCooldown").invoke(player);
-                if (cooldown > 0) {
-                    onCooldown = true;
-                    cooldownMax = (Integer) player.getClass().getMethod("getNCooldownMax").invoke(player);
-                    cooldownProgress = (float) cooldown / cooldownMax;
-                }
-            } else if ("skill_lightning".equals(itemId)) {
-                int cooldown = (Integer) player.getClass().getMethod("getMCooldown").invoke(player);
-                if (cooldown > 0) {
-                    onCooldown = true;
-                    cooldownMax = (Integer) player.getClass().getMethod("getMCooldownMax").invoke(player);
-                    cooldownProgress = (float) cooldown / cooldownMax;
-                }
-            }
-
-            // Draw cooldown overlay
-            if (onCooldown) {
-                g2d.setColor(new Color(0, 0, 0, 150));
-                g2d.fillRect(x, y, size, (int) (size * cooldownProgress));
-
-                // Draw cooldown text
-                g2d.setColor(Color.WHITE);
-                g2d.setFont(new Font("Arial", Font.BOLD, 10));
-                String timeLeft = String.format("%.1f", cooldownProgress * (cooldownMax / 60.0f));
-                java.awt.FontMetrics fm = g2d.getFontMetrics();
-                int textWidth = fm.stringWidth(timeLeft);
-                int textX = x + (size - textWidth) / 2;
-                int textY = y + size / 2 + fm.getAscent() / 2;
-                g2d.drawString(timeLeft, textX, textY);
-            }
-        } catch (Exception e) {
-            // Silently fail if reflection fails
+    private void drawCooldownOverlay(Graphics2D g2d, float cooldownProgress, float secondsLeft, int x, int y, int size) {
+        // Draw cooldown overlay
+        if (cooldownProgress > 0) {
+            g2d.setColor(new Color(0, 0, 0, 150));
+            g2d.fillRect(x, y, size, (int) (size * cooldownProgress));
+
+            // Draw cooldown text
+            g2d.setColor(Color.WHITE);
+            g2d.setFont(new Font("Arial", Font.BOLD, 10));
+            String timeLeft = String.format("%.1f", secondsLeft);
+            java.awt.FontMetrics fm = g2d.getFontMetrics();
+            int textWidth = fm.stringWidth(timeLeft);
+            int textX = x + (size - textWidth) / 2;
+            int textY = y + size / 2 + fm.getAscent() / 2;
+            g2d.drawString(timeLeft, textX, textY);
         }
     }
 
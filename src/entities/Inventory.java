@@ -0,0 +1,6 @@
+package entities;
+
+// Where picked-up and dropped items go: InventoryUI in the game, a plain counter in headless runs
+public interface Inventory {
+    void addItem(String itemId, int amount);
+}
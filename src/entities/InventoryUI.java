@@ -10,7 +10,7 @@ import java.util.*;
 import javax.swing.ImageIcon;
 import java.awt.image.BufferedImage;
 
-public class InventoryUI extends JPanel { // Changed from JFrame
+public class InventoryUI extends JPanel implements Inventory { // Changed from JFrame
 
     enum ItemType { EQUIPMENT, CONSUMABLE, MATERIAL }
 
@@ -494,6 +494,7 @@ public class InventoryUI extends JPanel { // Changed from JFrame
     }
 
     // Public method to add items to inventory (for powerups, etc.)
+    @Override
     public void addItem(String itemId, int amount) {
         Item item = cloneItem(itemId);
         if (item != null) {
@@ -4,11 +4,13 @@ import java.awt.*;
 import java.awt.image.BufferedImage;
 import javax.imageio.ImageIO;
 import java.io.IOException;
+import world.Boxes;
 
 public class NPC {
 
     // Use doubles for precise position tracking
     private double x, y;
+    private double prevX, prevY; // Position at the start of the current tick
     public int width, height;
     private BufferedImage sprite;
     private BufferedImage[] downFrames;
@@ -16,16 +18,20 @@ public class NPC {
     private BufferedImage[] leftFrames;
     private BufferedImage[] rightFrames;
     private int currentFrame = 0;
-    private int frameDelay = 20;
+    private static final double FRAME_SECONDS = 20 / 60.0;
+    private int frameDelay; // FRAME_SECONDS in ticks, as the other timings; see setTickRate
     private int frameTimer = 0;
     private String direction = "down"; // default direction
 
     // Movement
-    private double speed = 1.0; // Increased speed for more visible movement
+    private double speed = 1.0; // Increased speed for more visible movement (px per tick at 60)
+    private double step; // speed at the tick rate
     private int directionChangeTimer = 0;
-    private int directionChangeInterval = 180; // Change direction every 3 seconds at 60 FPS
+    private static final double DIRECTION_CHANGE_SECONDS = 3; // Change direction every 3 seconds
+    private int directionChangeInterval;
     private int collisionCooldown = 0; // Prevent rapid direction changes on collision
-    private int collisionCooldownMax = 60; // 1 second cooldown after collision
+    private static final double COLLISION_COOLDOWN_SECONDS = 10 / 60.0; // Much shorter cooldown (0.17 seconds)
+    private int collisionCooldownTicks;
     private tile.TileManager tileM;
     private String[] loopDirections = {"right", "down", "left", "up"};
     private int loopIndex = 0;
@@ -34,9 +40,11 @@ public class NPC {
     // Mission indicator animation
     private BufferedImage[] missionFrames;
     private int missionFrameIndex = 0;
-    private int missionFrameDelay = 15; // Animation speed
+    private static final double MISSION_FRAME_SECONDS = 15 / 60.0; // Animation speed
+    private int missionFrameDelay;
     private int missionFrameTimer = 0;
-    private Object player; // Reference to player for conversation tracking
+    private Player player; // Reference to player for conversation tracking
+    private int handle = world.EntityRegistry.NONE; // in the world's registry, see setHandle
 
     private void loadSprites() {
         try {
@@ -80,32 +88,46 @@ public class NPC {
     public NPC(int x, int y) {
         this.x = (double) x;
         this.y = (double) y;
+        this.prevX = this.x;
+        this.prevY = this.y;
         this.width = 96; // Set to 256x256 size
         this.height = 96; // Set to 256x256 size
+        setTickRate(Ticks.TUNED_RATE);
         loadSprites();
     }
 
+    // Ticks per second update() runs at
+    public void setTickRate(int tickRate) {
+        frameDelay = Ticks.of(FRAME_SECONDS, tickRate);
+        directionChangeInterval = Ticks.of(DIRECTION_CHANGE_SECONDS, tickRate);
+        collisionCooldownTicks = Ticks.of(COLLISION_COOLDOWN_SECONDS, tickRate);
+        missionFrameDelay = Ticks.of(MISSION_FRAME_SECONDS, tickRate);
+        step = speed * Ticks.stepScale(tickRate);
+    }
+
     public void setTileManager(tile.TileManager tileM) {
         this.tileM = tileM;
     }
 
+    // Handle the world's EntityRegistry gave this NPC
+    public void setHandle(int handle) {
+        this.handle = handle;
+    }
+
+    public int getHandle() {
+        return handle;
+    }
+
     // Set player reference for conversation tracking
-    public void setPlayer(Object player) {
+    public void setPlayer(Player player) {
         this.player = player;
     }
 
-    // Check if mission indicator should be shown
+    // Check if mission indicator should be shown. Player has no per-NPC conversation tracking
+    // (this used to ask for hasCompletedAllConversationsWith by reflection, which always failed
+    // and fell back to showing it), so the indicator shows whenever there is a player.
     private boolean shouldShowMissionIndicator() {
-        if (player == null) return false;
-
-        try {
-            // Use reflection to check if conversations are completed
-            return !(Boolean) player.getClass().getMethod("hasCompletedAllConversationsWith", String.class)
-                    .invoke(player, name);
-        } catch (Exception e) {
-            // If reflection fails, default to showing indicator
-            return true;
-        }
+        return player != null;
     }
 
     public void update() {
@@ -129,14 +151,13 @@ public class NPC {
         double proposedX = x;
         double proposedY = y;
         switch (direction) {
-            case "up": proposedY -= speed; break;
-            case "down": proposedY += speed; break;
-            case "left": proposedX -= speed; break;
-            case "right": proposedX += speed; break;
+            case "up": proposedY -= step; break;
+            case "down": proposedY += step; break;
+            case "left": proposedX -= step; break;
+            case "right": proposedX += step; break;
         }
 
         // Check collision with player before moving
-        Rectangle proposedBounds = new Rectangle((int) proposedX, (int) proposedY, width, height);
         boolean canMove = true;
 
         // Check tile collision
@@ -150,30 +171,24 @@ public class NPC {
                 directionChangeTimer = 0; // Reset timer
                 direction = loopDirections[loopIndex]; // Change to next direction immediately
                 loopIndex = (loopIndex + 1) % loopDirections.length;
-                collisionCooldown = 10; // Much shorter cooldown (0.17 seconds at 60 FPS)
+                collisionCooldown = collisionCooldownTicks;
             }
         }
 
         // Check player collision (if player reference exists)
         if (player != null && canMove) {
-            try {
-                // Get player position using reflection
-                int playerX = (Integer) player.getClass().getMethod("getX").invoke(player);
-                int playerY = (Integer) player.getClass().getMethod("getY").invoke(player);
-
-                // Create player collision bounds (48x48 centered on player)
-                Rectangle playerBounds = new Rectangle(playerX - 24, playerY - 24, 48, 48);
-
-                if (proposedBounds.intersects(playerBounds)) {
-                    canMove = false;
-                    // Immediately change direction when player collision detected
-                    directionChangeTimer = 0; // Reset timer
-                    direction = loopDirections[loopIndex]; // Change to next direction immediately
-                    loopIndex = (loopIndex + 1) % loopDirections.length;
-                    collisionCooldown = 10; // Much shorter cooldown (0.17 seconds at 60 FPS)
-                }
-            } catch (Exception e) {
-                // If reflection fails, allow movement
+            // Player collision bounds (48x48 centered on player) against the proposed bounds
+            int playerX = player.getX() - 24;
+            int playerY = player.getY() - 24;
+            int boundsX = (int) proposedX, boundsY = (int) proposedY;
+
+            if (Boxes.intersect(boundsX, boundsY, width, height, playerX, playerY, 48, 48)) {
+                canMove = false;
+                // Immediately change direction when player collision detected
+                directionChangeTimer = 0; // Reset timer
+                direction = loopDirections[loopIndex]; // Change to next direction immediately
+                loopIndex = (loopIndex + 1) % loopDirections.length;
+                collisionCooldown = collisionCooldownTicks;
             }
         }
 
@@ -220,14 +235,32 @@ public class NPC {
     }
 
     public void draw(Graphics g, int screenX, int screenY) {
+        drawSprite(g, sprite, getIndicatorImage(), name, screenX, screenY, width, height);
+    }
+
+    // Current mission indicator frame, or null when no indicator should be shown
+    public Image getIndicatorImage() {
+        if (shouldShowMissionIndicator() && missionFrames != null && missionFrameIndex < missionFrames.length) {
+            return missionFrames[missionFrameIndex];
+        }
+        return null;
+    }
+
+    public Image getSprite() {
+        return sprite;
+    }
+
+    // Shared by draw() and the snapshot renderer, which only has the primitive state
+    public static void drawSprite(Graphics g, Image sprite, Image indicator, String name,
+                                  int screenX, int screenY, int width, int height) {
         // Draw the sprite
         g.drawImage(sprite, screenX, screenY, width, height, null);
 
         // Draw mission indicator above the NPC if available
-        if (shouldShowMissionIndicator() && missionFrames != null && missionFrameIndex < missionFrames.length) {
+        if (indicator != null) {
             int indicatorX = screenX + (width - 32) / 2; // Center the 32x32 indicator
             int indicatorY = screenY - 60; // Position above the NPC
-            g.drawImage(missionFrames[missionFrameIndex], indicatorX, indicatorY, 32, 32, null);
+            g.drawImage(indicator, indicatorX, indicatorY, 32, 32, null);
         }
 
         // Draw name above the NPC
@@ -244,6 +277,11 @@ public class NPC {
         return new Rectangle((int) x, (int) y, width, height);
     }
 
+    // getBounds().intersects(...) without the Rectangle
+    public boolean intersects(int otherX, int otherY, int otherWidth, int otherHeight) {
+        return Boxes.intersect((int) x, (int) y, width, height, otherX, otherY, otherWidth, otherHeight);
+    }
+
     public int getX() {
         return (int) x;
     }
@@ -252,6 +290,20 @@ public class NPC {
         return (int) y;
     }
 
+    // Called at the start of every tick so the renderer can interpolate between ticks
+    public void storePreviousPosition() {
+        prevX = x;
+        prevY = y;
+    }
+
+    public double getPrevX() {
+        return prevX;
+    }
+
+    public double getPrevY() {
+        return prevY;
+    }
+
     public String getName() {
         return name;
     }
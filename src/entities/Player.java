@@ -6,24 +6,26 @@ import javax.swing.ImageIcon;
 import input.KeyHandler;
 
 import java.util.ArrayList;
-import java.util.Iterator;
 import java.util.List;
+import java.util.Random;
 import java.awt.image.BufferedImage;
 import javax.imageio.ImageIO;
 import java.io.IOException;
 import main.Main; // Import Main class for sound effects
 
 public class Player {
+    // Cooldowns count ticks down; their lengths are in seconds (see Ticks)
     private int qCooldown = 0;
-    private final int Q_COOLDOWN_MAX = 30; // 30 frames = 0.5 sec at 60FPS
+    private final double Q_COOLDOWN_SECONDS = 0.5;
     private int wCooldown = 0;
-    private final int W_COOLDOWN_MAX = 60; // 1 sec
+    private final double W_COOLDOWN_SECONDS = 1;
     private int bCooldown = 0;
-    private final int B_COOLDOWN_MAX = 180; // 3 sec
+    private final double B_COOLDOWN_SECONDS = 3;
     private int nCooldown = 0;
-    private final int N_COOLDOWN_MAX = 420; // 7 sec
+    private final double N_COOLDOWN_SECONDS = 7;
     private int mCooldown = 0;
-    private final int M_COOLDOWN_MAX = 720; // 12 sec
+    private final double M_COOLDOWN_SECONDS = 12;
+    private int tickRate = Ticks.TUNED_RATE; // of the updates, from their deltaTime
 
     //HP of the character
     private int maxHp = 100;
@@ -35,7 +37,7 @@ public class Player {
     //Mana system
     private int maxMana = 100;
     private int mana = 100;
-    private float manaRegenRate = 0.1f; // Mana per frame (57 mana per second at 60 FPS)
+    private float manaRegenRate = 6f; // Mana per second (0.1 per tick at 60)
     private float manaFraction = 0.0f; // Accumulate fractional mana
 
     // Player stats
@@ -50,12 +52,16 @@ public class Player {
 
     // Position stored as doubles to support diagonal normalization cleanly
     public double px, py; // Made public for direct access in GameLoop for camera
+    public double prevPx, prevPy; // Position at the start of the current tick, for render interpolation
     private double speed;
     private KeyHandler keyH;
-    private Object tileManager; // Reference to TileManager for collision
+    private tile.TileManager tileManager; // Reference to TileManager for collision
     private java.util.List<NPC> npcs; // Reference to NPCs for collision
-    private Object objectManager; // Reference to ObjectManager for collision
-    private Object inventory; // Reference to InventoryUI
+    private world.SpatialHash<NPC> npcGrid; // The NPCs bucketed by position, when the world keeps one
+    private final List<NPC> nearbyNPCs = new ArrayList<>(); // Reused query result
+    private world.ObjectManager objectManager; // Reference to ObjectManager (its colliders are baked into the tile grid)
+    private Inventory inventory; // InventoryUI, or null to auto-equip picked-up swords
+    private Random random = new Random(); // Replaced by the world's seeded random (setRandom)
 
     // State constants
     private static final int IDLE = 0;
@@ -97,28 +103,29 @@ public class Player {
     private int currentDirection = DOWN;
     
     // Player dimensions for collision
-    public final int playerWidth = 256;
-    public final int playerHeight = 256;
+    private static final int SPRITE_SIZE = 256;
+    public final int playerWidth = SPRITE_SIZE;
+    public final int playerHeight = SPRITE_SIZE;
 
     // Smaller collision box for better movement
     private final int collisionWidth = 48;
     private final int collisionHeight = 48;
 
     // Slash attacks for SkillQ
-    private final ArrayList<SlashAttack> slashes = new ArrayList<>();
+    private final AttackPool<SlashAttack> slashes = new AttackPool<>(SlashAttack::new);
     // SkillW attacks
-    private final ArrayList<SkillWAttack> skillWAttacks = new ArrayList<>();
+    private final AttackPool<SkillWAttack> skillWAttacks = new AttackPool<>(SkillWAttack::new);
 
     // Freeze skill area
     private Rectangle freezeArea = null;
     // Lightning storm skill area
     private Rectangle lightningArea = null;
 
-    public ArrayList<SlashAttack> getSlashes() {
+    public AttackPool<SlashAttack> getSlashes() {
         return slashes;
     }
 
-    public ArrayList<SkillWAttack> getSkillWAttacks() {
+    public AttackPool<SkillWAttack> getSkillWAttacks() {
         return skillWAttacks;
     }
 
@@ -160,8 +167,6 @@ public class Player {
             frameIndex = 0; // Start death animation from first frame
             accumulatedAnimationTime = 0f; // Reset animation timer
             System.out.println("Player defeated!");
-        } else {
-            System.out.println("Player HP: " + hp);
         }
     }
 
@@ -171,6 +176,8 @@ public class Player {
         this.keyH = keyH;
         this.px = startX;
         this.py = startY;
+        this.prevPx = startX;
+        this.prevPy = startY;
         this.speed = 4.0;
         this.hp = maxHp; // Start with full HP
         this.alive = true;
@@ -183,6 +190,8 @@ public class Player {
     public void resetPlayerState() {
         this.px = initialX;
         this.py = initialY;
+        this.prevPx = initialX; // Teleport: don't interpolate across the reset
+        this.prevPy = initialY;
         this.hp = maxHp;
         this.mana = maxMana;
         this.alive = true;
@@ -369,6 +378,7 @@ public class Player {
     }
 
     public void update(float deltaTime) { // Removed map parameter, now uses stored map
+        tickRate = Ticks.rateOf(deltaTime);
         if (!alive && deathAnimationFinished) {
             return; // Stop updating if dead and animation finished
         }
@@ -413,7 +423,7 @@ public class Player {
             float currentRegenRate = (mana <= 0) ? manaRegenRate * 2.0f : manaRegenRate;
 
             // Accumulate fractional mana
-            manaFraction += currentRegenRate;
+            manaFraction += currentRegenRate / tickRate;
 
             // Add whole mana points when fraction reaches 1.0
             int manaToAdd = (int) manaFraction;
@@ -437,14 +447,14 @@ public class Player {
         // --- Q Attack: cooldown-limited, one press = one attack ---
         if (keyH.skillSPACE && qCooldown == 0) { // Changed to skillSPACE
             useSkillQ();
-            qCooldown = Q_COOLDOWN_MAX;
+            qCooldown = Ticks.of(Q_COOLDOWN_SECONDS, tickRate);
             keyH.skillSPACE = false; // Reset the skill key after use
         }
 
         // --- W Attack: cooldown-limited, one press = one attack ---
         if (keyH.skillW && wCooldown == 0) {
             useSkillW();
-            wCooldown = W_COOLDOWN_MAX;
+            wCooldown = Ticks.of(W_COOLDOWN_SECONDS, tickRate);
             keyH.skillW = false; // Reset the skill key after use
         }
 
@@ -452,7 +462,7 @@ public class Player {
         if (keyH.skillB && bCooldown == 0 && mana >= 30) {
             useSkillB();
             mana -= 30;
-            bCooldown = B_COOLDOWN_MAX;
+            bCooldown = Ticks.of(B_COOLDOWN_SECONDS, tickRate);
             keyH.skillB = false; // Reset to prevent continuous skill use
         }
 
@@ -460,7 +470,7 @@ public class Player {
         if (keyH.skillN && nCooldown == 0 && mana >= 45) {
             useSkillN();
             mana -= 45;
-            nCooldown = N_COOLDOWN_MAX;
+            nCooldown = Ticks.of(N_COOLDOWN_SECONDS, tickRate);
             keyH.skillN = false; // Reset to prevent continuous skill use
         }
 
@@ -468,7 +478,7 @@ public class Player {
         if (keyH.skillM && mCooldown == 0 && mana >= 80) {
             useSkillM();
             mana -= 80;
-            mCooldown = M_COOLDOWN_MAX;
+            mCooldown = Ticks.of(M_COOLDOWN_SECONDS, tickRate);
             keyH.skillM = false; // Reset to prevent continuous skill use
         }
 
@@ -497,115 +507,82 @@ public class Player {
         dx *= speed * deltaTime * 60.0f; // Convert back to pixels per frame equivalent
         dy *= speed * deltaTime * 60.0f;
 
-        // Apply movement with tile and NPC collision detection using smaller collision box
-        Rectangle playerBounds = new Rectangle(
-            (int) Math.round(px - collisionWidth / 2.0),
-            (int) Math.round(py - collisionHeight / 2.0),
-            collisionWidth, collisionHeight);
+        // Apply movement with tile and NPC collision detection using smaller collision box,
+        // as plain ints (boxX, boxY is its top left corner): this runs every tick
+        tile.TileManager tileManager = this.tileManager;
 
         // Try horizontal movement
         double proposedX = px + dx;
-        Rectangle proposedXBounds = new Rectangle(
-            (int) Math.round(proposedX - collisionWidth / 2.0),
-            (int) Math.round(py - collisionHeight / 2.0),
-            collisionWidth, collisionHeight);
+        int boxX = (int) Math.round(proposedX - collisionWidth / 2.0);
+        int boxY = (int) Math.round(py - collisionHeight / 2.0);
 
         boolean canMoveX = true;
 
         // Check map boundaries first (strict boundary collision)
         if (tileManager != null) {
-            int mapWidth = ((tile.TileManager) tileManager).getMapWidth() * ((tile.TileManager) tileManager).getTileSize();
-            int leftBound = (int) Math.round(proposedX - collisionWidth / 2.0);
+            int mapWidth = tileManager.getMapWidth() * tileManager.getTileSize();
             int rightBound = (int) Math.round(proposedX + collisionWidth / 2.0);
-            if (leftBound < 0 || rightBound >= mapWidth) {
+            if (boxX < 0 || rightBound >= mapWidth) {
                 canMoveX = false;
             }
         }
 
-        // Check tile collision (solid tiles block movement)
+        // Check tile collision (solid tiles and the objects baked into them block movement)
         if (canMoveX && tileManager != null) {
-            if (!((tile.TileManager) tileManager).isWalkable(
-                (int) Math.round(proposedX - collisionWidth / 2.0),
-                (int) Math.round(py - collisionHeight / 2.0),
-                collisionWidth, collisionHeight)) {
+            if (!tileManager.isWalkable(boxX, boxY, collisionWidth, collisionHeight)) {
                 canMoveX = false;
             }
         }
 
         // Check NPC collision for horizontal movement
         if (canMoveX && npcs != null) {
-            for (NPC npc : npcs) {
-                if (proposedXBounds.intersects(npc.getBounds())) {
+            List<NPC> near = npcsNear(boxX, boxY, collisionWidth, collisionHeight);
+            for (int i = 0; i < near.size(); i++) {
+                if (near.get(i).intersects(boxX, boxY, collisionWidth, collisionHeight)) {
                     canMoveX = false;
                     break;
                 }
             }
         }
 
-        // Check object collision for horizontal movement
-        if (canMoveX && objectManager != null) {
-            if (((world.ObjectManager) objectManager).isObjectCollision(
-                (int) Math.round(proposedX - collisionWidth / 2.0),
-                (int) Math.round(py - collisionHeight / 2.0),
-                collisionWidth, collisionHeight)) {
-                canMoveX = false;
-            }
-        }
-
         if (canMoveX) {
             px = proposedX;
-            playerBounds = proposedXBounds;
         }
 
         // Try vertical movement
         double proposedY = py + dy;
-        Rectangle proposedYBounds = new Rectangle(
-            (int) Math.round(px - collisionWidth / 2.0),
-            (int) Math.round(proposedY - collisionHeight / 2.0),
-            collisionWidth, collisionHeight);
+        boxX = (int) Math.round(px - collisionWidth / 2.0);
+        boxY = (int) Math.round(proposedY - collisionHeight / 2.0);
 
         boolean canMoveY = true;
 
         // Check map boundaries first (strict boundary collision)
         if (tileManager != null) {
-            int mapHeight = ((tile.TileManager) tileManager).getMapHeight() * ((tile.TileManager) tileManager).getTileSize();
-            int topBound = (int) Math.round(proposedY - collisionHeight / 2.0);
+            int mapHeight = tileManager.getMapHeight() * tileManager.getTileSize();
             int bottomBound = (int) Math.round(proposedY + collisionHeight / 2.0);
-            if (topBound < 0 || bottomBound >= mapHeight) {
+            if (boxY < 0 || bottomBound >= mapHeight) {
                 canMoveY = false;
             }
         }
 
-        // Check tile collision (solid tiles block movement)
+        // Check tile collision (solid tiles and the objects baked into them block movement)
         if (canMoveY && tileManager != null) {
-            if (!((tile.TileManager) tileManager).isWalkable(
-                (int) Math.round(px - collisionWidth / 2.0),
-                (int) Math.round(proposedY - collisionHeight / 2.0),
-                collisionWidth, collisionHeight)) {
+            if (!tileManager.isWalkable(boxX, boxY, collisionWidth, collisionHeight)) {
                 canMoveY = false;
             }
         }
 
         // Check NPC collision for vertical movement
         if (canMoveY && npcs != null) {
-            for (NPC npc : npcs) {
-                if (proposedYBounds.intersects(npc.getBounds())) {
+            List<NPC> near = npcsNear(boxX, boxY, collisionWidth, collisionHeight);
+            for (int i = 0; i < near.size(); i++) {
+                if (near.get(i).intersects(boxX, boxY, collisionWidth, collisionHeight)) {
                     canMoveY = false;
                     break;
                 }
             }
         }
 
-        // Check object collision for vertical movement
-        if (canMoveY && objectManager != null) {
-            if (((world.ObjectManager) objectManager).isObjectCollision(
-                (int) Math.round(px - collisionWidth / 2.0),
-                (int) Math.round(proposedY - collisionHeight / 2.0),
-                collisionWidth, collisionHeight)) {
-                canMoveY = false;
-            }
-        }
-
         if (canMoveY) {
             py = proposedY;
         }
@@ -624,18 +601,8 @@ public class Player {
             }
         }
         // Update active attacks
-        Iterator<SlashAttack> it = slashes.iterator();
-        while (it.hasNext()) {
-            SlashAttack s = it.next();
-            s.update(deltaTime);
-            if (!s.active) it.remove();
-        }
-        Iterator<SkillWAttack> skillWIt = skillWAttacks.iterator();
-        while (skillWIt.hasNext()) {
-            SkillWAttack s = skillWIt.next();
-            s.update(deltaTime);
-            if (!s.active) skillWIt.remove();
-        }
+        slashes.update(deltaTime);
+        skillWAttacks.update(deltaTime);
         
         // Determine current facing based on last input vector, but only if not attacking
         if (!isAttacking) { 
@@ -734,17 +701,21 @@ public class Player {
             return; // Don't draw anything if dead and animation finished
         }
 
+        drawSprite(g, getRenderImage(), isDying(), screenX, screenY);
+    }
+
+    // Shared by draw() and the snapshot renderer, which only has the primitive state
+    public static void drawSprite(Graphics g, Image currentImg, boolean dying, int screenX, int screenY) {
         Graphics2D g2 = (Graphics2D) g;
-        int drawX = screenX - playerWidth / 2;
-        int drawY = screenY - playerHeight / 2;
-        int width = playerWidth;
-        int height = playerHeight;
+        int width = SPRITE_SIZE;
+        int height = SPRITE_SIZE;
+        int drawX = screenX - width / 2;
+        int drawY = screenY - height / 2;
 
         // Draw death animation if dying
-        if (state == DYING && !deathAnimationFinished) {
-            Image currentDieFrame = dieFrames[deathDirection][frameIndex];
-            if (currentDieFrame != null) {
-                g2.drawImage(currentDieFrame, drawX, drawY, width, height, null);
+        if (dying) {
+            if (currentImg != null) {
+                g2.drawImage(currentImg, drawX, drawY, width, height, null);
             } else {
                 g2.setColor(Color.DARK_GRAY); // Fallback for missing death frame
                 g2.fillRect(drawX, drawY, width, height);
@@ -789,7 +760,7 @@ public class Player {
             case DOWN_LEFT: sx = drawX - offset; sy = drawY + offset; break;
             case DOWN_RIGHT: sx = drawX + offset; sy = drawY + offset; break;
         }
-        slashes.add(new SlashAttack(sx, sy, currentDirection, getTotalAttack()));
+        slashes.spawn(sx, sy, currentDirection, getTotalAttack(), random);
         Main.playSoundEffect("src/assets/audio/sword_slash.wav"); // Play sword sound effect
         state = ATTACKING;
     }
@@ -810,11 +781,17 @@ public class Player {
             case DOWN_LEFT: sx = drawX - offset; sy = drawY + offset; break;
             case DOWN_RIGHT: sx = drawX + offset; sy = drawY + offset; break;
         }
-        skillWAttacks.add(new SkillWAttack(sx, sy, currentDirection, getTotalAttack()));
+        skillWAttacks.spawn(sx, sy, currentDirection, getTotalAttack(), random);
         Main.playSoundEffect("src/assets/audio/skill_2.wav"); // Play sound effect for Skill W
         state = ATTACKING;
     }
 
+    // Called at the start of every tick, before anything can move the player
+    public void storePreviousPosition() {
+        prevPx = px;
+        prevPy = py;
+    }
+
     // Getters
     public int getX() {
         return (int) Math.round(this.px);
@@ -832,6 +809,24 @@ public class Player {
         return deathAnimationFinished;
     }
 
+    // Still visible: alive, or the death animation hasn't finished
+    public boolean isDrawn() {
+        return alive || !deathAnimationFinished;
+    }
+
+    // Death animation currently playing
+    public boolean isDying() {
+        return state == DYING && !deathAnimationFinished;
+    }
+
+    // The frame draw() would show right now
+    public Image getRenderImage() {
+        if (isDying()) {
+            return dieFrames[deathDirection][frameIndex];
+        }
+        return currentImg;
+    }
+
     public Rectangle getFreezeArea() {
         return freezeArea;
     }
@@ -850,11 +845,11 @@ public class Player {
 
     // Cooldown getters
     public int getBCooldown() { return bCooldown; }
-    public int getBCooldownMax() { return B_COOLDOWN_MAX; }
+    public int getBCooldownMax() { return Ticks.of(B_COOLDOWN_SECONDS, tickRate); }
     public int getNCooldown() { return nCooldown; }
-    public int getNCooldownMax() { return N_COOLDOWN_MAX; }
+    public int getNCooldownMax() { return Ticks.of(N_COOLDOWN_SECONDS, tickRate); }
     public int getMCooldown() { return mCooldown; }
-    public int getMCooldownMax() { return M_COOLDOWN_MAX; }
+    public int getMCooldownMax() { return Ticks.of(M_COOLDOWN_SECONDS, tickRate); }
 
     // HP getters
     public int getHp() { return hp; }
@@ -886,7 +881,7 @@ public class Player {
             case DOWN_LEFT: sx = drawX - offset; sy = drawY + offset; break;
             case DOWN_RIGHT: sx = drawX + offset; sy = drawY + offset; break;
         }
-        skillWAttacks.add(new SkillWAttack(sx, sy, currentDirection, getTotalAttack()));
+        skillWAttacks.spawn(sx, sy, currentDirection, getTotalAttack(), random);
         Main.playSoundEffect("src/assets/audio/skill_1.wav"); // Play sound effect for Skill B
         state = FIRESPLASH;
         frameIndex = 0;
@@ -916,7 +911,7 @@ public class Player {
     }
 
     // Method to set TileManager reference for collision detection
-    public void setTileManager(Object tileManager) {
+    public void setTileManager(tile.TileManager tileManager) {
         this.tileManager = tileManager;
     }
 
@@ -925,18 +920,38 @@ public class Player {
         this.npcs = npcs;
     }
 
+    // Spatial hash over the same NPCs, rebuilt by the world each tick; collision and interaction
+    // checks then only look at the NPCs close by
+    public void setNPCGrid(world.SpatialHash<NPC> npcGrid) {
+        this.npcGrid = npcGrid;
+    }
+
+    // NPCs that may overlap the area, in list order
+    private List<NPC> npcsNear(int x, int y, int width, int height) {
+        if (npcGrid == null) {
+            return npcs;
+        }
+        nearbyNPCs.clear();
+        return npcGrid.queryRect(x, y, width, height, nearbyNPCs);
+    }
+
     // Method to set ObjectManager reference for collision detection
-    public void setObjectManager(Object objectManager) {
+    public void setObjectManager(world.ObjectManager objectManager) {
         this.objectManager = objectManager;
     }
 
+    // Use the world's random source so runs can be reproduced from a seed
+    public void setRandom(Random random) {
+        this.random = random;
+    }
+
     // Method to set DialogueUI reference
     public void setDialogueUI(Object dialogueUI) {
         this.dialogueUI = dialogueUI;
     }
 
     // Method to set InventoryUI reference
-    public void setInventory(Object inventory) {
+    public void setInventory(Inventory inventory) {
         this.inventory = inventory;
     }
 
@@ -945,14 +960,21 @@ public class Player {
     // Dialogue system
     public String dialogueText = null;
     private int dialogueTimer = 0;
-    private final int DIALOGUE_DURATION = 300; // 5 seconds at 60 FPS
+    private final double DIALOGUE_SECONDS = 5;
     private int conversationCount = 0; // Track how many times player has talked to NPCs
 
     private void checkNPCInteraction() {
         if (npcs != null) {
-            for (NPC npc : npcs) {
-                double distance = Math.sqrt(Math.pow(px - npc.getX(), 2) + Math.pow(py - npc.getY(), 2));
-                if (distance < 80) { // Within 80 pixels (increased range for easier interaction)
+            List<NPC> candidates = npcs;
+            if (npcGrid != null) {
+                nearbyNPCs.clear();
+                candidates = npcGrid.queryCircle((int) px, (int) py, 80, nearbyNPCs);
+            }
+            for (int i = 0; i < candidates.size(); i++) {
+                NPC npc = candidates.get(i);
+                double dx = px - npc.getX();
+                double dy = py - npc.getY();
+                if (dx * dx + dy * dy < 80 * 80) { // Within 80 pixels (increased range for easier interaction)
                     startDialogue(npc);
                     break;
                 }
@@ -963,16 +985,11 @@ public class Player {
     // Method to pick up dropped sword icon (add to inventory)
     public void pickUpSword() {
         if (inventory != null) {
-            try {
-                inventory.getClass().getMethod("addItem", String.class, int.class).invoke(inventory, "sword", 1);
-                System.out.println("Picked up sword and added to inventory");
-            } catch (Exception e) {
-                System.err.println("Failed to add sword to inventory");
-            }
+            inventory.addItem("sword", 1);
+            System.out.println("Picked up sword and added to inventory");
         } else {
             // Fallback: auto-equip if no inventory
-            java.util.Random rand = new java.util.Random();
-            int boost = 10 + rand.nextInt(21); // 10-30 attack boost
+            int boost = 10 + random.nextInt(21); // 10-30 attack boost
             setEquippedStats(equippedAttack + boost, equippedDefense);
             System.out.println("Auto-picked up sword, attack increased by " + boost);
         }
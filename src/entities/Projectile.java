@@ -4,44 +4,41 @@ import java.awt.*;
 import java.awt.image.BufferedImage;
 import javax.imageio.ImageIO;
 import java.io.IOException;
+import java.io.InputStream;
 
-public class Projectile {
-    public int x, y;
-    public int speed = 8;
-    public int directionX, directionY;
-    public boolean active = true;
-    private BufferedImage sprite;
+// What every fireball shares: the sprite, its size and the hit box. The projectiles flying
+// around the world live in ProjectileStore.
+public final class Projectile {
+    public static final int SIZE = 32;     // drawn size, px
+    public static final int HIT_SIZE = 16; // square around the centre that hits things
 
-    public Projectile(int startX, int startY, int dirX, int dirY) {
-        this.x = startX;
-        this.y = startY;
-        this.directionX = dirX;
-        this.directionY = dirY;
+    // One fireball image for every projectile
+    private static final BufferedImage SPRITE = loadSprite();
 
-        try {
-            sprite = ImageIO.read(getClass().getResourceAsStream("/sprites/fireball.png"));
+    private Projectile() {
+    }
+
+    private static BufferedImage loadSprite() {
+        try (InputStream in = Projectile.class.getResourceAsStream("/sprites/fireball.png")) {
+            if (in == null) {
+                System.out.println("Warning: Fireball sprite not found!");
+                return null; // drawn as a plain circle
+            }
+            return ImageIO.read(in);
         } catch (IOException e) {
             e.printStackTrace();
             System.out.println("Warning: Fireball sprite not found!");
+            return null;
         }
     }
 
-    public void update() {
-        x += directionX * speed;
-        y += directionY * speed;
-
-        // deactivate if off-screen
-        if (x < 0 || x > 800 || y < 0 || y > 600) {
-            active = false;
-        }
-    }
-
-    public void draw(Graphics g) {
-        if (sprite != null) {
-            g.drawImage(sprite, x, y, 32, 32, null);
+    // One projectile at (screenX, screenY), its top left corner
+    public static void drawSprite(Graphics g, int screenX, int screenY) {
+        if (SPRITE != null) {
+            g.drawImage(SPRITE, screenX, screenY, SIZE, SIZE, null);
         } else {
             g.setColor(Color.ORANGE);
-            g.fillOval(x, y, 10, 10);
+            g.fillOval(screenX + (SIZE - 10) / 2, screenY + (SIZE - 10) / 2, 10, 10);
         }
     }
 }
@@ -0,0 +1,193 @@
+package entities;
+
+import java.util.Arrays;
+import tile.TileManager;
+import world.Boxes;
+import world.SpatialHash;
+
+// Every projectile in flight, as parallel arrays with one slot per projectile, in world space.
+// A projectile is a point (x, y) moving by (velocityX, velocityY) every tick, with a
+// Projectile.HIT_SIZE square around it for hits. It is gone when it runs into anything
+// isWalkable rejects (traced cell by cell with TileManager.raycast, so nothing fast tunnels
+// through a wall), hits what it was fired at, runs out of ticks or has flown its range. Gone
+// projectiles are swap-removed: slots [0, size) are always the ones in flight, and firing reuses
+// the arrays, so a steady stream of projectiles allocates nothing.
+//
+// Projectiles fired by the player hit enemies, found through the world's enemy grid; those
+// fired by enemies hit the player. All of them share the Projectile sprite.
+public final class ProjectileStore {
+
+    public static final byte FROM_PLAYER = 0, FROM_ENEMY = 1;
+
+    private int size = 0;
+    private double[] x, y, prevX, prevY, velocityX, velocityY, range;
+    private int[] damage, ticksLeft;
+    private byte[] owner;
+
+    public ProjectileStore() {
+        this(64);
+    }
+
+    public ProjectileStore(int capacity) {
+        resize(Math.max(1, capacity));
+    }
+
+    // Fires one from (x, y), which should be open ground; it lives for at most lifetimeTicks
+    // ticks and range pixels
+    public void fire(double x, double y, double velocityX, double velocityY, int damage,
+                     int lifetimeTicks, double range, byte owner) {
+        if (size == this.x.length) {
+            resize(size * 2);
+        }
+        int i = size++;
+        this.x[i] = x;
+        this.y[i] = y;
+        this.prevX[i] = x;
+        this.prevY[i] = y;
+        this.velocityX[i] = velocityX;
+        this.velocityY[i] = velocityY;
+        this.damage[i] = damage;
+        this.ticksLeft[i] = lifetimeTicks;
+        this.range[i] = range;
+        this.owner[i] = owner;
+    }
+
+    // Projectiles in flight
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    // Before every tick: where each projectile was, for interpolated drawing
+    public void storePreviousPositions() {
+        System.arraycopy(x, 0, prevX, 0, size);
+        System.arraycopy(y, 0, prevY, 0, size);
+    }
+
+    // One tick of flight. tiles may be null: nothing blocks them then.
+    public void update(TileManager tiles) {
+        int i = 0;
+        while (i < size) {
+            double fromX = x[i], fromY = y[i];
+            double toX = fromX + velocityX[i], toY = fromY + velocityY[i];
+            // The map only needs a look when it crosses into another collision cell
+            if (tiles != null && cellChanged(fromX, fromY, toX, toY)
+                    && tiles.raycast(fromX, fromY, toX, toY) < 1) {
+                free(i); // ran into a wall or a rock
+                continue;
+            }
+            x[i] = toX;
+            y[i] = toY;
+            ticksLeft[i]--;
+            range[i] -= Math.sqrt(velocityX[i] * velocityX[i] + velocityY[i] * velocityY[i]);
+            if (ticksLeft[i] <= 0 || range[i] <= 0) {
+                free(i);
+                continue;
+            }
+            i++;
+        }
+    }
+
+    private static boolean cellChanged(double fromX, double fromY, double toX, double toY) {
+        double cell = TileManager.COLLISION_CELL_SIZE;
+        return Math.floor(fromX / cell) != Math.floor(toX / cell) || Math.floor(fromY / cell) != Math.floor(toY / cell);
+    }
+
+    // Player projectiles against the enemies in enemyGrid, which enemies.addTo() filled (the
+    // first living one under a projectile takes its damage), enemy projectiles against the player
+    public void resolveHits(SpatialHash<Enemy> enemyGrid, EnemyStore enemies, Player player) {
+        int half = Projectile.HIT_SIZE / 2;
+        int playerX = player.getX() - 24, playerY = player.getY() - 24; // 48x48 collision box
+        int i = 0;
+        while (i < size) {
+            int boxX = (int) x[i] - half, boxY = (int) y[i] - half;
+            boolean hit = false;
+            if (owner[i] == FROM_PLAYER) {
+                int found = enemyGrid.queryRect(boxX, boxY, Projectile.HIT_SIZE, Projectile.HIT_SIZE);
+                for (int k = 0; k < found; k++) {
+                    int e = enemyGrid.matchAt(k);
+                    if (enemies.isAlive(e) && !enemies.isDying(e)) {
+                        enemies.takeDamage(e, damage[i]);
+                        hit = true;
+                        break;
+                    }
+                }
+            } else if (player.isAlive() && Boxes.intersect(boxX, boxY, Projectile.HIT_SIZE, Projectile.HIT_SIZE,
+                    playerX, playerY, 48, 48)) {
+                player.takeDamage(damage[i]);
+                hit = true;
+            }
+            if (hit) {
+                free(i);
+            } else {
+                i++;
+            }
+        }
+    }
+
+    public double getX(int i) {
+        return x[i];
+    }
+
+    public double getY(int i) {
+        return y[i];
+    }
+
+    public double getPrevX(int i) {
+        return prevX[i];
+    }
+
+    public double getPrevY(int i) {
+        return prevY[i];
+    }
+
+    public byte getOwner(int i) {
+        return owner[i];
+    }
+
+    // Swap-remove: the last slot moves into i
+    private void free(int i) {
+        int last = --size;
+        if (i != last) {
+            x[i] = x[last];
+            y[i] = y[last];
+            prevX[i] = prevX[last];
+            prevY[i] = prevY[last];
+            velocityX[i] = velocityX[last];
+            velocityY[i] = velocityY[last];
+            range[i] = range[last];
+            damage[i] = damage[last];
+            ticksLeft[i] = ticksLeft[last];
+            owner[i] = owner[last];
+        }
+    }
+
+    private void resize(int capacity) {
+        if (x == null) {
+            x = new double[capacity];
+            y = new double[capacity];
+            prevX = new double[capacity];
+            prevY = new double[capacity];
+            velocityX = new double[capacity];
+            velocityY = new double[capacity];
+            range = new double[capacity];
+            damage = new int[capacity];
+            ticksLeft = new int[capacity];
+            owner = new byte[capacity];
+            return;
+        }
+        x = Arrays.copyOf(x, capacity);
+        y = Arrays.copyOf(y, capacity);
+        prevX = Arrays.copyOf(prevX, capacity);
+        prevY = Arrays.copyOf(prevY, capacity);
+        velocityX = Arrays.copyOf(velocityX, capacity);
+        velocityY = Arrays.copyOf(velocityY, capacity);
+        range = Arrays.copyOf(range, capacity);
+        damage = Arrays.copyOf(damage, capacity);
+        ticksLeft = Arrays.copyOf(ticksLeft, capacity);
+        owner = Arrays.copyOf(owner, capacity);
+    }
+}
@@ -5,10 +5,11 @@ import java.awt.image.BufferedImage;
 import javax.imageio.ImageIO;
 import java.io.InputStream;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Random;
+import world.Boxes;
+import world.EntityRegistry;
 
-public class SkillWAttack {
+public class SkillWAttack extends AttackPool.Attack<SkillWAttack> {
     public int x, y;
     public boolean active = true;
     private int direction;
@@ -16,30 +17,40 @@ public class SkillWAttack {
     private BufferedImage[] frames;
     private int frame = 0;
     private float accumulatedTime = 0f;
-    private final int frameDelay = 6;
+    private static final float SECONDS_PER_FRAME = 6 / 60f; // 6 ticks at 60
     
-    private final float secondsPerFrame;
     private int width = 50;  // Match character size
     private int height = 50; // Match character size
 
-    private List<Enemy> hitEnemies = new ArrayList<>();
+    private final EntityRegistry.HandleSet hitEnemies = new EntityRegistry.HandleSet(); // by enemy handle
 
     public Rectangle getBounds() {
         return new Rectangle((int)x, (int)y, width, height);
     }
+
+    // getBounds().intersects(...) without the Rectangle
+    public boolean intersects(int otherX, int otherY, int otherWidth, int otherHeight) {
+        return Boxes.intersect(x, y, width, height, otherX, otherY, otherWidth, otherHeight);
+    }
     
     private int damage;
     public int getDamage() { return damage; }
 
-    public boolean hasHit(Enemy enemy) {
-        return hitEnemies.contains(enemy);
+    public boolean hasHit(int enemyHandle) {
+        return hitEnemies.contains(enemyHandle);
     }
 
-    public void addHitEnemy(Enemy enemy) {
-        hitEnemies.add(enemy);
+    public void addHitEnemy(int enemyHandle) {
+        hitEnemies.add(enemyHandle);
     }
     
-    public SkillWAttack(int x, int y, int direction, int playerAttack) {
+    public SkillWAttack(int x, int y, int direction, int playerAttack, Random random) {
+        frames = new BufferedImage[4];
+        reset(x, y, direction, playerAttack, random);
+    }
+
+    @Override
+    void reset(int x, int y, int direction, int playerAttack, Random random) {
         this.x = x;
         this.y = y;
         this.direction = direction;
@@ -47,19 +58,21 @@ public class SkillWAttack {
         // Ensure minimum damage is 10
         int minDamage = 10;
         int maxDamage = (int)(playerAttack * 1.5 * 1.2); // 1.5 times playerAttack + 20%
-        this.damage = minDamage + (int)(Math.random() * (maxDamage - minDamage + 1));
-
-        this.secondsPerFrame = (float) frameDelay / 60.0f;
+        this.damage = minDamage + (int)(random.nextDouble() * (maxDamage - minDamage + 1));
 
-        frames = new BufferedImage[4];
+        active = true;
+        frame = 0;
+        accumulatedTime = 0f;
+        hitEnemies.clear();
     }
     
+    @Override
     public void update(float deltaTime) {
         if (!active) return;
         accumulatedTime += deltaTime;
-        if (accumulatedTime >= secondsPerFrame) {
+        while (active && accumulatedTime >= SECONDS_PER_FRAME) { // more than one at low tick rates
             frame++;
-            accumulatedTime -= secondsPerFrame;
+            accumulatedTime -= SECONDS_PER_FRAME;
             if (frame >= frames.length) {
                 active = false;
             }
@@ -67,14 +80,26 @@ public class SkillWAttack {
     }
     
     public void draw(Graphics g, int screenX, int screenY) {
-        if (!active || frame >= frames.length || frames[frame] == null) return;
-        BufferedImage currentFrame = frames[frame];
-        boolean facingLeft = (direction == SlashAttack.LEFT || direction == SlashAttack.UP_LEFT || direction == SlashAttack.DOWN_LEFT);
-        
-        if (facingLeft) {
-            g.drawImage(currentFrame, screenX + width, screenY, -width, height, null);
-        } else {
-            g.drawImage(currentFrame, screenX, screenY, width, height, null);
-        }
+        BufferedImage currentFrame = getCurrentFrame();
+        if (currentFrame == null) return;
+        SlashAttack.drawFrame(g, currentFrame, screenX, screenY, width, height, isFacingLeft());
+    }
+
+    // Frame to show right now, or null if nothing should be drawn
+    public BufferedImage getCurrentFrame() {
+        if (!active || frame >= frames.length) return null;
+        return frames[frame];
+    }
+
+    public boolean isFacingLeft() {
+        return direction == SlashAttack.LEFT || direction == SlashAttack.UP_LEFT || direction == SlashAttack.DOWN_LEFT;
+    }
+
+    public int getWidth() { return width; }
+    public int getHeight() { return height; }
+
+    @Override
+    public boolean isActive() {
+        return active;
     }
 }
@@ -2,11 +2,12 @@ package entities;
 
 import java.awt.*;
 import java.awt.image.BufferedImage;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Random;
+import world.Boxes;
+import world.EntityRegistry;
 import entities.Enemy;
 
-public class SlashAttack {
+public class SlashAttack extends AttackPool.Attack<SlashAttack> {
     public int x, y;
     public boolean active = true;
     private int direction;
@@ -14,13 +15,12 @@ public class SlashAttack {
     private BufferedImage[] frames;
     private int frame = 0;
     private float accumulatedTime = 0f;
-    private final int frameDelay = 4; // Reduced from 8 to 4 for faster animation
+    private static final float SECONDS_PER_FRAME = 4 / 60f; // 4 ticks at 60, reduced from 8 for faster animation
     
-    private final float secondsPerFrame;
     private int width = 50;  // Match character size
     private int height = 50; // Match character size
 
-    private List<Enemy> hitEnemies = new ArrayList<>();
+    private final EntityRegistry.HandleSet hitEnemies = new EntityRegistry.HandleSet(); // by enemy handle
     
     public static final int DOWN = 0;
     public static final int LEFT = 1;
@@ -34,21 +34,32 @@ public class SlashAttack {
     public Rectangle getBounds() {
         return new Rectangle((int)x, (int)y, width, height);
     }
+
+    // getBounds().intersects(...) without the Rectangle
+    public boolean intersects(int otherX, int otherY, int otherWidth, int otherHeight) {
+        return Boxes.intersect(x, y, width, height, otherX, otherY, otherWidth, otherHeight);
+    }
     
     private int damage;
     public int getDamage() {
         return damage;
     }
 
-    public boolean hasHit(Enemy enemy) {
-        return hitEnemies.contains(enemy);
+    public boolean hasHit(int enemyHandle) {
+        return hitEnemies.contains(enemyHandle);
     }
 
-    public void addHitEnemy(Enemy enemy) {
-        hitEnemies.add(enemy);
+    public void addHitEnemy(int enemyHandle) {
+        hitEnemies.add(enemyHandle);
     }
     
-    public SlashAttack(int x, int y, int direction, int playerAttack) {
+    public SlashAttack(int x, int y, int direction, int playerAttack, Random random) {
+        frames = new BufferedImage[4];
+        reset(x, y, direction, playerAttack, random);
+    }
+
+    @Override
+    void reset(int x, int y, int direction, int playerAttack, Random random) {
         this.x = x;
         this.y = y;
         this.direction = direction;
@@ -56,21 +67,21 @@ public class SlashAttack {
         // Ensure minimum damage is 5
         int minDamage = 5;
         int maxDamage = (int)(playerAttack * 1.2); // PlayerAttack + 20%
-        this.damage = minDamage + (int)(Math.random() * (maxDamage - minDamage + 1));
+        this.damage = minDamage + (int)(random.nextDouble() * (maxDamage - minDamage + 1));
 
-        this.secondsPerFrame = (float) frameDelay / 60.0f;
-
-        frames = new BufferedImage[4];
+        active = true;
+        frame = 0;
+        accumulatedTime = 0f;
+        hitEnemies.clear();
     }
-    
 
-    
+    @Override
     public void update(float deltaTime) {
         if (!active) return;
         accumulatedTime += deltaTime;
-        if (accumulatedTime >= secondsPerFrame) {
+        while (active && accumulatedTime >= SECONDS_PER_FRAME) { // more than one at low tick rates
             frame++;
-            accumulatedTime -= secondsPerFrame;
+            accumulatedTime -= SECONDS_PER_FRAME;
             if (frame >= frames.length) {
                 active = false;
             }
@@ -79,13 +90,35 @@ public class SlashAttack {
     
     
     public void draw(Graphics g, int screenX, int screenY) {
-        if (!active || frame >= frames.length || frames[frame] == null) return;
-        BufferedImage currentFrame = frames[frame];
-        boolean facingLeft = (direction == LEFT || direction == UP_LEFT || direction == DOWN_LEFT);
+        BufferedImage currentFrame = getCurrentFrame();
+        if (currentFrame == null) return;
+        drawFrame(g, currentFrame, screenX, screenY, width, height, isFacingLeft());
+    }
+
+    // Frame to show right now, or null if nothing should be drawn
+    public BufferedImage getCurrentFrame() {
+        if (!active || frame >= frames.length) return null;
+        return frames[frame];
+    }
+
+    public boolean isFacingLeft() {
+        return direction == LEFT || direction == UP_LEFT || direction == DOWN_LEFT;
+    }
+
+    public int getWidth() { return width; }
+    public int getHeight() { return height; }
+
+    @Override
+    public boolean isActive() {
+        return active;
+    }
+
+    // Shared by the attack effects and the snapshot renderer
+    public static void drawFrame(Graphics g, Image frame, int screenX, int screenY, int width, int height, boolean facingLeft) {
         if (facingLeft) {
-            g.drawImage(currentFrame, screenX + width, screenY, -width, height, null);
+            g.drawImage(frame, screenX + width, screenY, -width, height, null);
         } else {
-            g.drawImage(currentFrame, screenX, screenY, width, height, null);
+            g.drawImage(frame, screenX, screenY, width, height, null);
         }
     }
 }
@@ -0,0 +1,29 @@
+package entities;
+
+// The simulation runs at a configurable tick rate (GameLoop's tickRate setting, HeadlessRunner's
+// --tick-rate), but the game was tuned at 60: speeds were pixels per tick and timers counted
+// ticks. Timers are now given in seconds and speeds per second's worth of 60 ticks, and these
+// turn them into ticks and per-tick steps at the actual rate, so the rate changes how often the
+// world is stepped and not how fast the game plays. At 60 every value comes out as before.
+public final class Ticks {
+
+    public static final int TUNED_RATE = 60;
+
+    private Ticks() {
+    }
+
+    // Ticks per second for ticks of deltaTime seconds
+    public static int rateOf(float deltaTime) {
+        return Math.max(1, Math.round(1f / deltaTime));
+    }
+
+    // How many ticks at rate last seconds; at least one
+    public static int of(double seconds, int rate) {
+        return Math.max(1, (int) Math.round(seconds * rate));
+    }
+
+    // Factor for a per-tick step tuned at 60, so it covers the same distance per second at rate
+    public static double stepScale(int rate) {
+        return rate == TUNED_RATE ? 1.0 : TUNED_RATE / (double) rate;
+    }
+}
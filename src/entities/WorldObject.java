@@ -1,9 +1,14 @@
 package entities;
 
 import java.awt.Graphics;
+import java.awt.GraphicsConfiguration;
 import java.awt.Image;
+import java.awt.image.BufferedImage;
+import java.util.HashMap;
+import java.util.Map;
 import javax.imageio.ImageIO;
 import java.io.IOException;
+import tile.ImagePreparer;
 
 public class WorldObject {
     protected int x, y;
@@ -12,15 +17,27 @@ public class WorldObject {
     protected Image image;
     protected String name;
     protected boolean collision;
+    protected String imagePath;
+
+    // Loaded images, and screen-ready copies of them at the size they're drawn, shared by every
+    // object with the same image. Prepared copies are dropped when the screen changes; each
+    // object keeps its own reference and picks up the new copy on its next draw.
+    private static final Map<String, BufferedImage> loadedImages = new HashMap<>();
+    private static final Map<String, BufferedImage> preparedImages = new HashMap<>();
+    private static GraphicsConfiguration preparedFor = ImagePreparer.defaultConfiguration();
+    private static int preparedGeneration = 0;
+    private BufferedImage prepared;
+    private int preparedObjectGeneration = -1;
 
     public WorldObject(int x, int y, String imagePath, String name, boolean collision) {
         this.x = x;
         this.y = y;
         this.name = name;
         this.collision = collision;
+        this.imagePath = imagePath;
 
         try {
-            this.image = ImageIO.read(getClass().getResourceAsStream(imagePath));
+            this.image = loadImage(imagePath);
             if (this.image != null) {
                 this.width = this.image.getWidth(null);
                 this.height = this.image.getHeight(null);
@@ -38,6 +55,47 @@ public class WorldObject {
         }
     }
 
+    private static synchronized BufferedImage loadImage(String imagePath) throws IOException {
+        BufferedImage loaded = loadedImages.get(imagePath);
+        if (loaded == null) {
+            loaded = ImageIO.read(WorldObject.class.getResourceAsStream(imagePath));
+            if (loaded != null) {
+                loadedImages.put(imagePath, loaded);
+            }
+        }
+        return loaded;
+    }
+
+    // Call before drawing objects on a target; re-prepares images if the target is another screen
+    public static synchronized void prepareFor(GraphicsConfiguration target) {
+        if (ImagePreparer.needsPreparing(preparedFor, target)) {
+            preparedFor = target;
+            preparedImages.clear();
+            preparedGeneration++;
+        }
+    }
+
+    // This object's image at width x height, ready to blit, or null if it has none
+    private BufferedImage preparedImage(int width, int height) {
+        if (prepared != null && preparedObjectGeneration == preparedGeneration
+                && prepared.getWidth() == width && prepared.getHeight() == height) {
+            return prepared;
+        }
+        if (!(image instanceof BufferedImage) || width <= 0 || height <= 0) {
+            return null;
+        }
+        synchronized (WorldObject.class) {
+            String key = imagePath + "@" + width + "x" + height;
+            prepared = preparedImages.get(key);
+            if (prepared == null) {
+                prepared = ImagePreparer.prepare((BufferedImage) image, width, height, preparedFor);
+                preparedImages.put(key, prepared);
+            }
+            preparedObjectGeneration = preparedGeneration;
+        }
+        return prepared;
+    }
+
     public void draw(Graphics g, int cameraX, int cameraY) {
         drawScaled(g, cameraX, cameraY, 2.0f); // Default 2x scaling
     }
@@ -48,7 +106,12 @@ public class WorldObject {
             int screenY = y - cameraY;
             int scaledWidth = (int)(width * scaleFactor);
             int scaledHeight = (int)(height * scaleFactor);
-            g.drawImage(image, screenX, screenY, scaledWidth, scaledHeight, null);
+            BufferedImage ready = preparedImage(scaledWidth, scaledHeight);
+            if (ready != null) {
+                g.drawImage(ready, screenX, screenY, null);
+            } else {
+                g.drawImage(image, screenX, screenY, scaledWidth, scaledHeight, null);
+            }
         }
     }
 
@@ -0,0 +1,300 @@
+package input;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// A whole session's input, tick by tick, plus the seed the world was built with: enough to
+// replay the exact run, headless or on screen. Each key (and the paused flag) is stored as
+// its own run-length stream, since keys stay up or down for long stretches; a minute of play
+// is typically a few hundred bytes. Things that don't come from the keyboard but change the
+// simulation (inventory item use, viewport size, continue after game over) are stored as
+// events on the tick they were applied.
+//
+// File layout (big-endian; varints are unsigned LEB128):
+//   "BQIR" magic, version byte
+//   long seed, int tickRate
+//   varint tickCount
+//   CHANNELS x { varint runCount, runCount x varint runLength }   runs alternate up/down, starting up
+//   varint eventCount, eventCount x { varint tickDelta, byte type, payload }
+//   long checksum   world checksum after the last tick, 0 = not recorded
+public class InputRecording {
+
+    private static final int MAGIC = ('B' << 24) | ('Q' << 16) | ('I' << 8) | 'R';
+    private static final int VERSION = 1;
+
+    // Extra bit next to the KeyHandler bits: the game was paused (inventory or dialogue open)
+    public static final int PAUSED = 1 << KeyHandler.KEY_COUNT;
+    public static final int CHANNELS = KeyHandler.KEY_COUNT + 1;
+
+    public static final int EVENT_USE_ITEM = 1;     // payload: UTF item id
+    public static final int EVENT_VIEW_SIZE = 2;    // payload: varint width, varint height
+    public static final int EVENT_RESET_PLAYER = 3; // no payload
+
+    public static final class Event {
+        public final long tick; // applied before the input of this tick
+        public final int type;
+        public final String itemId;
+        public final int width, height;
+
+        Event(long tick, int type, String itemId, int width, int height) {
+            this.tick = tick;
+            this.type = type;
+            this.itemId = itemId;
+            this.width = width;
+            this.height = height;
+        }
+    }
+
+    private final long seed;
+    private final int tickRate;
+    private long tickCount = 0;
+
+    // Per channel: finished runs, plus the length of the run still going on
+    private final int[][] runs = new int[CHANNELS][];
+    private final int[] runCounts = new int[CHANNELS];
+    private final int[] openRun = new int[CHANNELS];
+
+    private final List<Event> events = new ArrayList<>();
+    private long checksum = 0;
+
+    public InputRecording(long seed, int tickRate) {
+        this.seed = seed;
+        this.tickRate = tickRate;
+        for (int ch = 0; ch < CHANNELS; ch++) {
+            runs[ch] = new int[16];
+        }
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public int getTickRate() {
+        return tickRate;
+    }
+
+    public synchronized long getTickCount() {
+        return tickCount;
+    }
+
+    public synchronized long getChecksum() {
+        return checksum;
+    }
+
+    // State of the world once all recorded ticks have run; lets a replay check itself
+    public synchronized void setChecksum(long checksum) {
+        this.checksum = checksum;
+    }
+
+    // Appends one tick of input (KeyHandler bits, plus PAUSED)
+    public synchronized void record(int bits) {
+        for (int ch = 0; ch < CHANNELS; ch++) {
+            int down = (bits >>> ch) & 1;
+            int current = runCounts[ch] & 1; // runs alternate, starting with "up"
+            if (down != current) {
+                appendRun(ch, openRun[ch]);
+                openRun[ch] = 1;
+            } else {
+                openRun[ch]++;
+            }
+        }
+        tickCount++;
+    }
+
+    private void appendRun(int ch, int length) {
+        if (runCounts[ch] == runs[ch].length) {
+            runs[ch] = Arrays.copyOf(runs[ch], runs[ch].length * 2);
+        }
+        runs[ch][runCounts[ch]++] = length;
+    }
+
+    // Events apply to the tick that is recorded next
+    public synchronized void addItemUse(String itemId) {
+        events.add(new Event(tickCount, EVENT_USE_ITEM, itemId, 0, 0));
+    }
+
+    public synchronized void addViewSize(int width, int height) {
+        events.add(new Event(tickCount, EVENT_VIEW_SIZE, null, width, height));
+    }
+
+    public synchronized void addPlayerReset() {
+        events.add(new Event(tickCount, EVENT_RESET_PLAYER, null, 0, 0));
+    }
+
+    public Playback playback() {
+        return new Playback();
+    }
+
+    // Steps through the recording one tick at a time
+    public class Playback {
+        private long tick = 0;
+        private final int[] runIndex = new int[CHANNELS];
+        private final int[] runLeft = new int[CHANNELS];
+        private int eventIndex = 0;
+
+        public Playback() {
+            Arrays.fill(runIndex, -1);
+        }
+
+        public boolean hasNext() {
+            return tick < tickCount;
+        }
+
+        public long getTick() {
+            return tick;
+        }
+
+        // Next event due before the coming tick's input, or null
+        public Event pollEvent() {
+            if (eventIndex < events.size() && events.get(eventIndex).tick <= tick) {
+                return events.get(eventIndex++);
+            }
+            return null;
+        }
+
+        // Input bits for the coming tick
+        public int next() {
+            int bits = 0;
+            for (int ch = 0; ch < CHANNELS; ch++) {
+                while (runLeft[ch] == 0 && runIndex[ch] + 1 < runCounts[ch]) {
+                    runLeft[ch] = runs[ch][++runIndex[ch]];
+                }
+                if (runLeft[ch] > 0) {
+                    runLeft[ch]--;
+                }
+                if ((runIndex[ch] & 1) == 1) {
+                    bits |= 1 << ch;
+                }
+            }
+            tick++;
+            return bits;
+        }
+    }
+
+    public void save(Path path) throws IOException {
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(path))) {
+            write(out);
+        }
+    }
+
+    public synchronized void write(OutputStream os) throws IOException {
+        DataOutputStream out = new DataOutputStream(os);
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+        out.writeLong(seed);
+        out.writeInt(tickRate);
+        writeVarLong(out, tickCount);
+
+        for (int ch = 0; ch < CHANNELS; ch++) {
+            // The run still going on is written as a finished one
+            boolean hasOpen = openRun[ch] > 0;
+            writeVarLong(out, runCounts[ch] + (hasOpen ? 1 : 0));
+            for (int i = 0; i < runCounts[ch]; i++) {
+                writeVarLong(out, runs[ch][i]);
+            }
+            if (hasOpen) {
+                writeVarLong(out, openRun[ch]);
+            }
+        }
+
+        writeVarLong(out, events.size());
+        long lastTick = 0;
+        for (Event e : events) {
+            writeVarLong(out, e.tick - lastTick);
+            lastTick = e.tick;
+            out.writeByte(e.type);
+            switch (e.type) {
+                case EVENT_USE_ITEM: out.writeUTF(e.itemId); break;
+                case EVENT_VIEW_SIZE: writeVarLong(out, e.width); writeVarLong(out, e.height); break;
+                default: break;
+            }
+        }
+
+        out.writeLong(checksum);
+        out.flush();
+    }
+
+    public static InputRecording load(Path path) throws IOException {
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(path))) {
+            return read(in);
+        }
+    }
+
+    public static InputRecording read(InputStream is) throws IOException {
+        DataInputStream in = new DataInputStream(is);
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not an input recording");
+        }
+        int version = in.readUnsignedByte();
+        if (version != VERSION) {
+            throw new IOException("Unsupported input recording version " + version);
+        }
+
+        InputRecording rec = new InputRecording(in.readLong(), in.readInt());
+        rec.tickCount = readVarLong(in);
+
+        for (int ch = 0; ch < CHANNELS; ch++) {
+            int count = (int) readVarLong(in);
+            rec.runs[ch] = new int[Math.max(count, 1)];
+            for (int i = 0; i < count; i++) {
+                rec.runs[ch][i] = (int) readVarLong(in);
+            }
+            rec.runCounts[ch] = count;
+        }
+
+        int eventCount = (int) readVarLong(in);
+        long tick = 0;
+        for (int i = 0; i < eventCount; i++) {
+            tick += readVarLong(in);
+            int type = in.readUnsignedByte();
+            switch (type) {
+                case EVENT_USE_ITEM:
+                    rec.events.add(new Event(tick, type, in.readUTF(), 0, 0));
+                    break;
+                case EVENT_VIEW_SIZE:
+                    int width = (int) readVarLong(in);
+                    int height = (int) readVarLong(in);
+                    rec.events.add(new Event(tick, type, null, width, height));
+                    break;
+                case EVENT_RESET_PLAYER:
+                    rec.events.add(new Event(tick, type, null, 0, 0));
+                    break;
+                default:
+                    throw new IOException("Unknown event type " + type);
+            }
+        }
+
+        rec.checksum = in.readLong();
+        return rec;
+    }
+
+    private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private static long readVarLong(DataInputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+}
@@ -13,6 +13,19 @@ public class KeyHandler implements KeyListener {
     // Skill keys
     public boolean skillSPACE, skillW, skillB, skillN, skillM, interactJ;
 
+    // Bit per key, for latching the state once per tick and for input recordings
+    public static final int UP = 1;
+    public static final int DOWN = 1 << 1;
+    public static final int LEFT = 1 << 2;
+    public static final int RIGHT = 1 << 3;
+    public static final int SPACE = 1 << 4;
+    public static final int SKILL_W = 1 << 5;
+    public static final int SKILL_B = 1 << 6;
+    public static final int SKILL_N = 1 << 7;
+    public static final int SKILL_M = 1 << 8;
+    public static final int INTERACT_J = 1 << 9;
+    public static final int KEY_COUNT = 10;
+
     // Debounce mechanism as a fallback
     private Map<Integer, Long> lastPressTime = new HashMap<>();  // Key: keyCode, Value: last press time
     private final long DEBOUNCE_DELAY = 50;  // Reduced from 300ms to 50ms for better combat responsiveness
@@ -20,8 +33,41 @@ public class KeyHandler implements KeyListener {
     @Override
     public void keyTyped(KeyEvent e) {}
 
+    public synchronized int toBits() {
+        int bits = 0;
+        if (upPressed) bits |= UP;
+        if (downPressed) bits |= DOWN;
+        if (leftPressed) bits |= LEFT;
+        if (rightPressed) bits |= RIGHT;
+        if (skillSPACE) bits |= SPACE;
+        if (skillW) bits |= SKILL_W;
+        if (skillB) bits |= SKILL_B;
+        if (skillN) bits |= SKILL_N;
+        if (skillM) bits |= SKILL_M;
+        if (interactJ) bits |= INTERACT_J;
+        return bits;
+    }
+
+    public synchronized void setBits(int bits) {
+        upPressed = (bits & UP) != 0;
+        downPressed = (bits & DOWN) != 0;
+        leftPressed = (bits & LEFT) != 0;
+        rightPressed = (bits & RIGHT) != 0;
+        skillSPACE = (bits & SPACE) != 0;
+        skillW = (bits & SKILL_W) != 0;
+        skillB = (bits & SKILL_B) != 0;
+        skillN = (bits & SKILL_N) != 0;
+        skillM = (bits & SKILL_M) != 0;
+        interactJ = (bits & INTERACT_J) != 0;
+    }
+
+    // Releases the given keys, e.g. skill presses the game has already acted on
+    public synchronized void clearBits(int bits) {
+        setBits(toBits() & ~bits);
+    }
+
     @Override
-    public void keyPressed(KeyEvent e) {
+    public synchronized void keyPressed(KeyEvent e) {
         int code = e.getKeyCode();
         long currentTime = System.currentTimeMillis();  // Get current time for debounce
 
@@ -52,7 +98,7 @@ public class KeyHandler implements KeyListener {
     }
 
     @Override
-    public void keyReleased(KeyEvent e) {
+    public synchronized void keyReleased(KeyEvent e) {
         int code = e.getKeyCode();
 
         switch (code) {
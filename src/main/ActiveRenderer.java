@@ -0,0 +1,121 @@
+package main;
+
+import javax.swing.JComponent;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.Toolkit;
+import java.awt.image.VolatileImage;
+
+// Active rendering for a Swing component.
+// The game thread draws each frame into an accelerated VolatileImage back buffer and
+// flips it to the screen itself, instead of asking the RepaintManager for a repaint
+// that may be coalesced or delayed on the EDT. When Swing children are showing on top
+// (inventory, dialogue, fade overlay) the flip goes through repaint() so they still
+// compose over the frame; paintComponent then just blits the finished back buffer.
+public class ActiveRenderer {
+
+    public interface Painter {
+        void paint(Graphics2D g2d, int width, int height);
+    }
+
+    private final JComponent target;
+    private final Object bufferLock = new Object();
+    private VolatileImage backBuffer;
+
+    public ActiveRenderer(JComponent target) {
+        this.target = target;
+    }
+
+    // Called from the game thread once per rendered frame
+    public void renderFrame(Painter painter, boolean swingOverlayVisible) {
+        int w = target.getWidth();
+        int h = target.getHeight();
+        if (w <= 0 || h <= 0 || !target.isShowing()) {
+            return;
+        }
+
+        GraphicsConfiguration gc = target.getGraphicsConfiguration();
+        if (gc == null) {
+            return;
+        }
+
+        synchronized (bufferLock) {
+            do {
+                if (!validateBuffer(gc, w, h)) {
+                    return;
+                }
+                Graphics2D g2d = backBuffer.createGraphics();
+                try {
+                    painter.paint(g2d, w, h);
+                } finally {
+                    g2d.dispose();
+                }
+            } while (backBuffer.contentsLost());
+        }
+
+        if (swingOverlayVisible) {
+            // Let Swing paint us (blit) plus the overlay children in one pass
+            target.repaint();
+        } else {
+            present();
+        }
+    }
+
+    // Called from paintComponent on the EDT. Returns false if there is no frame to show yet.
+    public boolean blitTo(Graphics g) {
+        synchronized (bufferLock) {
+            if (backBuffer == null || backBuffer.contentsLost()) {
+                return false;
+            }
+            g.drawImage(backBuffer, 0, 0, null);
+            return true;
+        }
+    }
+
+    // Drop the back buffer, e.g. after the window moved to a different screen configuration
+    public void invalidate() {
+        synchronized (bufferLock) {
+            if (backBuffer != null) {
+                backBuffer.flush();
+                backBuffer = null;
+            }
+        }
+    }
+
+    private void present() {
+        Graphics g = target.getGraphics();
+        if (g == null) {
+            return;
+        }
+        try {
+            synchronized (bufferLock) {
+                if (backBuffer == null || backBuffer.contentsLost()) {
+                    return;
+                }
+                g.drawImage(backBuffer, 0, 0, null);
+            }
+            // Flush the pipeline so the frame is on screen now, not whenever the toolkit gets to it
+            Toolkit.getDefaultToolkit().sync();
+        } finally {
+            g.dispose();
+        }
+    }
+
+    private boolean validateBuffer(GraphicsConfiguration gc, int w, int h) {
+        if (backBuffer == null || backBuffer.getWidth() != w || backBuffer.getHeight() != h) {
+            if (backBuffer != null) {
+                backBuffer.flush();
+            }
+            backBuffer = gc.createCompatibleVolatileImage(w, h);
+        }
+
+        int status = backBuffer.validate(gc);
+        if (status == VolatileImage.IMAGE_INCOMPATIBLE) {
+            backBuffer.flush();
+            backBuffer = gc.createCompatibleVolatileImage(w, h);
+            status = backBuffer.validate(gc);
+        }
+        return backBuffer != null && status != VolatileImage.IMAGE_INCOMPATIBLE;
+    }
+}
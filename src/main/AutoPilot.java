@@ -0,0 +1,150 @@
+package main;
+
+import java.util.List;
+import input.KeyHandler;
+import entities.Enemy;
+import entities.Player;
+import tile.TileManager;
+
+// Crude bot for runs with nobody at the keyboard: walks to the nearest living enemy along a
+// tile-grid BFS path and mashes every skill. Good enough to push the wave system through for
+// balance and soak runs.
+public class AutoPilot {
+
+    private static final int DEAD_ZONE = 12;      // close enough on an axis, stop walking on it
+    private static final int SKILL_RANGE = 300;   // use the mana skills inside this distance
+    private static final int REPATH_TICKS = 15;   // targets move, recompute the path this often
+    private static final int PROBE_SIZE = 48;     // same as the player's collision box
+
+    private final GameWorld world;
+    private final KeyHandler keyH;
+
+    // BFS scratch, reused between searches
+    private int[] cameFrom = new int[0];
+    private int[] queue = new int[0];
+    private int nextTile = -1; // first step on the current path, -1 = walk straight at the target
+    private int repathTimer = 0;
+
+    public AutoPilot(GameWorld world, KeyHandler keyH) {
+        this.world = world;
+        this.keyH = keyH;
+    }
+
+    // Sets the key state for the coming tick
+    public void drive() {
+        Player player = world.getPlayer();
+        Enemy target = null;
+        long bestDistSq = Long.MAX_VALUE;
+        List<Enemy> enemies = world.getEnemies();
+        for (int i = 0; i < enemies.size(); i++) {
+            Enemy enemy = enemies.get(i);
+            if (!enemy.isAlive()) continue;
+            long dx = enemy.getX() + enemy.getWidth() / 2 - player.getX();
+            long dy = enemy.getY() + enemy.getHeight() / 2 - player.getY();
+            long distSq = dx * dx + dy * dy;
+            if (distSq < bestDistSq) {
+                bestDistSq = distSq;
+                target = enemy;
+            }
+        }
+
+        if (target == null) {
+            keyH.upPressed = keyH.downPressed = keyH.leftPressed = keyH.rightPressed = false;
+            nextTile = -1;
+            return;
+        }
+
+        int targetX = target.getX() + target.getWidth() / 2;
+        int targetY = target.getY() + target.getHeight() / 2;
+
+        TileManager tileM = world.getTileManager();
+        int tileSize = tileM.getTileSize();
+        int mapWidth = tileM.getMapWidth();
+        if (--repathTimer <= 0) {
+            repathTimer = REPATH_TICKS;
+            nextTile = findNextTile(player.getX() / tileSize, player.getY() / tileSize,
+                    targetX / tileSize, targetY / tileSize);
+        }
+
+        int goalX = targetX;
+        int goalY = targetY;
+        if (nextTile >= 0) {
+            goalX = (nextTile % mapWidth) * tileSize + tileSize / 2;
+            goalY = (nextTile / mapWidth) * tileSize + tileSize / 2;
+            if (Math.abs(goalX - player.getX()) <= DEAD_ZONE && Math.abs(goalY - player.getY()) <= DEAD_ZONE) {
+                repathTimer = 0; // reached the waypoint, pick the next one
+            }
+        }
+
+        int dx = goalX - player.getX();
+        int dy = goalY - player.getY();
+        keyH.leftPressed = dx < -DEAD_ZONE;
+        keyH.rightPressed = dx > DEAD_ZONE;
+        keyH.upPressed = dy < -DEAD_ZONE;
+        keyH.downPressed = dy > DEAD_ZONE;
+
+        // Player clears these itself once the skill fires
+        keyH.skillSPACE = true;
+        boolean inRange = bestDistSq < (long) SKILL_RANGE * SKILL_RANGE;
+        keyH.skillB = inRange;
+        keyH.skillN = inRange;
+        keyH.skillM = inRange;
+    }
+
+    // Breadth-first search over walkable tiles. Returns the tile index (row * mapWidth + col)
+    // of the first step from start towards goal, or -1 when already adjacent or unreachable.
+    private int findNextTile(int startCol, int startRow, int goalCol, int goalRow) {
+        TileManager tileM = world.getTileManager();
+        int mapWidth = tileM.getMapWidth();
+        int mapHeight = tileM.getMapHeight();
+        int cells = mapWidth * mapHeight;
+        if (cameFrom.length < cells) {
+            cameFrom = new int[cells];
+            queue = new int[cells];
+        }
+        if (startCol < 0 || startRow < 0 || startCol >= mapWidth || startRow >= mapHeight) return -1;
+        if (goalCol < 0 || goalRow < 0 || goalCol >= mapWidth || goalRow >= mapHeight) return -1;
+
+        int start = startRow * mapWidth + startCol;
+        int goal = goalRow * mapWidth + goalCol;
+        if (start == goal) return -1;
+
+        java.util.Arrays.fill(cameFrom, 0, cells, -1);
+        cameFrom[start] = start;
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = start;
+        while (head < tail) {
+            int cell = queue[head++];
+            if (cell == goal) break;
+            int col = cell % mapWidth;
+            int row = cell / mapWidth;
+            for (int dir = 0; dir < 4; dir++) {
+                int nc = col + (dir == 0 ? 1 : dir == 1 ? -1 : 0);
+                int nr = row + (dir == 2 ? 1 : dir == 3 ? -1 : 0);
+                if (nc < 0 || nr < 0 || nc >= mapWidth || nr >= mapHeight) continue;
+                int next = nr * mapWidth + nc;
+                if (cameFrom[next] != -1) continue;
+                // The goal tile is where the enemy stands; let the search end there regardless
+                if (next != goal && !isPassable(nc, nr)) continue;
+                cameFrom[next] = cell;
+                queue[tail++] = next;
+            }
+        }
+
+        if (cameFrom[goal] == -1) return -1;
+        int step = goal;
+        while (cameFrom[step] != start) {
+            step = cameFrom[step];
+        }
+        return step == goal ? -1 : step;
+    }
+
+    private boolean isPassable(int col, int row) {
+        TileManager tileM = world.getTileManager();
+        int tileSize = tileM.getTileSize();
+        int x = col * tileSize + (tileSize - PROBE_SIZE) / 2;
+        int y = row * tileSize + (tileSize - PROBE_SIZE) / 2;
+        return tileM.isWalkable(x, y, PROBE_SIZE, PROBE_SIZE); // objects are baked into the tile grid
+    }
+}
@@ -73,4 +73,9 @@ public class FadeTransition {
         });
         timer.start();
     }
+
+    // True while the fade overlay is attached on top of the window content
+    public static boolean isActive() {
+        return overlay != null && overlay.getParent() != null;
+    }
 }
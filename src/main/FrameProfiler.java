@@ -0,0 +1,235 @@
+package main;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.io.PrintStream;
+import java.util.Arrays;
+
+// Per-phase timings for the simulation and the renderer, kept in fixed-size rings of
+// nanosecond samples so taking a sample never allocates. Off by default; F3 in the game
+// turns it on and shows the overlay (p50/p99/max per phase plus a frame-time graph).
+//
+// Each phase has a single writer (update phases: the game thread, render phases: whichever
+// thread draws). Readers may see a sample that is being written, which is fine for stats.
+//
+// Usage, chaining laps so every phase costs one nanoTime() call:
+//   long t = profiler.start();
+//   ...player...   t = profiler.lap(FrameProfiler.PLAYER, t);
+//   ...enemies...  t = profiler.lap(FrameProfiler.ENEMIES, t);
+public class FrameProfiler {
+
+    // Update phases (GameWorld.update)
+    public static final int UPDATE = 0;    // whole tick
+    public static final int PLAYER = 1;
+    public static final int ENEMIES = 2;
+    public static final int PROJECTILES = 3; // flight; their hits count as hits
+    public static final int PICKUP = 4;    // dropped-item pickup
+    public static final int NPCS = 5;
+    public static final int HITS = 6;      // slash / skillW / freeze / lightning / projectile resolution
+    public static final int WAVES = 7;
+    // Render phases (WorldRenderer.render)
+    public static final int RENDER = 8;    // whole frame
+    public static final int TILES = 9;
+    public static final int OBJECTS = 10;
+    public static final int ENTITIES = 11;
+    public static final int HUD = 12;
+    public static final int FRAME = 13;    // time between two presented frames
+    public static final int PHASE_COUNT = 14;
+
+    private static final String[] NAMES = {
+        "update", " player", " enemies", " projectiles", " pickup", " npcs", " hits", " waves",
+        "render", " tiles", " objects", " entities", " hud", "frame"
+    };
+
+    private static final int HISTORY = 240;          // samples kept per phase (4 s at 60 Hz)
+    private static final int STATS_INTERVAL = 30;    // overlay frames between stat refreshes
+    private static final long GRAPH_BUDGET_NANOS = 1_000_000_000L / 60;
+
+    private final long[][] samples = new long[PHASE_COUNT][HISTORY];
+    private final int[] next = new int[PHASE_COUNT];
+    private final int[] count = new int[PHASE_COUNT];
+    private volatile boolean enabled = false;
+    private volatile String status = null; // extra overlay line under the table, e.g. F4's enemy mode
+    private long lastFrame = 0;
+
+    // Overlay state, touched only by the drawing thread
+    private final long[] scratch = new long[HISTORY];
+    private final long[] p50 = new long[PHASE_COUNT];
+    private final long[] p99 = new long[PHASE_COUNT];
+    private final long[] max = new long[PHASE_COUNT];
+    private int framesUntilStats = 0;
+    private final StringBuilder line = new StringBuilder(64);
+    private char[] chars = new char[64];
+    private static final Font FONT = new Font(Font.MONOSPACED, Font.PLAIN, 12);
+    private static final Color BACKGROUND = new Color(0, 0, 0, 170);
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // Turning it on starts from an empty history
+    public void setEnabled(boolean enabled) {
+        if (enabled && !this.enabled) {
+            Arrays.fill(count, 0);
+            Arrays.fill(next, 0);
+            lastFrame = 0;
+            framesUntilStats = 0;
+        }
+        this.enabled = enabled;
+    }
+
+    // Shown under the phase table, for toggles without a display of their own; null for none
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    // Start of a chain of laps; 0 when disabled
+    public long start() {
+        return enabled ? System.nanoTime() : 0L;
+    }
+
+    // Records the time since `since` under phase and returns now, for the next lap
+    public long lap(int phase, long since) {
+        if (!enabled) return 0L;
+        long now = System.nanoTime();
+        if (since != 0L) { // 0 = profiling was switched on mid-chain
+            add(phase, now - since);
+        }
+        return now;
+    }
+
+    public void add(int phase, long nanos) {
+        int i = next[phase];
+        samples[phase][i] = nanos;
+        next[phase] = (i + 1) % HISTORY;
+        if (count[phase] < HISTORY) {
+            count[phase]++;
+        }
+    }
+
+    // Call once per presented frame
+    public void frame() {
+        if (!enabled) return;
+        long now = System.nanoTime();
+        if (lastFrame != 0L) {
+            add(FRAME, now - lastFrame);
+        }
+        lastFrame = now;
+    }
+
+    // Refreshes p50/p99/max for every phase from the current history
+    public void computeStats() {
+        for (int phase = 0; phase < PHASE_COUNT; phase++) {
+            int n = count[phase];
+            if (n == 0) {
+                p50[phase] = p99[phase] = max[phase] = 0;
+                continue;
+            }
+            System.arraycopy(samples[phase], 0, scratch, 0, n);
+            Arrays.sort(scratch, 0, n);
+            p50[phase] = scratch[(n - 1) * 50 / 100];
+            p99[phase] = scratch[(n - 1) * 99 / 100];
+            max[phase] = scratch[n - 1];
+        }
+    }
+
+    // F3 overlay: stats table in the top-right corner with the frame-time graph under it
+    public void drawOverlay(Graphics2D g, int viewWidth) {
+        if (--framesUntilStats <= 0) {
+            computeStats();
+            framesUntilStats = STATS_INTERVAL;
+        }
+
+        int lineHeight = 14;
+        int boxWidth = 290;
+        int graphHeight = 60;
+        String status = this.status;
+        int boxHeight = (PHASE_COUNT + (status != null ? 2 : 1)) * lineHeight + graphHeight + 16;
+        int x = viewWidth - boxWidth - 10;
+        int y = 10;
+
+        g.setColor(BACKGROUND);
+        g.fillRect(x, y, boxWidth, boxHeight);
+        g.setFont(FONT);
+        g.setColor(Color.WHITE);
+
+        int textX = x + 6;
+        int textY = y + lineHeight;
+        line.setLength(0);
+        line.append("phase         p50     p99     max ms");
+        drawLine(g, textX, textY);
+        for (int phase = 0; phase < PHASE_COUNT; phase++) {
+            textY += lineHeight;
+            line.setLength(0);
+            line.append(NAMES[phase]);
+            while (line.length() < 10) line.append(' ');
+            appendMillis(p50[phase]);
+            appendMillis(p99[phase]);
+            appendMillis(max[phase]);
+            drawLine(g, textX, textY);
+        }
+        if (status != null) {
+            textY += lineHeight;
+            line.setLength(0);
+            line.append(status);
+            drawLine(g, textX, textY);
+        }
+
+        // Frame-time graph, newest on the right; the line is the 60 Hz budget
+        int graphX = x + 6;
+        int graphY = textY + 8;
+        int graphWidth = boxWidth - 12;
+        long scale = GRAPH_BUDGET_NANOS * 2; // full height = two frame budgets
+        int n = count[FRAME];
+        int newest = next[FRAME];
+        int bars = Math.min(n, graphWidth);
+        for (int b = 0; b < bars; b++) {
+            long nanos = samples[FRAME][Math.floorMod(newest - 1 - b, HISTORY)];
+            int h = (int) Math.min(graphHeight, nanos * graphHeight / scale);
+            g.setColor(nanos <= GRAPH_BUDGET_NANOS ? Color.GREEN
+                    : nanos <= GRAPH_BUDGET_NANOS * 2 ? Color.YELLOW : Color.RED);
+            g.fillRect(graphX + graphWidth - 1 - b, graphY + graphHeight - h, 1, h);
+        }
+        g.setColor(Color.WHITE);
+        int budgetY = graphY + graphHeight - graphHeight / 2;
+        g.drawLine(graphX, budgetY, graphX + graphWidth, budgetY);
+    }
+
+    // Fixed-width "  12.345" (ms, microsecond resolution) without going through String.format
+    private void appendMillis(long nanos) {
+        long micros = (nanos + 500) / 1_000;
+        int frac = (int) (micros % 1_000);
+        int start = line.length();
+        line.append(micros / 1_000).append('.');
+        if (frac < 100) line.append('0');
+        if (frac < 10) line.append('0');
+        line.append(frac);
+        while (line.length() - start < 8) line.insert(start, ' ');
+    }
+
+    private void drawLine(Graphics2D g, int x, int y) {
+        int len = line.length();
+        if (chars.length < len) {
+            chars = new char[len * 2];
+        }
+        line.getChars(0, len, chars, 0);
+        g.drawChars(chars, 0, len, x, y);
+    }
+
+    // Plain-text table, for headless runs
+    public void printSummary(PrintStream out) {
+        computeStats();
+        out.println("phase         p50     p99     max ms (last " + HISTORY + " samples)");
+        for (int phase = 0; phase < PHASE_COUNT; phase++) {
+            if (count[phase] == 0) continue;
+            line.setLength(0);
+            line.append(NAMES[phase]);
+            while (line.length() < 10) line.append(' ');
+            appendMillis(p50[phase]);
+            appendMillis(p99[phase]);
+            appendMillis(max[phase]);
+            out.println(line);
+        }
+    }
+}
@@ -4,47 +4,70 @@ import javax.swing.*;
 import java.awt.*;
 import java.awt.event.*;
 import java.awt.image.BufferedImage;
-import java.util.ArrayList;
+import java.nio.file.Paths;
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import input.InputRecording;
 import input.KeyHandler;
+import entities.AttackPool;
 import entities.Enemy;
 import entities.Player;
+import entities.Projectile;
+import entities.ProjectileStore;
 import entities.SlashAttack;
 import entities.SkillWAttack;
 import entities.InventoryUI;
-import entities.Hotbar;d
+import entities.Hotbar;
 import entities.NPC;
 import entities.DialogueUI;
-
-import tile.TileManager;
+import entities.WorldObject;
 import world.ObjectManager;
 
 public class GameLoop extends JLayeredPane implements Runnable {
 
     int width = 800;
     int height = 600;
-    final int TILE_SIZE = 80;
 
-    private boolean inventoryOpen = false;
+    private volatile boolean inventoryOpen = false; // toggled on the EDT, read by the simulation and renderer
     private InventoryUI gameInventory;
     private DialogueUI dialogueUI;
 
-    private Thread gameThread;
-    private KeyHandler keyH;
-    private Player player;
-    private TileManager tileM;
-    private ObjectManager objectM;
+    private volatile Thread gameThread;
+    private final TickScheduler scheduler;
+    private final ActiveRenderer activeRenderer;
+    private volatile boolean activeRendering;
+    private volatile Thread renderThread;
+    private volatile int renderRate; // frames per second on the render thread, 0 = display refresh rate
+    private volatile boolean frameSettled; // last frame was drawn at alpha 1 of the newest snapshot
+
+    // Simulation -> renderer handoff
+    private final SpriteRegistry sprites = new SpriteRegistry();
+    private final SnapshotExchange snapshots = new SnapshotExchange();
+    private final Object renderLock = new Object();
+    private long tickCount = 0;
+    private WorldRenderer worldRenderer;
+    private final FrameProfiler profiler = new FrameProfiler(); // F3
+    private KeyHandler keyH; // live keyboard state, written by the EDT
+    private final KeyHandler simKeys = new KeyHandler(); // latched copy the world reads each tick
+    private GameWorld world;
+    private float simTickSeconds;
+
+    // Things the EDT asks of the simulation, applied at the start of the next tick
+    private final ConcurrentLinkedQueue<String> pendingItemUses = new ConcurrentLinkedQueue<>();
+    private volatile boolean resetPending = false;
+    private int simViewWidth = -1;
+    private int simViewHeight = -1;
+    private boolean dialoguePending = false; // world dialogue started, game not yet unpaused
+
+    // Input recording (-Dgame.record=FILE) and replay (-Dgame.replay=FILE)
+    private InputRecording recording;
+    private String recordPath;
+    private InputRecording.Playback playback;
+    private InputRecording replay;
     private Hotbar hotbar;
-    private List<Enemy> enemies;
-    private List<NPC> npcs;
     private GameOverCallback gameOverCallback;
 
-    // Wave system
-    private int currentWave = 0;
-    private boolean waveActive = false;
-    private boolean waitingForDialogue = false;
-    private boolean miniBossSpawned = false;
-
     // Skill icons
     private Image skillIcePiercerIcon;
     private Image skillLightningStormIcon;
@@ -54,6 +77,11 @@ public class GameLoop extends JLayeredPane implements Runnable {
 
     public GameLoop(GameOverCallback gameOverCallback) {
         this.gameOverCallback = gameOverCallback;
+        this.scheduler = new TickScheduler(Integer.getInteger("game.tickRate", TickScheduler.DEFAULT_TICK_RATE));
+        this.scheduler.setMaxFrameSkip(Integer.getInteger("game.maxFrameSkip", TickScheduler.DEFAULT_MAX_FRAME_SKIP));
+        this.activeRenderer = new ActiveRenderer(this);
+        this.activeRendering = !"false".equals(System.getProperty("game.activeRender"));
+        this.renderRate = Integer.getInteger("game.renderRate", 0);
 
         this.setPreferredSize(new Dimension(width, height));
         this.setBackground(Color.BLACK);
@@ -72,6 +100,18 @@ public class GameLoop extends JLayeredPane implements Runnable {
                     return;
                 }
 
+                if (code == KeyEvent.VK_F3) {
+                    profiler.setEnabled(!profiler.isEnabled());
+                    repaint();
+                    return;
+                }
+
+                if (code == KeyEvent.VK_F4) {
+                    world.setParallelEnemies(!world.isParallelEnemies());
+                    showEnemyMode();
+                    return;
+                }
+
                 if (dialogueUI.isDialogueVisible()) {
                     dialogueUI.handleKeyPress(code);
                 } else {
@@ -88,61 +128,58 @@ public class GameLoop extends JLayeredPane implements Runnable {
 
         setupKeyBindings();
 
-        tileM = new TileManager(this);
-        objectM = new ObjectManager(tileM);
-
-        player = new Player(400, 400, keyH);
-        player.setTileManager(tileM);
-        player.setObjectManager(objectM);
-
-        gameInventory = new InventoryUI(this.width, this.height, itemId -> {
-            if ("potion_blue".equals(itemId)) {
-                int oldMana = player.getMana();
-                player.restoreMana(50);
-                System.out.println("Used Mana Potion: Mana " + oldMana + " -> " + player.getMana());
-            } else if (itemId.equals("sword")) {
-                // Equip sword: add attack boost
-                player.setEquippedStats(player.getEquippedAttack() + 15, player.getEquippedDefense());
-                System.out.println("Equipped sword, attack increased by 15");
+        long seed = Long.getLong("game.seed", new Random().nextLong());
+        simTickSeconds = scheduler.getTickSeconds();
+        setupReplayAndRecording(seed);
+        if (replay != null) {
+            seed = replay.getSeed();
+        }
+
+        world = new GameWorld(simKeys, new GameWorld.Host() {
+            // Deterministic stand-in for dialogueUI.isDialogueVisible(): the game stays paused
+            // while a dialogue is up, so it's "visible" until the next tick that isn't paused
+            @Override
+            public boolean isDialogueVisible() {
+                return dialoguePending;
             }
-        });
+
+            @Override
+            public void startDialogue(String speaker, List<String> lines) {
+                dialoguePending = true;
+                if (replay == null) {
+                    dialogueUI.startDialogue(speaker, lines);
+                }
+            }
+        }, seed);
+        world.setProfiler(profiler);
+        showEnemyMode();
+
+        // Item use comes from the EDT; the world applies it on the game thread
+        gameInventory = new InventoryUI(this.width, this.height, pendingItemUses::add);
 
         dialogueUI = new DialogueUI(this.width, this.height);
         dialogueUI.setBounds(0, 0, this.width, this.height);
         dialogueUI.setVisible(false);
         this.add(dialogueUI, JLayeredPane.MODAL_LAYER);
 
-        // Set inventory reference for player
-        player.setInventory(gameInventory);
+        // Set inventory reference for player and enemy drops
+        world.setInventory(gameInventory);
 
         // Initialize hotbar
         hotbar = new Hotbar(this.width, this.height, gameInventory);
-        hotbar.setPlayer(player);
         gameInventory.setBounds(0, 0, this.width, this.height);
         gameInventory.setVisible(false);
         this.add(gameInventory, JLayeredPane.PALETTE_LAYER);
 
-        enemies = new ArrayList<>();
-        enemies.add(new Enemy(600, 800, Enemy.EnemyType.BASIC));
-        enemies.add(new Enemy(700, 850, Enemy.EnemyType.BASIC));
-
-        for (Enemy enemy : enemies) {
-            enemy.setTileManager(tileM);
-            enemy.setInventory(gameInventory);
-            enemy.setObjectManager(objectM);
+        if (replay == null) {
+            world.setDialogueUI(dialogueUI);
         }
-
-        npcs = new ArrayList<>();
-        npcs.add(new NPC(1200, 480));
-        npcs.get(0).setTileManager(tileM);
-        npcs.get(0).setPlayer(player);
-        player.setNPCs(npcs);
-        player.setDialogueUI(dialogueUI);
         dialogueUI.setKeyHandler(keyH);
 
-        objectM.setNPCs(npcs);
-
+        worldRenderer = new WorldRenderer(world.getTileManager(), world.getObjectManager(), hotbar, sprites);
         loadSkillIcons();
+        worldRenderer.setSwordIcon(swordIcon);
+        worldRenderer.setProfiler(profiler);
 
         addComponentListener(new java.awt.event.ComponentAdapter() {
             @Override
@@ -162,6 +199,7 @@ public class GameLoop extends JLayeredPane implements Runnable {
             System.err.println("Failed to load player portrait: " + e.getMessage());
             playerPortrait = null; // Fallback
         }
+        worldRenderer.setPlayerPortrait(playerPortrait);
     }
 
     public void setSize(int w, int h) {
@@ -182,10 +220,59 @@ public class GameLoop extends JLayeredPane implements Runnable {
         startGameThread();
     }
 
+    // Simulation ticks per second (defaults to 60, override with -Dgame.tickRate)
+    public void setTickRate(int tickRate) {
+        scheduler.setTickRate(tickRate);
+    }
+
+    public int getTickRate() {
+        return scheduler.getTickRate();
+    }
+
+    // Active rendering: the game thread draws and flips frames itself (default).
+    // Passive rendering: the old repaint() path through the EDT. Disable with -Dgame.activeRender=false
+    public void setActiveRendering(boolean activeRendering) {
+        this.activeRendering = activeRendering;
+        if (!activeRendering) {
+            activeRenderer.invalidate();
+        }
+    }
+
+    public boolean isActiveRendering() {
+        return activeRendering;
+    }
+
+    // Frames per second drawn in active mode, independent of the tick rate.
+    // 0 (the default, -Dgame.renderRate) follows the display's refresh rate.
+    public void setRenderRate(int renderRate) {
+        this.renderRate = Math.max(0, renderRate);
+    }
+
+    public int getRenderRate() {
+        return renderRate;
+    }
+
+    private int resolveRenderRate() {
+        int rate = renderRate;
+        if (rate > 0) {
+            return rate;
+        }
+        try {
+            GraphicsConfiguration gc = getGraphicsConfiguration();
+            GraphicsDevice device = gc != null ? gc.getDevice()
+                    : GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice();
+            rate = device.getDisplayMode().getRefreshRate();
+        } catch (HeadlessException e) {
+            rate = DisplayMode.REFRESH_RATE_UNKNOWN;
+        }
+        return rate > 0 ? rate : TickScheduler.DEFAULT_TICK_RATE;
+    }
+
     public void reset() {
-        player = new Player(400, 400, keyH);
-        player.setTileManager(tileM);
-        player.setObjectManager(objectM);
+        // Applied by the game thread; a replay carries its own resets
+        if (replay == null) {
+            resetPending = true;
+        }
 
         gameInventory.reset();
         inventoryOpen = false;
@@ -229,6 +316,11 @@ public class GameLoop extends JLayeredPane implements Runnable {
         });
     }
 
+    // F4's enemy update mode, on the F3 overlay
+    private void showEnemyMode() {
+        profiler.setStatus(world.isParallelEnemies() ? "enemies   parallel (F4)" : "enemies   sequential (F4)");
+    }
+
     private void toggleInventory() {
         inventoryOpen = !inventoryOpen;
         gameInventory.setVisible(inventoryOpen);
@@ -245,424 +337,404 @@ public class GameLoop extends JLayeredPane implements Runnable {
     }
 
     public void startGameThread() {
-        gameThread = new Thread(this);
-        gameThread.start();
+        Thread simThread = new Thread(this, "GameLoop");
+        gameThread = simThread;
+        renderThread = new Thread(() -> renderLoop(simThread), "GameRender");
+        simThread.start();
+        renderThread.start();
     }
 
     @Override
     public void run() {
-        double drawInterval = 1000000000.0 / 60.0;
-        double delta = 0;
-        long lastTime = System.nanoTime();
-
-        while (gameThread != null) {
-            long now = System.nanoTime();
-            delta += (now - lastTime) / drawInterval;
-            lastTime = now;
+        Thread self = Thread.currentThread();
+        // Parks between ticks instead of spinning; stops once gameThread is cleared or replaced
+        scheduler.run(() -> gameThread == self, this::tick, this::requestFrame);
+    }
 
-            if (delta >= 1) {
-                update();
-                repaint();
-                delta--;
-            }
-        }
+    // One simulation step followed by publishing what it produced for the renderer
+    private void tick() {
+        tickCount++;
+        world.storePreviousPositions();
+        update();
+        captureSnapshot(snapshots.writeBuffer());
+        snapshots.publish();
     }
 
-    public void update() {
-        if (inventoryOpen || dialogueUI.isDialogueVisible()) {
-            return;
+    private void requestFrame() {
+        // In active mode the render thread picks the snapshot up by itself
+        if (!activeRendering) {
+            repaint();
         }
+    }
 
-        float deltaTime = 1.0f / 60.0f;
-
-        int cameraX = (int) player.px - this.width / 2;
-        int cameraY = (int) player.py - this.height / 2;
-        int mapPixelWidth = tileM.getMapWidth() * TILE_SIZE;
-        int mapPixelHeight = tileM.getMapHeight() * TILE_SIZE;
-        cameraX = Math.max(0, Math.min(cameraX, mapPixelWidth - this.width));
-        cameraY = Math.max(0, Math.min(cameraY, mapPixelHeight - this.height));
+    // Render thread: draws at the display rate, interpolating between the last two ticks, in
+    // parallel with the simulation working on the next tick. Once a frame has caught up with
+    // the newest tick it sleeps until the next one is published rather than redrawing it.
+    private void renderLoop(Thread owner) {
+        long nextFrame = System.nanoTime();
+        int rate = resolveRenderRate();
+        while (gameThread == owner) {
+            if (!activeRendering || (frameSettled && !snapshots.hasFresh())) {
+                snapshots.awaitFresh(50_000_000L);
+                nextFrame = System.nanoTime();
+                rate = resolveRenderRate();
+                continue;
+            }
 
-        // Update player
-        player.update(deltaTime);
-        player.updateDialogue();
+            activeRenderer.renderFrame((g2d, w, h) -> drawLatestSnapshot(g2d), isSwingOverlayVisible());
 
-        for (Enemy enemy : enemies) {
-            enemy.update(player.getX(), player.getY(), player, cameraX, cameraY, this.width, this.height);
-        }
-
-        // Check for dropped item pickup
-        try {
-            java.util.List<int[]> droppedItems = (java.util.List<int[]>) objectM.getClass().getMethod("getDroppedItems").invoke(objectM);
-            for (int i = droppedItems.size() - 1; i >= 0; i--) {
-                int[] pos = droppedItems.get(i);
-                double distance = Math.sqrt(Math.pow(player.getX() - pos[0], 2) + Math.pow(player.getY() - pos[1], 2));
-                if (distance < 150) { // Increased pickup radius for better gameplay
-                    try {
-                        gameInventory.getClass().getMethod("addItem", String.class, int.class).invoke(gameInventory, "sword", 1);
-                        objectM.getClass().getMethod("removeDrop", int.class).invoke(objectM, i);
-                        System.out.println("Picked up sword! Added to inventory.");
-                    } catch (Exception e) {
-                        // Ignore
-                    }
-                }
+            long frameNanos = 1_000_000_000L / rate;
+            nextFrame += frameNanos;
+            long now = System.nanoTime();
+            if (now - nextFrame > frameNanos) {
+                nextFrame = now; // fell behind (slow frame), don't try to catch up
             }
-        } catch (Exception e) {
-            // Ignore if method fails
+            TickScheduler.waitUntil(nextFrame);
         }
+    }
 
-        // Update NPCs
-        for (NPC npc : npcs) {
-            npc.update();
-        }
+    // Swing components that have to be composed over the game frame by the RepaintManager
+    private boolean isSwingOverlayVisible() {
+        return inventoryOpen || dialogueUI.isDialogueVisible() || FadeTransition.isActive();
+    }
 
-        for (SlashAttack slash : player.getSlashes()) {
-            for (Enemy enemy : enemies) {
-                if (enemy.isAlive() && slash.getBounds().intersects(enemy.getBounds()) && !slash.hasHit(enemy)) {
-                    enemy.takeDamage(slash.getDamage());
-                    slash.addHitEnemy(enemy);
-                    System.out.println("Slash dealt " + slash.getDamage() + " damage to enemy!");
-                }
+    private void drawLatestSnapshot(Graphics2D g2d) {
+        // Only one thread may consume from the exchange at a time (render thread or EDT)
+        synchronized (renderLock) {
+            RenderSnapshot snapshot = snapshots.acquire();
+            if (snapshot == null) {
+                g2d.setColor(Color.BLACK);
+                g2d.fillRect(0, 0, this.width, this.height);
+                return;
             }
+            float alpha = snapshot.interpolationAlpha(System.nanoTime());
+            worldRenderer.render(g2d, snapshot, alpha);
+            profiler.frame();
+            frameSettled = alpha >= 1f;
         }
+    }
 
-        for (SkillWAttack skillW : player.getSkillWAttacks()) {
-            for (Enemy enemy : enemies) {
-                if (enemy.isAlive() && skillW.getBounds().intersects(enemy.getBounds()) && !skillW.hasHit(enemy)) {
-                    enemy.takeDamage(skillW.getDamage());
-                    skillW.addHitEnemy(enemy);
-                    System.out.println("SkillW dealt " + skillW.getDamage() + " damage to enemy!");
-                }
+    // Copies everything the renderer needs out of the live simulation state
+    private void captureSnapshot(RenderSnapshot s) {
+        Player player = world.getPlayer();
+        List<Enemy> enemies = world.getEnemies();
+        List<NPC> npcs = world.getNpcs();
+
+        s.tickTimeNanos = scheduler.getCurrentTickTime();
+        s.tickNanos = scheduler.getTickNanos();
+
+        s.viewWidth = this.width;
+        s.viewHeight = this.height;
+        s.cameraX = world.cameraXFor(player.px);
+        s.cameraY = world.cameraYFor(player.py);
+        s.prevCameraX = world.cameraXFor(player.prevPx);
+        s.prevCameraY = world.cameraYFor(player.prevPy);
+        s.inventoryOpen = inventoryOpen;
+
+        // Tiles and objects the frame can show: the view at either end of the camera's move
+        int viewLeft = Math.min(s.cameraX, s.prevCameraX);
+        int viewTop = Math.min(s.cameraY, s.prevCameraY);
+        int viewWidth = Math.abs(s.cameraX - s.prevCameraX) + s.viewWidth;
+        int viewHeight = Math.abs(s.cameraY - s.prevCameraY) + s.viewHeight;
+        world.getTileManager().capture(viewLeft, viewTop, viewWidth, viewHeight, s.tiles);
+        ObjectManager objectM = world.getObjectManager();
+        List<WorldObject> worldObjects = objectM.getObjects();
+        int n = 0;
+        for (int i = 0; i < worldObjects.size(); i++) {
+            WorldObject obj = worldObjects.get(i);
+            if (objectM.isVisible(obj, viewLeft, viewTop, viewWidth, viewHeight)) {
+                s.ensureObjectCapacity(n + 1);
+                s.objects[n++] = obj;
             }
         }
-
-        Rectangle freezeArea = player.getFreezeArea();
-        if (freezeArea != null) {
-            for (Enemy enemy : enemies) {
-                if (enemy.isAlive() && freezeArea.intersects(enemy.getBounds())) {
-                    enemy.freeze(60);
-                    enemy.takeDamage(player.getTotalAttack());
-                    System.out.println("Ice Piercer dealt " + player.getTotalAttack() + " damage to enemy!");
-                }
+        s.objectCount = n;
+
+        s.playerVisible = player.isDrawn();
+        s.playerX = (float) player.px;
+        s.playerY = (float) player.py;
+        s.playerPrevX = (float) player.prevPx;
+        s.playerPrevY = (float) player.prevPy;
+        s.playerSprite = sprites.idOf(player.getRenderImage());
+        s.playerFlags = player.isDying() ? RenderSnapshot.FLAG_DYING : 0;
+        s.playerHp = player.getHp();
+        s.playerMaxHp = player.getMaxHp();
+        s.playerMana = player.getMana();
+        s.playerMaxMana = player.getMaxMana();
+
+        for (int i = 0; i < Hotbar.SLOTS; i++) {
+            int cooldown = hotbar.getCooldown(i, player);
+            int cooldownMax = hotbar.getCooldownMax(i, player);
+            s.hotbarSprite[i] = sprites.idOf(hotbar.getIcon(i));
+            s.hotbarCooldown[i] = cooldown > 0 && cooldownMax > 0 ? (float) cooldown / cooldownMax : 0f;
+            s.hotbarSecondsLeft[i] = cooldown * simTickSeconds;
+        }
+
+        s.ensureEnemyCapacity(enemies.size());
+        n = 0;
+        for (Enemy enemy : enemies) {
+            if (!enemy.isDrawn()) continue;
+            s.enemyX[n] = enemy.getX();
+            s.enemyY[n] = enemy.getY();
+            s.enemyPrevX[n] = (float) enemy.getPrevX();
+            s.enemyPrevY[n] = (float) enemy.getPrevY();
+            s.enemyW[n] = enemy.getWidth();
+            s.enemyH[n] = enemy.getHeight();
+            s.enemySprite[n] = sprites.idOf(enemy.getSprite());
+            byte flags = 0;
+            if (enemy.isFacingLeft() && !enemy.isDying()) flags |= RenderSnapshot.FLAG_FLIP;
+            if (!enemy.isDying() && enemy.getHp() > 0) flags |= RenderSnapshot.FLAG_SHOW_HP;
+            if (enemy.isDying()) flags |= RenderSnapshot.FLAG_DYING;
+            s.enemyFlags[n] = flags;
+            s.enemyHpRatio[n] = (float) enemy.getHpRatio();
+            n++;
+        }
+        s.enemyCount = n;
+
+        s.ensureNpcCapacity(npcs.size());
+        n = 0;
+        for (NPC npc : npcs) {
+            s.npcX[n] = npc.getX();
+            s.npcY[n] = npc.getY();
+            s.npcPrevX[n] = (float) npc.getPrevX();
+            s.npcPrevY[n] = (float) npc.getPrevY();
+            s.npcW[n] = npc.width;
+            s.npcH[n] = npc.height;
+            s.npcSprite[n] = sprites.idOf(npc.getSprite());
+            s.npcIndicatorSprite[n] = sprites.idOf(npc.getIndicatorImage());
+            s.npcName[n] = npc.getName();
+            n++;
+        }
+        s.npcCount = n;
+
+        AttackPool<SlashAttack> slashes = player.getSlashes();
+        AttackPool<SkillWAttack> skillWAttacks = player.getSkillWAttacks();
+        s.ensureEffectCapacity(slashes.size() + skillWAttacks.size());
+        n = 0;
+        for (SlashAttack slash = slashes.first(); slash != null; slash = slash.next()) {
+            s.effectX[n] = slash.x;
+            s.effectY[n] = slash.y;
+            s.effectW[n] = slash.getWidth();
+            s.effectH[n] = slash.getHeight();
+            s.effectSprite[n] = sprites.idOf(slash.getCurrentFrame());
+            s.effectFlags[n] = slash.isFacingLeft() ? RenderSnapshot.FLAG_FLIP : 0;
+            n++;
+        }
+        for (SkillWAttack skillW = skillWAttacks.first(); skillW != null; skillW = skillW.next()) {
+            s.effectX[n] = skillW.x;
+            s.effectY[n] = skillW.y;
+            s.effectW[n] = skillW.getWidth();
+            s.effectH[n] = skillW.getHeight();
+            s.effectSprite[n] = sprites.idOf(skillW.getCurrentFrame());
+            s.effectFlags[n] = skillW.isFacingLeft() ? RenderSnapshot.FLAG_FLIP : 0;
+            n++;
+        }
+        s.effectCount = n;
+
+        // Only the projectiles that may show this frame: there can be thousands in flight
+        ProjectileStore projectiles = world.getProjectiles();
+        int left = Math.min(s.cameraX, s.prevCameraX) - Projectile.SIZE;
+        int top = Math.min(s.cameraY, s.prevCameraY) - Projectile.SIZE;
+        int right = Math.max(s.cameraX, s.prevCameraX) + s.viewWidth + Projectile.SIZE;
+        int bottom = Math.max(s.cameraY, s.prevCameraY) + s.viewHeight + Projectile.SIZE;
+        n = 0;
+        for (int i = 0; i < projectiles.size(); i++) {
+            double x = projectiles.getX(i), y = projectiles.getY(i);
+            double prevX = projectiles.getPrevX(i), prevY = projectiles.getPrevY(i);
+            if (Math.max(x, prevX) < left || Math.min(x, prevX) > right
+                    || Math.max(y, prevY) < top || Math.min(y, prevY) > bottom) {
+                continue;
             }
-            player.clearFreezeArea();
+            s.ensureProjectileCapacity(n + 1);
+            s.projectileX[n] = (float) x;
+            s.projectileY[n] = (float) y;
+            s.projectilePrevX[n] = (float) prevX;
+            s.projectilePrevY[n] = (float) prevY;
+            n++;
         }
+        s.projectileCount = n;
 
-        Rectangle lightningArea = player.getLightningArea();
-        if (lightningArea != null) {
-            for (Enemy enemy : enemies) {
-                if (enemy.isAlive() && lightningArea.intersects(enemy.getBounds())) {
-                    enemy.takeDamage(player.getTotalAttack() * 2);
-                    System.out.println("Lightning Storm dealt " + (player.getTotalAttack() * 2) + " damage to enemy!");
-                }
-            }
-            player.clearLightningArea();
+        n = objectM.getDropCount();
+        s.ensureDropCapacity(n);
+        for (int i = 0; i < n; i++) {
+            s.dropX[i] = objectM.getDropX(i);
+            s.dropY[i] = objectM.getDropY(i);
         }
+        s.dropCount = n;
+
+        s.tick = tickCount;
+    }
 
-        if (!waveActive && !waitingForDialogue && !miniBossSpawned) {
-            startNextWave();
+    public void update() {
+        int bits;
+        if (playback != null) {
+            if (!playback.hasNext()) {
+                finishReplay();
+                return;
+            }
+            InputRecording.Event event;
+            while ((event = playback.pollEvent()) != null) {
+                applyEvent(event);
+            }
+            bits = playback.next();
+        } else {
+            applyPendingEvents();
+            bits = keyH.toBits();
+            if (inventoryOpen || dialogueUI.isDialogueVisible()) {
+                bits |= InputRecording.PAUSED;
+            }
+            if (recording != null) {
+                recording.record(bits);
+            }
         }
 
-        if (waveActive && checkWaveCompleted()) {
-            waveActive = false;
-            waitingForDialogue = true;
-            triggerWaveDialogue();
+        if ((bits & InputRecording.PAUSED) != 0) {
+            return;
         }
 
-        if (waitingForDialogue && !dialogueUI.isDialogueVisible()) {
-            onDialogueFinished();
+        simKeys.setBits(bits);
+        dialoguePending = false;
+        world.update(simTickSeconds);
+        if (playback == null) {
+            // One press = one skill use: release the skill keys the player just acted on
+            keyH.clearBits(bits & ~simKeys.toBits());
         }
 
-        if (!player.isAlive() && player.isDeathAnimationFinished()) {
+        if (world.isGameOver()) {
             gameThread = null;
+            saveRecording();
+            // Rendered from a private snapshot; the exchange buffers belong to the render thread
+            RenderSnapshot finalFrame = new RenderSnapshot();
+            captureSnapshot(finalFrame);
             BufferedImage screenshot = new BufferedImage(this.width, this.height, BufferedImage.TYPE_INT_ARGB);
             Graphics2D g2d = screenshot.createGraphics();
-            paintComponent(g2d);
+            synchronized (renderLock) { // the renderer's caches aren't thread-safe
+                worldRenderer.render(g2d, finalFrame, 1f);
+            }
             g2d.dispose();
 
             gameOverCallback.onGameOver(screenshot);
-            return;
         }
     }
 
-    private void onDialogueFinished() {
-        waitingForDialogue = false;
-        if (currentWave >= 5 && miniBossSpawned) {
-            tileM.setTile(32, 6, 0);
-            System.out.println("Congratulations! All waves completed! The sacred tree has opened!");
+    private void setupReplayAndRecording(long seed) {
+        String replayPath = System.getProperty("game.replay");
+        if (replayPath != null) {
+            try {
+                replay = InputRecording.load(Paths.get(replayPath));
+                playback = replay.playback();
+                simTickSeconds = 1.0f / replay.getTickRate();
+                // Replays can run faster than real time: -Dgame.replaySpeed=4
+                double speed = Double.parseDouble(System.getProperty("game.replaySpeed", "1"));
+                scheduler.setTickRate((int) Math.max(1, Math.round(replay.getTickRate() * speed)));
+                System.out.println("Replaying " + replay.getTickCount() + " ticks from " + replayPath);
+                return;
+            } catch (Exception e) {
+                System.err.println("Failed to load replay " + replayPath + ": " + e.getMessage());
+                replay = null;
+            }
         }
-    }
 
-    private void loadSkillIcons() {
-        try {
-            skillIcePiercerIcon = new ImageIcon(getClass().getResource("/assets/ui/skill_icepiercer.png")).getImage();
-            skillLightningStormIcon = new ImageIcon(getClass().getResource("/assets/ui/skill_lightningstorm.png")).getImage();
-            skillFireSplashIcon = new ImageIcon(getClass().getResource("/assets/ui/skill_firesplash.png")).getImage();
-            swordIcon = new ImageIcon(getClass().getResource("/assets/icons/Icon33.png")).getImage();
-        } catch (Exception e) {
-            System.err.println("Failed to load icons: " + e.getMessage());
-            skillIcePiercerIcon = null;
-            skillLightningStormIcon = null;
-            skillFireSplashIcon = null;
-            swordIcon = null;
+        recordPath = System.getProperty("game.record");
+        if (recordPath != null) {
+            recording = new InputRecording(seed, scheduler.getTickRate());
+            // Closing the window is the usual way a session ends
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                Thread running = gameThread;
+                gameThread = null;
+                if (running != null) {
+                    try {
+                        running.join(1000);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                saveRecording();
+            }, "RecordingSaver"));
         }
     }
 
-    // Wave system methods
-    private void startNextWave() {
-        currentWave++;
-        waveActive = true;
-        enemies.clear();
-
-        if (currentWave <= 5) {
-            spawnWaveEnemies(currentWave);
-        } else if (!miniBossSpawned) {
-            spawnMiniBoss();
-            miniBossSpawned = true;
-        }
-
-        for (Enemy enemy : enemies) {
-            enemy.setTileManager(tileM);
-            enemy.setInventory(gameInventory);
-            enemy.setObjectManager(objectM);
+    // Requests from the EDT, applied (and recorded) at a tick boundary
+    private void applyPendingEvents() {
+        if (resetPending) {
+            resetPending = false;
+            world.resetPlayer();
+            if (recording != null) recording.addPlayerReset();
+        }
+        String itemId;
+        while ((itemId = pendingItemUses.poll()) != null) {
+            world.useItem(itemId);
+            if (recording != null) recording.addItemUse(itemId);
+        }
+        int w = this.width;
+        int h = this.height;
+        if (w != simViewWidth || h != simViewHeight) {
+            simViewWidth = w;
+            simViewHeight = h;
+            world.setViewSize(w, h);
+            if (recording != null) recording.addViewSize(w, h);
         }
-
-        System.out.println("Wave " + currentWave + " started!");
     }
 
-    private void spawnWaveEnemies(int waveNumber) {
-        int enemyCount = 5 + (waveNumber - 1) * 3;
-        Enemy.EnemyType[] enemyTypes = getEnemyTypesForWave(waveNumber);
-
-        int[][] spawnPositions = {
-            {200, 2300}, {400, 2320}, {600, 2280}, {800, 2350}, {1000, 2310},
-            {1200, 2290}, {1400, 2330}, {1600, 2270}, {1800, 2340}, {2000, 2300},
-            {2200, 2320}, {240, 2280}, {440, 2350}, {640, 2310}, {840, 2290},
-            {1040, 2330}, {1240, 2270}, {1440, 2340}, {1640, 2300}, {1840, 2320},
-            {2040, 2280}, {2240, 2350}, {2440, 2310}, {2640, 2290}, {2840, 2330}
-        };
-
-        for (int i = 0; i < enemyCount && i < spawnPositions.length; i++) {
-            Enemy.EnemyType type = enemyTypes[i % enemyTypes.length];
-            enemies.add(new Enemy(spawnPositions[i][0], spawnPositions[i][1], type));
+    private void applyEvent(InputRecording.Event event) {
+        switch (event.type) {
+            case InputRecording.EVENT_USE_ITEM: world.useItem(event.itemId); break;
+            case InputRecording.EVENT_VIEW_SIZE: world.setViewSize(event.width, event.height); break;
+            case InputRecording.EVENT_RESET_PLAYER: world.resetPlayer(); break;
+            default: break;
         }
-
-        System.out.println("Wave " + waveNumber + ": Spawned " + enemyCount + " enemies");
     }
 
-    private Enemy.EnemyType[] getEnemyTypesForWave(int waveNumber) {
-        switch (waveNumber) {
-            case 1: return new Enemy.EnemyType[]{Enemy.EnemyType.BASIC};
-            case 2: return new Enemy.EnemyType[]{Enemy.EnemyType.BASIC, Enemy.EnemyType.FAST};
-            case 3: return new Enemy.EnemyType[]{Enemy.EnemyType.BASIC, Enemy.EnemyType.TANK};
-            case 4: return new Enemy.EnemyType[]{Enemy.EnemyType.FAST, Enemy.EnemyType.TANK, Enemy.EnemyType.MINOTAUR};
-            case 5: return new Enemy.EnemyType[]{Enemy.EnemyType.BASIC, Enemy.EnemyType.FAST, Enemy.EnemyType.TANK, Enemy.EnemyType.MINOTAUR};
-            default: return new Enemy.EnemyType[]{Enemy.EnemyType.BASIC};
+    private void finishReplay() {
+        gameThread = null;
+        long checksum = world.checksum();
+        if (replay.getChecksum() == 0) {
+            System.out.println("Replay finished");
+        } else if (replay.getChecksum() == checksum) {
+            System.out.println("Replay finished, matches the recording");
+        } else {
+            System.out.println("Replay finished but diverged from the recording");
         }
     }
 
-    private void spawnMiniBoss() {
-        enemies.add(new Enemy(1200, 2300, Enemy.EnemyType.MINI_BOSS));
-        System.out.println("Mini Boss spawned!");
-    }
-
-    private boolean checkWaveCompleted() {
-        for (Enemy enemy : enemies) {
-            if (enemy.isAlive()) {
-                return false;
-            }
-        }
-        return true;
-    }
-
-    private void triggerWaveDialogue() {
-        List<String> dialogueLines = new ArrayList<>();
-
-        if (currentWave <= 5) {
-            switch (currentWave) {
-                case 1: dialogueLines.add("Old Man: Well done, young warrior! You've survived the first wave.");
-                        dialogueLines.add("Old Man: But don't get complacent. The creatures grow stronger.");
-                        dialogueLines.add("Old Man: Prepare yourself for what's coming next.");
-                        break;
-                case 2: dialogueLines.add("Old Man: Impressive! The second wave falls before you.");
-                        dialogueLines.add("Old Man: These beasts are learning from their defeats.");
-                        dialogueLines.add("Old Man: Stay sharp and watch your surroundings.");
-                        break;
-                case 3: dialogueLines.add("Old Man: You continue to surprise me with your prowess.");
-                        dialogueLines.add("Old Man: The third wave was no match for your skills.");
-                        dialogueLines.add("Old Man: But I sense a greater darkness approaching...");
-                        break;
-                case 4: dialogueLines.add("Old Man: Four waves down! You're proving to be quite the formidable opponent.");
-                        dialogueLines.add("Old Man: The enemies grow desperate, and with desperation comes danger.");
-                        dialogueLines.add("Old Man: One more wave before the true test begins.");
-                        break;
-                case 5: dialogueLines.add("Old Man: The fifth wave is vanquished! You've done what few could.");
-                        dialogueLines.add("Old Man: But this was merely a prelude. The real battle awaits.");
-                        dialogueLines.add("Old Man: A fearsome creature approaches. Prepare for the ultimate challenge!");
-                        break;
-            }
-        } else {
-            dialogueLines.add("Old Man: Unbelievable! You've defeated the ancient guardian!");
-            dialogueLines.add("Old Man: Such power... such determination. You are truly worthy.");
-            dialogueLines.add("Old Man: The darkness has been pushed back, for now.");
-            dialogueLines.add("Old Man: Rest well, hero. The realm owes you its gratitude.");
+    private void saveRecording() {
+        if (recording == null) return;
+        recording.setChecksum(world.checksum());
+        try {
+            recording.save(Paths.get(recordPath));
+            System.out.println("Saved input recording (" + recording.getTickCount() + " ticks) to " + recordPath);
+        } catch (java.io.IOException e) {
+            System.err.println("Failed to save input recording: " + e.getMessage());
         }
-
-        dialogueUI.startDialogue("Yorme", dialogueLines);
-        setupDialogueCallback();
     }
 
-    private void setupDialogueCallback() {
-        waitingForDialogue = true;
+    private void loadSkillIcons() {
+        try {
+            skillIcePiercerIcon = new ImageIcon(getClass().getResource("/assets/ui/skill_icepiercer.png")).getImage();
+            skillLightningStormIcon = new ImageIcon(getClass().getResource("/assets/ui/skill_lightningstorm.png")).getImage();
+            skillFireSplashIcon = new ImageIcon(getClass().getResource("/assets/ui/skill_firesplash.png")).getImage();
+            swordIcon = new ImageIcon(getClass().getResource("/assets/icons/Icon33.png")).getImage();
+        } catch (Exception e) {
+            System.err.println("Failed to load icons: " + e.getMessage());
+            skillIcePiercerIcon = null;
+            skillLightningStormIcon = null;
+            skillFireSplashIcon = null;
+            swordIcon = null;
+        }
     }
 
     @Override
     protected void paintComponent(Graphics g) {
         super.paintComponent(g);
-        Graphics2D g2d = (Graphics2D) g;
-
-        if (inventoryOpen) {
-            return;
-        }
-
-        // Calculate camera position to center on the player
-        int cameraX = (int) player.px - this.width / 2;
-        int cameraY = (int) player.py - this.height / 2;
-
-        // Clamp camera to map bounds to prevent white background
-        int mapPixelWidth = tileM.getMapWidth() * TILE_SIZE;
-        int mapPixelHeight = tileM.getMapHeight() * TILE_SIZE;
-        cameraX = Math.max(0, Math.min(cameraX, mapPixelWidth - this.width));
-        cameraY = Math.max(0, Math.min(cameraY, mapPixelHeight - this.height));
 
-        // Draw tiles using TileManager with camera offset
-        tileM.draw(g2d, cameraX, cameraY, this.width, this.height);
-
-        // Draw world objects
-        objectM.draw(g2d, cameraX, cameraY, this.width, this.height);
-
-        // Draw dropped items (larger for better visibility)
-        try {
-            java.util.List<int[]> drops = (java.util.List<int[]>) objectM.getClass().getMethod("getDroppedItems").invoke(objectM);
-            for (int[] pos : drops) {
-                int screenX = pos[0] - cameraX;
-                int screenY = pos[1] - cameraY;
-                if (swordIcon != null) {
-                    // Make sword icon larger and more visible
-                    g2d.drawImage(swordIcon, screenX - 24, screenY - 24, 48, 48, null);
-                    // Add a subtle glow effect
-                    g2d.setColor(new Color(255, 215, 0, 100)); // Gold glow
-                    g2d.fillOval(screenX - 20, screenY - 20, 40, 40);
-                } else {
-                    // Bright yellow circle fallback
-                    g2d.setColor(Color.YELLOW);
-                    g2d.fillOval(screenX - 15, screenY - 15, 30, 30);
-                    g2d.setColor(Color.BLACK);
-                    g2d.drawOval(screenX - 15, screenY - 15, 30, 30);
-                }
-                // Add "SWORD" label
-                g2d.setColor(Color.WHITE);
-                g2d.setFont(new Font("Arial", Font.BOLD, 10));
-                g2d.drawString("SWORD", screenX - 15, screenY + 30);
+        // In active mode the render thread has already drawn the frame; just show it
+        if (activeRendering) {
+            if (!activeRenderer.blitTo(g)) {
+                g.setColor(Color.BLACK);
+                g.fillRect(0, 0, getWidth(), getHeight());
             }
-        } catch (Exception e) {
-            // Ignore
-        }
-
-        // Adjust player's draw position based on camera
-        int playerScreenX = (int) player.px - cameraX;
-        int playerScreenY = (int) player.py - cameraY;
-
-        // Draw player
-        player.draw(g, playerScreenX, playerScreenY);
-
-        // Draw enemies (make a copy to avoid ConcurrentModificationException)
-        List<Enemy> enemiesCopy = new ArrayList<>(enemies);
-        for (Enemy enemy : enemiesCopy) {
-            int enemyScreenX = enemy.getX() - cameraX;
-            int enemyScreenY = enemy.getY() - cameraY;
-            enemy.draw(g, enemyScreenX, enemyScreenY, player);
+            return;
         }
-
-        // Draw NPCs
-        for (NPC npc : npcs) {
-            int npcScreenX = npc.getX() - cameraX;
-            int npcScreenY = npc.getY() - cameraY;
-            npc.draw(g, npcScreenX, npcScreenY);
-        }
-
-        // === SKILL ANIMATIONS ===
-        // Draw Slash Q skill attacks
-        for (SlashAttack s : player.getSlashes()) {
-            int slashScreenX = s.x - cameraX;
-            int slashScreenY = s.y - cameraY;
-            s.draw(g, slashScreenX, slashScreenY);
-        }
-        // Draw Skill W attacks
-        for (SkillWAttack s : player.getSkillWAttacks()) {
-            int skillWScreenX = s.x - cameraX;
-            int skillWScreenY = s.y - cameraY;
-            s.draw(g, skillWScreenX, skillWScreenY);
-        }
-
-        // Draw player status bars at top left
-        drawPlayerStatusBars(g2d);
-
-        // Draw hotbar (now shows skill items from inventory)
-        hotbar.draw(g2d);
-
-        // Do not dispose g2d here as JLayeredPane might manage its own children's painting.
-        // The dispose will be called automatically by the Swing system.
-    }
-
-    private void drawPlayerStatusBars(Graphics2D g2d) {
-        // Position at top left corner
-        int iconSize = 40; // Slightly larger for better visibility
-        int barWidth = 160; // Slightly wider for better proportion
-        int barHeight = 14; // Slightly taller for rounded look
-        int arcWidth = barHeight; // Full height for pill shape
-        int arcHeight = barHeight;
-        int margin = 10;
-        int startX = margin;
-        int startY = margin;
-
-        // Draw player icon
-        if (playerPortrait != null) {
-            // Scale the icon to fit the UI properly
-            g2d.drawImage(playerPortrait, startX, startY, iconSize, iconSize, null);
-        } else {
-            // Fallback: draw a simple colored circle
-            g2d.setColor(Color.BLUE);
-            g2d.fillOval(startX, startY, iconSize, iconSize);
-            g2d.setColor(Color.WHITE);
-            g2d.drawOval(startX, startY, iconSize, iconSize);
-        }
-
-        // Position bars to the right of the icon
-        int barsX = startX + iconSize + margin;
-        int hpBarY = startY + 4;
-        int manaBarY = hpBarY + barHeight + 8;
-
-        // Draw HP bar background (rounded, clean design)
-        g2d.setColor(new Color(64, 64, 64, 200)); // Semi-transparent dark gray background
-        g2d.fillRoundRect(barsX, hpBarY, barWidth, barHeight, arcWidth, arcHeight);
-        g2d.setColor(Color.WHITE);
-        g2d.drawRoundRect(barsX, hpBarY, barWidth, barHeight, arcWidth, arcHeight);
-
-        // Draw HP bar fill (rounded, no text)
-        g2d.setColor(Color.GREEN);
-        int hpWidth = Math.max(barHeight, (int) (barWidth * ((double) player.getHp() / player.getMaxHp())));
-        g2d.fillRoundRect(barsX, hpBarY, hpWidth, barHeight, arcWidth, arcHeight);
-
-        // Draw Mana bar background (rounded, clean design)
-        g2d.setColor(new Color(64, 64, 64, 200)); // Semi-transparent dark gray background
-        g2d.fillRoundRect(barsX, manaBarY, barWidth, barHeight, arcWidth, arcHeight);
-        g2d.setColor(Color.WHITE);
-        g2d.drawRoundRect(barsX, manaBarY, barWidth, barHeight, arcWidth, arcHeight);
-
-        // Draw Mana bar fill (rounded, no text)
-        g2d.setColor(Color.BLUE);
-        int manaWidth = Math.max(barHeight, (int) (barWidth * ((double) player.getMana() / player.getMaxMana())));
-        g2d.fillRoundRect(barsX, manaBarY, manaWidth, barHeight, arcWidth, arcHeight);
+        drawLatestSnapshot((Graphics2D) g);
     }
 
     // Define a functional interface for the game over callback
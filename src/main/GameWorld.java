@@ -0,0 +1,521 @@
+package main;
+
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import input.KeyHandler;
+import entities.Enemy;
+import entities.EnemyScheduler;
+import entities.EnemyStore;
+import entities.Inventory;
+import entities.NPC;
+import entities.Player;
+import entities.ProjectileStore;
+import entities.SlashAttack;
+import entities.SkillWAttack;
+import entities.Ticks;
+import tile.TileManager;
+import world.EntityRegistry;
+import world.FlowField;
+import world.ObjectManager;
+import world.SpatialHash;
+
+// The game simulation with no Swing in it: player, enemies, NPCs, skill-hit resolution and
+// the wave system. GameLoop drives it on the game thread and draws it; HeadlessRunner drives
+// it with no display at all. Anything that needs a UI goes through Host.
+//
+// Every random draw in the simulation comes from one Random seeded at construction, so the
+// same seed plus the same per-tick input (see input.InputRecording) gives the same run.
+public class GameWorld {
+
+    public static final int TILE_SIZE = TileManager.TILE_SIZE;
+
+    // What the simulation needs from whoever is hosting it
+    public interface Host {
+        boolean isDialogueVisible();
+        void startDialogue(String speaker, List<String> lines);
+    }
+
+    private final Host host;
+    private final KeyHandler keyH;
+    private final long seed;
+    private final Random random;
+    private final TileManager tileM;
+    private final ObjectManager objectM;
+    private Player player;
+    private final EnemyStore enemyStore = new EnemyStore(); // the enemies still on the field
+    private final ProjectileStore projectiles = new ProjectileStore(); // everything in flight
+    private final List<NPC> npcs;
+    // Handles to the enemies on the field, the NPCs and the drops, for references between them
+    private final EntityRegistry registry = new EntityRegistry();
+    // Enemies and NPCs bucketed by position, rebuilt every tick for hit and proximity checks
+    private final SpatialHash<Enemy> enemyGrid = new SpatialHash<>();
+    private final SpatialHash<NPC> npcGrid = new SpatialHash<>();
+    private final FlowField flowField; // Paths toward the player, shared by every enemy
+    // Enemies away from the camera think less often, or not at all (-Dgame.enemyLod=false: all
+    // every tick); -Dgame.parallelEnemies=true spreads their thinking over the cores
+    private final EnemyScheduler enemyScheduler = new EnemyScheduler();
+    private Inventory inventory; // InventoryUI, or HeadlessRunner.Inventory; null: drops stay on the ground
+    private Object dialogueUI; // the game's DialogueUI; null when headless or replaying
+    private FrameProfiler profiler = new FrameProfiler(); // disabled unless setProfiler() hands in a live one
+
+    // Ticks per second, from the deltaTime update() is called with; the enemies and NPCs count
+    // their timers and take their steps at this rate (the player works it out itself)
+    private int tickRate = Ticks.TUNED_RATE;
+
+    // Viewport the camera follows the player with; enemies only chase what is on screen
+    private int viewWidth = 800;
+    private int viewHeight = 600;
+
+    // Wave system
+    private int currentWave = 0;
+    private boolean waveActive = false;
+    private boolean waitingForDialogue = false;
+    private boolean miniBossSpawned = false;
+
+    public GameWorld(KeyHandler keyH, Host host, long seed) {
+        this.keyH = keyH;
+        this.host = host;
+        this.seed = seed;
+        this.random = new Random(seed);
+
+        tileM = new TileManager(this);
+        objectM = new ObjectManager(tileM, random);
+        objectM.setRegistry(registry);
+        flowField = new FlowField(tileM);
+        enemyScheduler.setLod(!"false".equals(System.getProperty("game.enemyLod")));
+        enemyScheduler.setParallel(Boolean.getBoolean("game.parallelEnemies"));
+
+        player = new Player(400, 400, keyH);
+
+        enemyStore.setTileManager(tileM);
+        enemyStore.setObjectManager(objectM);
+        enemyStore.setRandom(random);
+        enemyStore.setFlowField(flowField);
+        enemyStore.setRegistry(registry);
+        enemyStore.add(new Enemy(600, 800, Enemy.EnemyType.BASIC));
+        enemyStore.add(new Enemy(700, 850, Enemy.EnemyType.BASIC));
+
+        npcs = new ArrayList<>();
+        npcs.add(new NPC(1200, 480));
+        npcs.get(0).setTileManager(tileM);
+        for (NPC npc : npcs) {
+            npc.setHandle(registry.create(EntityRegistry.NPC, npc));
+        }
+        wirePlayer();
+
+        objectM.setNPCs(npcs);
+    }
+
+    // Hands the current player everything in the world it works with, and the player to the
+    // NPC that talks to it. For the first player and every one resetPlayer() makes.
+    private void wirePlayer() {
+        player.setTileManager(tileM);
+        player.setObjectManager(objectM);
+        player.setRandom(random);
+        player.setNPCs(npcs);
+        player.setNPCGrid(npcGrid);
+        player.setInventory(inventory);
+        if (dialogueUI != null) {
+            player.setDialogueUI(dialogueUI);
+        }
+        npcs.get(0).setPlayer(player);
+    }
+
+    public void setInventory(Inventory inventory) {
+        this.inventory = inventory;
+        player.setInventory(inventory);
+        enemyStore.setInventory(inventory);
+    }
+
+    public void setDialogueUI(Object dialogueUI) {
+        this.dialogueUI = dialogueUI;
+        player.setDialogueUI(dialogueUI);
+    }
+
+    public void setProfiler(FrameProfiler profiler) {
+        this.profiler = profiler;
+    }
+
+    public FrameProfiler getProfiler() {
+        return profiler;
+    }
+
+    public void setEnemyLod(boolean enemyLod) {
+        enemyScheduler.setLod(enemyLod);
+    }
+
+    // Same results either way, so this can be flipped at any time, from any thread
+    public void setParallelEnemies(boolean parallel) {
+        enemyScheduler.setParallel(parallel);
+    }
+
+    public boolean isParallelEnemies() {
+        return enemyScheduler.isParallel();
+    }
+
+    public void setViewSize(int viewWidth, int viewHeight) {
+        this.viewWidth = viewWidth;
+        this.viewHeight = viewHeight;
+    }
+
+    // New player at the start position; waves and enemies carry on as they were
+    public void resetPlayer() {
+        player = new Player(400, 400, keyH);
+        wirePlayer();
+    }
+
+    // Inventory item used by the player (clicked in the inventory)
+    public void useItem(String itemId) {
+        if ("potion_blue".equals(itemId)) {
+            int oldMana = player.getMana();
+            player.restoreMana(50);
+            System.out.println("Used Mana Potion: Mana " + oldMana + " -> " + player.getMana());
+        } else if (itemId.equals("sword")) {
+            // Equip sword: add attack boost
+            player.setEquippedStats(player.getEquippedAttack() + 15, player.getEquippedDefense());
+            System.out.println("Equipped sword, attack increased by 15");
+        }
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    // Cheap fingerprint of the simulation state, to check that a replay ended up where the
+    // recorded run did
+    public long checksum() {
+        long h = seed;
+        h = h * 31 + Double.doubleToLongBits(player.px);
+        h = h * 31 + Double.doubleToLongBits(player.py);
+        h = h * 31 + player.getHp();
+        h = h * 31 + player.getMana();
+        h = h * 31 + currentWave;
+        h = h * 31 + enemyStore.size();
+        for (int i = 0; i < enemyStore.size(); i++) {
+            h = h * 31 + enemyStore.getX(i);
+            h = h * 31 + enemyStore.getY(i);
+            h = h * 31 + enemyStore.getHp(i);
+        }
+        for (int i = 0; i < projectiles.size(); i++) {
+            h = h * 31 + Double.doubleToLongBits(projectiles.getX(i));
+            h = h * 31 + Double.doubleToLongBits(projectiles.getY(i));
+        }
+        h = h * 31 + objectM.getDropCount();
+        return h;
+    }
+
+    public Player getPlayer() {
+        return player;
+    }
+
+    // The enemies on the field, in the order they were spawned; a view that follows the store
+    public List<Enemy> getEnemies() {
+        return enemyStore.enemies();
+    }
+
+    // To put enemies on the field other than through the waves (benchmarks)
+    public EnemyStore getEnemyStore() {
+        return enemyStore;
+    }
+
+    public List<NPC> getNpcs() {
+        return npcs;
+    }
+
+    public TileManager getTileManager() {
+        return tileM;
+    }
+
+    public ObjectManager getObjectManager() {
+        return objectM;
+    }
+
+    public EntityRegistry getRegistry() {
+        return registry;
+    }
+
+    public FlowField getFlowField() {
+        return flowField;
+    }
+
+    // Fire projectiles with projectiles.fire(); they fly and hit as part of update()
+    public ProjectileStore getProjectiles() {
+        return projectiles;
+    }
+
+    public int getCurrentWave() {
+        return currentWave;
+    }
+
+    public boolean isGameOver() {
+        return !player.isAlive() && player.isDeathAnimationFinished();
+    }
+
+    // Mini boss beaten and the closing dialogue done
+    public boolean isCompleted() {
+        return miniBossSpawned && !waveActive && !waitingForDialogue;
+    }
+
+    // Camera centred on the player, clamped to the map
+    public int cameraXFor(double playerX) {
+        int mapPixelWidth = tileM.getMapWidth() * TILE_SIZE;
+        return Math.max(0, Math.min((int) playerX - viewWidth / 2, mapPixelWidth - viewWidth));
+    }
+
+    public int cameraYFor(double playerY) {
+        int mapPixelHeight = tileM.getMapHeight() * TILE_SIZE;
+        return Math.max(0, Math.min((int) playerY - viewHeight / 2, mapPixelHeight - viewHeight));
+    }
+
+    // Remember where everything was before this tick moves it, so frames drawn between two
+    // ticks can be interpolated. Called even while paused, which keeps a frozen scene still.
+    public void storePreviousPositions() {
+        player.storePreviousPosition();
+        enemyStore.storePreviousPositions();
+        projectiles.storePreviousPositions();
+        for (int i = 0; i < npcs.size(); i++) {
+            npcs.get(i).storePreviousPosition();
+        }
+    }
+
+    // One simulation step. The host decides when the game is paused and doesn't call this.
+    public void update(float deltaTime) {
+        long start = profiler.start();
+        long t = start;
+        int rate = Ticks.rateOf(deltaTime);
+        if (rate != tickRate) {
+            tickRate = rate;
+            enemyStore.setTickRate(rate);
+            for (int i = 0; i < npcs.size(); i++) {
+                npcs.get(i).setTickRate(rate);
+            }
+        }
+        int cameraX = cameraXFor(player.px);
+        int cameraY = cameraYFor(player.py);
+        tileM.streamAround(cameraX, cameraY, viewWidth, viewHeight); // big maps load as the camera nears
+
+        // Update player
+        rebuildNPCGrid();
+        player.update(deltaTime);
+        player.updateDialogue();
+        t = profiler.lap(FrameProfiler.PLAYER, t);
+
+        flowField.update(player.getX(), player.getY()); // searches again only when the player changed tile
+        enemyScheduler.update(enemyStore, player, cameraX, cameraY, viewWidth, viewHeight);
+        t = profiler.lap(FrameProfiler.ENEMIES, t);
+
+        projectiles.update(tileM);
+        t = profiler.lap(FrameProfiler.PROJECTILES, t);
+
+        // Check for dropped item pickup
+        // Backwards, so the drop removeDrop moves into i has been looked at already
+        for (int i = objectM.getDropCount() - 1; i >= 0 && inventory != null; i--) {
+            double dx = player.getX() - objectM.getDropX(i);
+            double dy = player.getY() - objectM.getDropY(i);
+            if (dx * dx + dy * dy < 150 * 150) { // Increased pickup radius for better gameplay
+                inventory.addItem("sword", 1);
+                objectM.removeDrop(i);
+                System.out.println("Picked up sword! Added to inventory.");
+            }
+        }
+        t = profiler.lap(FrameProfiler.PICKUP, t);
+
+        // Update NPCs
+        for (int i = 0; i < npcs.size(); i++) {
+            npcs.get(i).update();
+        }
+        t = profiler.lap(FrameProfiler.NPCS, t);
+
+        resolveHits();
+        t = profiler.lap(FrameProfiler.HITS, t);
+
+        if (!waveActive && !waitingForDialogue && !miniBossSpawned) {
+            startNextWave();
+        }
+
+        if (waveActive && checkWaveCompleted()) {
+            waveActive = false;
+            waitingForDialogue = true;
+            triggerWaveDialogue();
+        }
+
+        if (waitingForDialogue && !host.isDialogueVisible()) {
+            onDialogueFinished();
+        }
+        profiler.lap(FrameProfiler.WAVES, t);
+        profiler.lap(FrameProfiler.UPDATE, start);
+    }
+
+    private void rebuildNPCGrid() {
+        npcGrid.clear();
+        for (int i = 0; i < npcs.size(); i++) {
+            NPC npc = npcs.get(i);
+            npcGrid.add(npc, npc.getX(), npc.getY(), npc.width, npc.height);
+        }
+        npcGrid.build();
+    }
+
+    // Player attacks (slashes, skill W, freeze and lightning areas, projectiles) against living
+    // enemies, and enemy projectiles against the player. Each attack only looks at the enemies
+    // the grid finds under it: the grid holds the store's slots with their bounds, so what it
+    // finds is what the attack hits, in slot order.
+    public void resolveHits() {
+        EnemyStore enemies = enemyStore;
+        enemyGrid.clear();
+        enemies.addTo(enemyGrid);
+        enemyGrid.build();
+
+        for (SlashAttack slash = player.getSlashes().first(); slash != null; slash = slash.next()) {
+            int found = enemyGrid.queryRect(slash.x, slash.y, slash.getWidth(), slash.getHeight());
+            for (int k = 0; k < found; k++) {
+                int i = enemyGrid.matchAt(k);
+                if (enemies.isAlive(i) && !slash.hasHit(enemies.handleAt(i))) {
+                    enemies.takeDamage(i, slash.getDamage());
+                    slash.addHitEnemy(enemies.handleAt(i));
+                }
+            }
+        }
+
+        for (SkillWAttack skillW = player.getSkillWAttacks().first(); skillW != null; skillW = skillW.next()) {
+            int found = enemyGrid.queryRect(skillW.x, skillW.y, skillW.getWidth(), skillW.getHeight());
+            for (int k = 0; k < found; k++) {
+                int i = enemyGrid.matchAt(k);
+                if (enemies.isAlive(i) && !skillW.hasHit(enemies.handleAt(i))) {
+                    enemies.takeDamage(i, skillW.getDamage());
+                    skillW.addHitEnemy(enemies.handleAt(i));
+                }
+            }
+        }
+
+        Rectangle freezeArea = player.getFreezeArea();
+        if (freezeArea != null) {
+            int found = enemyGrid.queryRect(freezeArea.x, freezeArea.y, freezeArea.width, freezeArea.height);
+            for (int k = 0; k < found; k++) {
+                int i = enemyGrid.matchAt(k);
+                if (enemies.isAlive(i)) {
+                    enemies.freeze(i, Ticks.of(1, tickRate)); // for a second
+                    enemies.takeDamage(i, player.getTotalAttack());
+                }
+            }
+            player.clearFreezeArea();
+        }
+
+        Rectangle lightningArea = player.getLightningArea();
+        if (lightningArea != null) {
+            int found = enemyGrid.queryRect(lightningArea.x, lightningArea.y, lightningArea.width, lightningArea.height);
+            for (int k = 0; k < found; k++) {
+                int i = enemyGrid.matchAt(k);
+                if (enemies.isAlive(i)) {
+                    enemies.takeDamage(i, player.getTotalAttack() * 2);
+                }
+            }
+            player.clearLightningArea();
+        }
+
+        projectiles.resolveHits(enemyGrid, enemies, player);
+    }
+
+    private void onDialogueFinished() {
+        waitingForDialogue = false;
+        if (currentWave >= 5 && miniBossSpawned) {
+            tileM.setTile(32, 6, 0);
+            System.out.println("Congratulations! All waves completed! The sacred tree has opened!");
+        }
+    }
+
+    // Wave system methods
+    private void startNextWave() {
+        currentWave++;
+        waveActive = true;
+        enemyStore.clear();
+
+        if (currentWave <= 5) {
+            spawnWaveEnemies(currentWave);
+        } else if (!miniBossSpawned) {
+            spawnMiniBoss();
+            miniBossSpawned = true;
+        }
+
+        enemyScheduler.reset();
+
+        System.out.println("Wave " + currentWave + " started!");
+    }
+
+    private void spawnWaveEnemies(int waveNumber) {
+        int enemyCount = 5 + (waveNumber - 1) * 3;
+        Enemy.EnemyType[] enemyTypes = getEnemyTypesForWave(waveNumber);
+
+        int[][] spawnPositions = {
+            {200, 2300}, {400, 2320}, {600, 2280}, {800, 2350}, {1000, 2310},
+            {1200, 2290}, {1400, 2330}, {1600, 2270}, {1800, 2340}, {2000, 2300},
+            {2200, 2320}, {240, 2280}, {440, 2350}, {640, 2310}, {840, 2290},
+            {1040, 2330}, {1240, 2270}, {1440, 2340}, {1640, 2300}, {1840, 2320},
+            {2040, 2280}, {2240, 2350}, {2440, 2310}, {2640, 2290}, {2840, 2330}
+        };
+
+        for (int i = 0; i < enemyCount && i < spawnPositions.length; i++) {
+            Enemy.EnemyType type = enemyTypes[i % enemyTypes.length];
+            enemyStore.add(new Enemy(spawnPositions[i][0], spawnPositions[i][1], type));
+        }
+
+        System.out.println("Wave " + waveNumber + ": Spawned " + enemyCount + " enemies");
+    }
+
+    private Enemy.EnemyType[] getEnemyTypesForWave(int waveNumber) {
+        switch (waveNumber) {
+            case 1: return new Enemy.EnemyType[]{Enemy.EnemyType.BASIC};
+            case 2: return new Enemy.EnemyType[]{Enemy.EnemyType.BASIC, Enemy.EnemyType.FAST};
+            case 3: return new Enemy.EnemyType[]{Enemy.EnemyType.BASIC, Enemy.EnemyType.TANK};
+            case 4: return new Enemy.EnemyType[]{Enemy.EnemyType.FAST, Enemy.EnemyType.TANK, Enemy.EnemyType.MINOTAUR};
+            case 5: return new Enemy.EnemyType[]{Enemy.EnemyType.BASIC, Enemy.EnemyType.FAST, Enemy.EnemyType.TANK, Enemy.EnemyType.MINOTAUR};
+            default: return new Enemy.EnemyType[]{Enemy.EnemyType.BASIC};
+        }
+    }
+
+    private void spawnMiniBoss() {
+        enemyStore.add(new Enemy(1200, 2300, Enemy.EnemyType.MINI_BOSS));
+        System.out.println("Mini Boss spawned!");
+    }
+
+    private boolean checkWaveCompleted() {
+        return enemyStore.size() == 0; // dead enemies leave the store
+    }
+
+    private void triggerWaveDialogue() {
+        List<String> dialogueLines = new ArrayList<>();
+
+        if (currentWave <= 5) {
+            switch (currentWave) {
+                case 1: dialogueLines.add("Old Man: Well done, young warrior! You've survived the first wave.");
+                        dialogueLines.add("Old Man: But don't get complacent. The creatures grow stronger.");
+                        dialogueLines.add("Old Man: Prepare yourself for what's coming next.");
+                        break;
+                case 2: dialogueLines.add("Old Man: Impressive! The second wave falls before you.");
+                        dialogueLines.add("Old Man: These beasts are learning from their defeats.");
+                        dialogueLines.add("Old Man: Stay sharp and watch your surroundings.");
+                        break;
+                case 3: dialogueLines.add("Old Man: You continue to surprise me with your prowess.");
+                        dialogueLines.add("Old Man: The third wave was no match for your skills.");
+                        dialogueLines.add("Old Man: But I sense a greater darkness approaching...");
+                        break;
+                case 4: dialogueLines.add("Old Man: Four waves down! You're proving to be quite the formidable opponent.");
+                        dialogueLines.add("Old Man: The enemies grow desperate, and with desperation comes danger.");
+                        dialogueLines.add("Old Man: One more wave before the true test begins.");
+                        break;
+                case 5: dialogueLines.add("Old Man: The fifth wave is vanquished! You've done what few could.");
+                        dialogueLines.add("Old Man: But this was merely a prelude. The real battle awaits.");
+                        dialogueLines.add("Old Man: A fearsome creature approaches. Prepare for the ultimate challenge!");
+                        break;
+            }
+        } else {
+            dialogueLines.add("Old Man: Unbelievable! You've defeated the ancient guardian!");
+            dialogueLines.add("Old Man: Such power... such determination. You are truly worthy.");
+            dialogueLines.add("Old Man: The darkness has been pushed back, for now.");
+            dialogueLines.add("Old Man: Rest well, hero. The realm owes you its gratitude.");
+        }
+
+        host.startDialogue("Yorme", dialogueLines);
+    }
+}
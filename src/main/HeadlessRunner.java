@@ -0,0 +1,278 @@
+package main;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import input.InputRecording;
+import input.KeyHandler;
+
+// Runs the game simulation with no window, no rendering and no sleeping between ticks, as
+// fast as the CPU allows. Used for balance runs, soak tests and benchmarks on machines
+// without a display:
+//
+//   java -Djava.awt.headless=true -cp <classes> main.HeadlessRunner [--ticks N] [--tick-rate HZ]
+//        [--seed S] [--idle] [--record FILE | --replay FILE] [--profile] [--verbose] [--parallel]
+//
+// By default an AutoPilot plays; --idle leaves the keyboard alone. --replay feeds the input
+// of a recording (made here or in the game with -Dgame.record) and checks the final state
+// against it. --profile prints the per-phase update timings (FrameProfiler) at the end.
+// --parallel runs the enemy phase on all cores, which must not change the checksum.
+// Wave dialogues are dismissed on the next tick, and sound effects are muted.
+public class HeadlessRunner {
+
+    // Stands in for InventoryUI
+    public static class Inventory implements entities.Inventory {
+        private final Map<String, Integer> items = new HashMap<>();
+
+        @Override
+        public void addItem(String itemId, int quantity) {
+            items.merge(itemId, quantity, Integer::sum);
+        }
+
+        public int getCount(String itemId) {
+            return items.getOrDefault(itemId, 0);
+        }
+
+        @Override
+        public String toString() {
+            return items.toString();
+        }
+    }
+
+    private final KeyHandler keyH = new KeyHandler();
+    private final Inventory inventory = new Inventory();
+    private final GameWorld world;
+    private final int tickRate;
+    private final float deltaTime;
+    private AutoPilot autoPilot;
+    private InputRecording recording;
+    private InputRecording.Playback playback;
+    private long ticks = 0;
+    private int dialogues = 0;
+    private boolean dialogueOpen = false; // same lifetime as in GameLoop: until the next unpaused tick
+
+    public HeadlessRunner(int tickRate, long seed) {
+        if (tickRate <= 0) {
+            throw new IllegalArgumentException("Tick rate must be positive: " + tickRate);
+        }
+        Main.setSoundEnabled(false);
+        this.tickRate = tickRate;
+        this.deltaTime = 1.0f / tickRate;
+        this.world = new GameWorld(keyH, new GameWorld.Host() {
+            @Override
+            public boolean isDialogueVisible() {
+                return dialogueOpen;
+            }
+
+            @Override
+            public void startDialogue(String speaker, java.util.List<String> lines) {
+                dialogues++;
+                dialogueOpen = true;
+            }
+        }, seed);
+        world.setInventory(inventory);
+    }
+
+    // Runner that plays back a recording: same seed, same tick rate, same input
+    public static HeadlessRunner replaying(InputRecording recording) {
+        HeadlessRunner runner = new HeadlessRunner(recording.getTickRate(), recording.getSeed());
+        runner.playback = recording.playback();
+        return runner;
+    }
+
+    // Record this run's input from now on (call before the first step)
+    public InputRecording startRecording() {
+        recording = new InputRecording(world.getSeed(), tickRate);
+        return recording;
+    }
+
+    public void setAutoPilot(boolean enabled) {
+        autoPilot = enabled ? new AutoPilot(world, keyH) : null;
+    }
+
+    public GameWorld getWorld() {
+        return world;
+    }
+
+    public KeyHandler getKeyHandler() {
+        return keyH;
+    }
+
+    public Inventory getInventory() {
+        return inventory;
+    }
+
+    public long getTicks() {
+        return ticks;
+    }
+
+    public int getDialogues() {
+        return dialogues;
+    }
+
+    public boolean isFinished() {
+        if (playback != null) {
+            return !playback.hasNext();
+        }
+        return world.isGameOver() || world.isCompleted();
+    }
+
+    // One simulation tick
+    public void step() {
+        int bits;
+        if (playback != null) {
+            InputRecording.Event event;
+            while ((event = playback.pollEvent()) != null) {
+                applyEvent(event);
+            }
+            bits = playback.next();
+            keyH.setBits(bits & ~InputRecording.PAUSED);
+        } else {
+            if (autoPilot != null) {
+                autoPilot.drive();
+            }
+            bits = keyH.toBits();
+        }
+        if (recording != null) {
+            recording.record(bits);
+        }
+
+        if ((bits & InputRecording.PAUSED) == 0) {
+            dialogueOpen = false;
+            world.update(deltaTime);
+        }
+        ticks++;
+    }
+
+    private void applyEvent(InputRecording.Event event) {
+        switch (event.type) {
+            case InputRecording.EVENT_USE_ITEM: world.useItem(event.itemId); break;
+            case InputRecording.EVENT_VIEW_SIZE: world.setViewSize(event.width, event.height); break;
+            case InputRecording.EVENT_RESET_PLAYER: world.resetPlayer(); break;
+            default: break;
+        }
+    }
+
+    // Runs until the game is over, the waves are done, or maxTicks more ticks have run.
+    // Returns the number of ticks actually run.
+    public long run(long maxTicks) {
+        long start = ticks;
+        while (ticks - start < maxTicks && !isFinished()) {
+            step();
+        }
+        return ticks - start;
+    }
+
+    public static void main(String[] args) {
+        if (System.getProperty("java.awt.headless") == null) {
+            System.setProperty("java.awt.headless", "true");
+        }
+
+        long maxTicks = 60L * 60 * 30; // 30 minutes of game time
+        int tickRate = TickScheduler.DEFAULT_TICK_RATE;
+        long seed = new Random().nextLong();
+        boolean autoPilot = true;
+        boolean verbose = false;
+        boolean profile = false;
+        boolean parallel = false;
+        Path recordPath = null;
+        Path replayPath = null;
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--ticks": maxTicks = Long.parseLong(args[++i]); break;
+                case "--tick-rate": tickRate = Integer.parseInt(args[++i]); break;
+                case "--seed": seed = Long.parseLong(args[++i]); break;
+                case "--idle": autoPilot = false; break;
+                case "--record": recordPath = Paths.get(args[++i]); break;
+                case "--replay": replayPath = Paths.get(args[++i]); break;
+                case "--profile": profile = true; break;
+                case "--verbose": verbose = true; break;
+                case "--parallel": parallel = true; break;
+                default:
+                    System.err.println("Unknown argument: " + args[i]);
+                    System.err.println("Usage: HeadlessRunner [--ticks N] [--tick-rate HZ] [--seed S] [--idle]"
+                            + " [--record FILE | --replay FILE] [--profile] [--verbose] [--parallel]");
+                    System.exit(2);
+            }
+        }
+
+        InputRecording replay = null;
+        if (replayPath != null) {
+            try {
+                replay = InputRecording.load(replayPath);
+            } catch (IOException e) {
+                System.err.println("Failed to load recording " + replayPath + ": " + e.getMessage());
+                System.exit(1);
+            }
+            tickRate = replay.getTickRate();
+            maxTicks = Long.MAX_VALUE;
+        }
+
+        // The simulation logs waves, pickups and the like; only --verbose shows them
+        PrintStream out = System.out;
+        if (!verbose) {
+            System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        }
+
+        HeadlessRunner runner;
+        InputRecording recording = null;
+        if (replay != null) {
+            runner = HeadlessRunner.replaying(replay);
+        } else {
+            runner = new HeadlessRunner(tickRate, seed);
+            runner.setAutoPilot(autoPilot);
+            if (recordPath != null) {
+                recording = runner.startRecording();
+            }
+        }
+
+        runner.getWorld().getProfiler().setEnabled(profile);
+        if (parallel) {
+            runner.getWorld().setParallelEnemies(true);
+        }
+
+        long start = System.nanoTime();
+        long ran = runner.run(maxTicks);
+        long elapsed = System.nanoTime() - start;
+
+        System.setOut(out);
+        GameWorld world = runner.getWorld();
+        String outcome = replay != null ? "end of recording"
+                : world.isGameOver() ? "game over" : world.isCompleted() ? "all waves cleared" : "tick limit";
+        double seconds = elapsed / 1e9;
+        System.out.printf("Ticks: %d (%.1f s of game time) in %.3f s, %.0f ticks/s%n",
+                ran, ran / (double) tickRate, seconds, ran / Math.max(seconds, 1e-9));
+        System.out.println("Outcome: " + outcome + ", wave " + world.getCurrentWave()
+                + ", player HP " + world.getPlayer().getHp() + "/" + world.getPlayer().getMaxHp());
+        System.out.println("Dialogues: " + runner.getDialogues() + ", inventory: " + runner.getInventory());
+        System.out.println("Seed: " + world.getSeed() + ", checksum: " + Long.toHexString(world.checksum()));
+        if (profile) {
+            world.getProfiler().printSummary(System.out);
+        }
+
+        if (recording != null) {
+            recording.setChecksum(world.checksum());
+            try {
+                recording.save(recordPath);
+                System.out.println("Recorded " + recording.getTickCount() + " ticks to " + recordPath);
+            } catch (IOException e) {
+                System.err.println("Failed to save recording " + recordPath + ": " + e.getMessage());
+                System.exit(1);
+            }
+        }
+        if (replay != null && replay.getChecksum() != 0) {
+            if (replay.getChecksum() == world.checksum()) {
+                System.out.println("Replay matches the recording");
+            } else {
+                System.out.println("Replay diverged: recording ended at checksum " + Long.toHexString(replay.getChecksum()));
+                System.exit(1);
+            }
+        }
+    }
+}
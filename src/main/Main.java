@@ -21,6 +21,7 @@ public class Main {
     private static GameOverScreen gameOverScreen;
     private static Clip backgroundMusic;
     private static boolean isFullscreen = false;
+    private static volatile boolean soundEnabled = !Boolean.getBoolean("game.mute");
 
     public static void main(String[] args) {
         window = new JFrame("Blade Quest");
@@ -108,8 +109,16 @@ public class Main {
         }
     }
 
+    // Turn sound effects off (headless runs, -Dgame.mute=true)
+    public static void setSoundEnabled(boolean enabled) {
+        soundEnabled = enabled;
+    }
+
     // Method to play a one-shot sound effect
     public static void playSoundEffect(String filepath) {
+        if (!soundEnabled) {
+            return;
+        }
         try {
             // Convert path to resource path
             String resourcePath = "/" + filepath.replace("src/", "");
@@ -0,0 +1,167 @@
+package main;
+
+import java.util.Arrays;
+
+import entities.Hotbar;
+import entities.WorldObject;
+import tile.TileView;
+
+// Compact, primitive description of one simulated tick: everything the renderer needs to
+// draw a frame, and nothing it could race on. Filled by the simulation at the end of a tick
+// and handed to the renderer through SnapshotExchange; instances are reused, never shared
+// while being written.
+//
+// Sprites are referenced by SpriteRegistry id (-1 = no image / use fallback drawing).
+public class RenderSnapshot {
+
+    // Per-entity flag bits
+    public static final byte FLAG_FLIP = 1;      // draw mirrored horizontally
+    public static final byte FLAG_SHOW_HP = 2;   // draw HP bar above the sprite
+    public static final byte FLAG_DYING = 4;     // death animation is playing
+
+    public long tick = -1; // -1 = never written
+
+    // Timing for interpolation: nominal time of the tick and the tick length
+    public long tickTimeNanos;
+    public long tickNanos;
+
+    // View
+    public int viewWidth, viewHeight;
+    public int cameraX, cameraY;
+    public int prevCameraX, prevCameraY;
+    public boolean inventoryOpen;
+
+    // Static layers around the camera: tiles as of this tick, and the world objects in view
+    // (placed objects never change, so they are shared rather than copied)
+    public final TileView tiles = new TileView();
+    public int objectCount;
+    public WorldObject[] objects = new WorldObject[32];
+
+    // Player
+    public boolean playerVisible;
+    public float playerX, playerY;
+    public float playerPrevX, playerPrevY;
+    public int playerSprite = -1;
+    public byte playerFlags;
+    public int playerHp, playerMaxHp;
+    public int playerMana, playerMaxMana;
+
+    // Hotbar slots: icon sprite, share of the skill's cooldown left (0 = ready) and seconds left
+    public final int[] hotbarSprite = new int[Hotbar.SLOTS];
+    public final float[] hotbarCooldown = new float[Hotbar.SLOTS];
+    public final float[] hotbarSecondsLeft = new float[Hotbar.SLOTS];
+
+    // Enemies
+    public int enemyCount;
+    public float[] enemyX = new float[16];
+    public float[] enemyY = new float[16];
+    public float[] enemyPrevX = new float[16];
+    public float[] enemyPrevY = new float[16];
+    public int[] enemyW = new int[16];
+    public int[] enemyH = new int[16];
+    public int[] enemySprite = new int[16];
+    public byte[] enemyFlags = new byte[16];
+    public float[] enemyHpRatio = new float[16];
+
+    // NPCs
+    public int npcCount;
+    public float[] npcX = new float[4];
+    public float[] npcY = new float[4];
+    public float[] npcPrevX = new float[4];
+    public float[] npcPrevY = new float[4];
+    public int[] npcW = new int[4];
+    public int[] npcH = new int[4];
+    public int[] npcSprite = new int[4];
+    public int[] npcIndicatorSprite = new int[4];
+    public String[] npcName = new String[4]; // immutable, safe to share
+
+    // Skill effects (slashes and SkillW attacks)
+    public int effectCount;
+    public float[] effectX = new float[16];
+    public float[] effectY = new float[16];
+    public int[] effectW = new int[16];
+    public int[] effectH = new int[16];
+    public int[] effectSprite = new int[16];
+    public byte[] effectFlags = new byte[16];
+
+    // Projectiles on screen (centres); they all share the Projectile sprite
+    public int projectileCount;
+    public float[] projectileX = new float[16];
+    public float[] projectileY = new float[16];
+    public float[] projectilePrevX = new float[16];
+    public float[] projectilePrevY = new float[16];
+
+    // Dropped items
+    public int dropCount;
+    public int[] dropX = new int[8];
+    public int[] dropY = new int[8];
+
+    // How far the wall clock has moved from this tick towards the next one, in [0, 1].
+    // Positions are drawn at prev + (current - prev) * alpha, i.e. one tick behind the
+    // simulation but smooth at any display rate.
+    public float interpolationAlpha(long nowNanos) {
+        if (tickNanos <= 0) return 1f;
+        float alpha = (float) (nowNanos - tickTimeNanos) / tickNanos;
+        return alpha < 0f ? 0f : (alpha > 1f ? 1f : alpha);
+    }
+
+    public void ensureObjectCapacity(int n) {
+        if (n <= objects.length) return;
+        objects = Arrays.copyOf(objects, Math.max(n, objects.length * 2));
+    }
+
+    public void ensureEnemyCapacity(int n) {
+        if (n <= enemyX.length) return;
+        int cap = Math.max(n, enemyX.length * 2);
+        enemyX = Arrays.copyOf(enemyX, cap);
+        enemyY = Arrays.copyOf(enemyY, cap);
+        enemyPrevX = Arrays.copyOf(enemyPrevX, cap);
+        enemyPrevY = Arrays.copyOf(enemyPrevY, cap);
+        enemyW = Arrays.copyOf(enemyW, cap);
+        enemyH = Arrays.copyOf(enemyH, cap);
+        enemySprite = Arrays.copyOf(enemySprite, cap);
+        enemyFlags = Arrays.copyOf(enemyFlags, cap);
+        enemyHpRatio = Arrays.copyOf(enemyHpRatio, cap);
+    }
+
+    public void ensureNpcCapacity(int n) {
+        if (n <= npcX.length) return;
+        int cap = Math.max(n, npcX.length * 2);
+        npcX = Arrays.copyOf(npcX, cap);
+        npcY = Arrays.copyOf(npcY, cap);
+        npcPrevX = Arrays.copyOf(npcPrevX, cap);
+        npcPrevY = Arrays.copyOf(npcPrevY, cap);
+        npcW = Arrays.copyOf(npcW, cap);
+        npcH = Arrays.copyOf(npcH, cap);
+        npcSprite = Arrays.copyOf(npcSprite, cap);
+        npcIndicatorSprite = Arrays.copyOf(npcIndicatorSprite, cap);
+        npcName = Arrays.copyOf(npcName, cap);
+    }
+
+    public void ensureEffectCapacity(int n) {
+        if (n <= effectX.length) return;
+        int cap = Math.max(n, effectX.length * 2);
+        effectX = Arrays.copyOf(effectX, cap);
+        effectY = Arrays.copyOf(effectY, cap);
+        effectW = Arrays.copyOf(effectW, cap);
+        effectH = Arrays.copyOf(effectH, cap);
+        effectSprite = Arrays.copyOf(effectSprite, cap);
+        effectFlags = Arrays.copyOf(effectFlags, cap);
+    }
+
+    public void ensureProjectileCapacity(int n) {
+        if (n <= projectileX.length) return;
+        int cap = Math.max(n, projectileX.length * 2);
+        projectileX = Arrays.copyOf(projectileX, cap);
+        projectileY = Arrays.copyOf(projectileY, cap);
+        projectilePrevX = Arrays.copyOf(projectilePrevX, cap);
+        projectilePrevY = Arrays.copyOf(projectilePrevY, cap);
+    }
+
+    public void ensureDropCapacity(int n) {
+        if (n <= dropX.length) return;
+        int cap = Math.max(n, dropX.length * 2);
+        dropX = Arrays.copyOf(dropX, cap);
+        dropY = Arrays.copyOf(dropY, cap);
+    }
+}
@@ -0,0 +1,70 @@
+package main;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+// Lock-free triple buffer of RenderSnapshots between one writer (simulation) and one reader
+// (renderer). The writer always has a private buffer to fill, the reader always has a
+// private buffer to draw from, and the third one holds the most recently published tick.
+// Neither side ever blocks the other; if the renderer falls behind it simply skips ticks.
+public class SnapshotExchange {
+
+    private static final int INDEX_MASK = 0x3;
+    private static final int FRESH = 0x4; // middle buffer holds a tick the reader hasn't taken yet
+
+    private final RenderSnapshot[] buffers = {
+        new RenderSnapshot(), new RenderSnapshot(), new RenderSnapshot()
+    };
+
+    private int writeIndex = 0; // owned by the writer
+    private int readIndex = 1;  // owned by the reader
+    private final AtomicInteger middle = new AtomicInteger(2);
+
+    private volatile Thread waitingReader;
+
+    // Writer: the buffer to fill for the current tick
+    public RenderSnapshot writeBuffer() {
+        return buffers[writeIndex];
+    }
+
+    // Writer: make the filled buffer the latest snapshot
+    public void publish() {
+        int previous = middle.getAndSet(writeIndex | FRESH);
+        writeIndex = previous & INDEX_MASK;
+
+        Thread reader = waitingReader;
+        if (reader != null) {
+            LockSupport.unpark(reader);
+        }
+    }
+
+    // Reader: the latest published snapshot, or null if nothing has been published yet.
+    // The returned buffer stays valid until the next call to acquire().
+    public RenderSnapshot acquire() {
+        if ((middle.get() & FRESH) != 0) {
+            int previous = middle.getAndSet(readIndex);
+            readIndex = previous & INDEX_MASK;
+        }
+        RenderSnapshot snapshot = buffers[readIndex];
+        return snapshot.tick < 0 ? null : snapshot;
+    }
+
+    public boolean hasFresh() {
+        return (middle.get() & FRESH) != 0;
+    }
+
+    // Reader: park until a new snapshot is published or the timeout elapses
+    public void awaitFresh(long timeoutNanos) {
+        if (hasFresh()) {
+            return;
+        }
+        waitingReader = Thread.currentThread();
+        try {
+            if (!hasFresh()) {
+                LockSupport.parkNanos(this, timeoutNanos);
+            }
+        } finally {
+            waitingReader = null;
+        }
+    }
+}
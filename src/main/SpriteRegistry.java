@@ -0,0 +1,43 @@
+package main;
+
+import java.awt.Image;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+// Maps sprite images to small int ids so render snapshots can reference them with primitives.
+// Ids are handed out by the simulation thread only and never reused; the renderer resolves
+// them with get(). New ids always become visible to the renderer before any snapshot that
+// uses them, because snapshot publication is a release/acquire handoff.
+public class SpriteRegistry {
+
+    private final Map<Image, Integer> ids = new IdentityHashMap<>();
+    private volatile Image[] images = new Image[64];
+    private int count = 0;
+
+    // Simulation thread only
+    public int idOf(Image image) {
+        if (image == null) {
+            return -1;
+        }
+        Integer id = ids.get(image);
+        if (id != null) {
+            return id;
+        }
+
+        Image[] current = images;
+        if (count == current.length) {
+            current = Arrays.copyOf(current, current.length * 2);
+        }
+        current[count] = image;
+        images = current;
+        ids.put(image, count);
+        return count++;
+    }
+
+    // Any thread
+    public Image get(int id) {
+        Image[] current = images;
+        return (id >= 0 && id < current.length) ? current[id] : null;
+    }
+}
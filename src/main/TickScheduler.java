@@ -0,0 +1,114 @@
+package main;
+
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+
+// Fixed-timestep scheduler for the game thread.
+// Runs simulation ticks at a fixed rate and parks the thread between them instead of
+// busy-polling System.nanoTime(). Only the last sub-millisecond before a tick is spun,
+// since parkNanos can overshoot by about that much on most platforms.
+public class TickScheduler {
+
+    public static final int DEFAULT_TICK_RATE = 60;
+    public static final int DEFAULT_MAX_FRAME_SKIP = 5;
+
+    // Below this much remaining time we spin instead of parking
+    private static final long SPIN_THRESHOLD_NANOS = 1_000_000L; // 1 ms
+
+    private volatile int tickRate;
+    private volatile int maxFrameSkip = DEFAULT_MAX_FRAME_SKIP;
+
+    // Nominal (scheduled) time of the tick currently running or last run. Renderers use it
+    // to work out how far between two ticks they are.
+    private long currentTickTime;
+
+    public TickScheduler(int tickRate) {
+        setTickRate(tickRate);
+    }
+
+    public void setTickRate(int tickRate) {
+        if (tickRate <= 0) {
+            throw new IllegalArgumentException("Tick rate must be positive: " + tickRate);
+        }
+        this.tickRate = tickRate;
+    }
+
+    public int getTickRate() {
+        return tickRate;
+    }
+
+    // Simulated seconds per tick (what update() should use as its delta time)
+    public float getTickSeconds() {
+        return 1.0f / tickRate;
+    }
+
+    public long getTickNanos() {
+        return 1_000_000_000L / tickRate;
+    }
+
+    // Maximum number of ticks run back-to-back to catch up after a stall (GC pause,
+    // window drag, ...). Anything beyond that is dropped so we never spiral.
+    public void setMaxFrameSkip(int maxFrameSkip) {
+        this.maxFrameSkip = Math.max(1, maxFrameSkip);
+    }
+
+    public int getMaxFrameSkip() {
+        return maxFrameSkip;
+    }
+
+    // Blocks the calling thread until keepRunning returns false.
+    // tick is called at the fixed rate; render is called once after each batch of ticks.
+    public void run(BooleanSupplier keepRunning, Runnable tick, Runnable render) {
+        long nextTick = System.nanoTime();
+
+        while (keepRunning.getAsBoolean()) {
+            long tickNanos = getTickNanos();
+            long now = System.nanoTime();
+
+            int ticksRun = 0;
+            int skipLimit = maxFrameSkip;
+            while (now - nextTick >= 0 && ticksRun < skipLimit) {
+                currentTickTime = nextTick;
+                tick.run();
+                nextTick += tickNanos;
+                ticksRun++;
+                if (!keepRunning.getAsBoolean()) {
+                    return;
+                }
+                now = System.nanoTime();
+            }
+
+            // Still behind after the catch-up budget: drop the backlog instead of
+            // trying to simulate it all (spiral of death)
+            if (now - nextTick >= 0) {
+                nextTick = now + tickNanos;
+            }
+
+            if (ticksRun > 0) {
+                render.run();
+            }
+
+            waitUntil(nextTick);
+        }
+    }
+
+    // Only meaningful on the scheduler thread, from inside a tick
+    public long getCurrentTickTime() {
+        return currentTickTime;
+    }
+
+    // Park until System.nanoTime() reaches deadline, spinning only for the last millisecond
+    static void waitUntil(long deadline) {
+        while (true) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return;
+            }
+            if (remaining > SPIN_THRESHOLD_NANOS) {
+                LockSupport.parkNanos(remaining - SPIN_THRESHOLD_NANOS);
+            } else {
+                Thread.onSpinWait();
+            }
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package main;
+
+import java.awt.*;
+
+import entities.Enemy;
+import entities.Hotbar;
+import entities.NPC;
+import entities.Player;
+import entities.Projectile;
+import entities.SlashAttack;
+import tile.TileManager;
+import world.ObjectManager;
+
+// Draws a frame purely from a RenderSnapshot.
+// Everything the simulation changes (entities, HUD values, camera, the tiles and objects
+// around it, the hotbar) comes only from the snapshot. TileManager, ObjectManager and Hotbar
+// are only used to draw that copy, with their images and render-thread caches; UI images are
+// read directly as nothing changes them after setup.
+public class WorldRenderer {
+
+    private final TileManager tileM;
+    private final ObjectManager objectM;
+    private final Hotbar hotbar;
+    private final SpriteRegistry sprites;
+    private final Image[] hotbarIcons = new Image[Hotbar.SLOTS];
+    private FrameProfiler profiler = new FrameProfiler(); // disabled unless setProfiler() hands in a live one
+
+    private Image playerPortrait;
+    private Image swordIcon;
+
+    public WorldRenderer(TileManager tileM, ObjectManager objectM, Hotbar hotbar, SpriteRegistry sprites) {
+        this.tileM = tileM;
+        this.objectM = objectM;
+        this.hotbar = hotbar;
+        this.sprites = sprites;
+    }
+
+    public void setPlayerPortrait(Image playerPortrait) {
+        this.playerPortrait = playerPortrait;
+    }
+
+    public void setSwordIcon(Image swordIcon) {
+        this.swordIcon = swordIcon;
+    }
+
+    public void setProfiler(FrameProfiler profiler) {
+        this.profiler = profiler;
+    }
+
+    // alpha in [0, 1] blends moving things from their previous-tick position (0) to the
+    // snapshot's position (1); see RenderSnapshot.interpolationAlpha
+    public void render(Graphics2D g2d, RenderSnapshot s, float alpha) {
+        long start = profiler.start();
+        if (s.inventoryOpen) {
+            g2d.setColor(Color.BLACK);
+            g2d.fillRect(0, 0, s.viewWidth, s.viewHeight);
+        } else {
+            drawWorld(g2d, s, alpha, start);
+        }
+        profiler.lap(FrameProfiler.RENDER, start);
+
+        // F3 overlay, drawn last and left out of the render timing
+        if (profiler.isEnabled()) {
+            profiler.drawOverlay(g2d, s.viewWidth);
+        }
+    }
+
+    private void drawWorld(Graphics2D g2d, RenderSnapshot s, float alpha, long t) {
+
+        int cameraX = Math.round(lerp(s.prevCameraX, s.cameraX, alpha));
+        int cameraY = Math.round(lerp(s.prevCameraY, s.cameraY, alpha));
+
+        // Draw tiles using TileManager with camera offset
+        tileM.draw(g2d, cameraX, cameraY, s.viewWidth, s.viewHeight, s.tiles);
+        t = profiler.lap(FrameProfiler.TILES, t);
+
+        // Draw world objects
+        objectM.draw(g2d, cameraX, cameraY, s.objects, s.objectCount);
+        t = profiler.lap(FrameProfiler.OBJECTS, t);
+
+        drawDrops(g2d, s, cameraX, cameraY);
+
+        // Draw player
+        if (s.playerVisible) {
+            int playerScreenX = Math.round(lerp(s.playerPrevX, s.playerX, alpha)) - cameraX;
+            int playerScreenY = Math.round(lerp(s.playerPrevY, s.playerY, alpha)) - cameraY;
+            Player.drawSprite(g2d, sprites.get(s.playerSprite), (s.playerFlags & RenderSnapshot.FLAG_DYING) != 0,
+                    playerScreenX, playerScreenY);
+        }
+
+        // Draw enemies
+        for (int i = 0; i < s.enemyCount; i++) {
+            byte flags = s.enemyFlags[i];
+            Enemy.drawSprite(g2d, sprites.get(s.enemySprite[i]),
+                    Math.round(lerp(s.enemyPrevX[i], s.enemyX[i], alpha)) - cameraX,
+                    Math.round(lerp(s.enemyPrevY[i], s.enemyY[i], alpha)) - cameraY,
+                    s.enemyW[i], s.enemyH[i],
+                    (flags & RenderSnapshot.FLAG_FLIP) != 0, (flags & RenderSnapshot.FLAG_SHOW_HP) != 0,
+                    s.enemyHpRatio[i]);
+        }
+
+        // Draw NPCs
+        for (int i = 0; i < s.npcCount; i++) {
+            NPC.drawSprite(g2d, sprites.get(s.npcSprite[i]), sprites.get(s.npcIndicatorSprite[i]), s.npcName[i],
+                    Math.round(lerp(s.npcPrevX[i], s.npcX[i], alpha)) - cameraX,
+                    Math.round(lerp(s.npcPrevY[i], s.npcY[i], alpha)) - cameraY,
+                    s.npcW[i], s.npcH[i]);
+        }
+
+        // === SKILL ANIMATIONS ===
+        for (int i = 0; i < s.effectCount; i++) {
+            Image frame = sprites.get(s.effectSprite[i]);
+            if (frame == null) continue;
+            SlashAttack.drawFrame(g2d, frame, (int) s.effectX[i] - cameraX, (int) s.effectY[i] - cameraY,
+                    s.effectW[i], s.effectH[i], (s.effectFlags[i] & RenderSnapshot.FLAG_FLIP) != 0);
+        }
+
+        // Draw projectiles
+        for (int i = 0; i < s.projectileCount; i++) {
+            Projectile.drawSprite(g2d,
+                    Math.round(lerp(s.projectilePrevX[i], s.projectileX[i], alpha)) - Projectile.SIZE / 2 - cameraX,
+                    Math.round(lerp(s.projectilePrevY[i], s.projectileY[i], alpha)) - Projectile.SIZE / 2 - cameraY);
+        }
+        t = profiler.lap(FrameProfiler.ENTITIES, t);
+
+        // Draw player status bars at top left
+        drawPlayerStatusBars(g2d, s);
+
+        // Draw hotbar (now shows skill items from inventory)
+        for (int i = 0; i < Hotbar.SLOTS; i++) {
+            hotbarIcons[i] = sprites.get(s.hotbarSprite[i]);
+        }
+        hotbar.draw(g2d, hotbarIcons, s.hotbarCooldown, s.hotbarSecondsLeft);
+        profiler.lap(FrameProfiler.HUD, t);
+    }
+
+    private static float lerp(float from, float to, float alpha) {
+        return from + (to - from) * alpha;
+    }
+
+    private void drawDrops(Graphics2D g2d, RenderSnapshot s, int cameraX, int cameraY) {
+        // Draw dropped items (larger for better visibility)
+        for (int i = 0; i < s.dropCount; i++) {
+            int screenX = s.dropX[i] - cameraX;
+            int screenY = s.dropY[i] - cameraY;
+            if (swordIcon != null) {
+                // Make sword icon larger and more visible
+                g2d.drawImage(swordIcon, screenX - 24, screenY - 24, 48, 48, null);
+                // Add a subtle glow effect
+                g2d.setColor(new Color(255, 215, 0, 100)); // Gold glow
+                g2d.fillOval(screenX - 20, screenY - 20, 40, 40);
+            } else {
+                // Bright yellow circle fallback
+                g2d.setColor(Color.YELLOW);
+                g2d.fillOval(screenX - 15, screenY - 15, 30, 30);
+                g2d.setColor(Color.BLACK);
+                g2d.drawOval(screenX - 15, screenY - 15, 30, 30);
+            }
+            // Add "SWORD" label
+            g2d.setColor(Color.WHITE);
+            g2d.setFont(new Font("Arial", Font.BOLD, 10));
+            g2d.drawString("SWORD", screenX - 15, screenY + 30);
+        }
+    }
+
+    private void drawPlayerStatusBars(Graphics2D g2d, RenderSnapshot s) {
+        // Position at top left corner
+        int iconSize = 40; // Slightly larger for better visibility
+        int barWidth = 160; // Slightly wider for better proportion
+        int barHeight = 14; // Slightly taller for rounded look
+        int arcWidth = barHeight; // Full height for pill shape
+        int arcHeight = barHeight;
+        int margin = 10;
+        int startX = margin;
+        int startY = margin;
+
+        // Draw player icon
+        if (playerPortrait != null) {
+            // Scale the icon to fit the UI properly
+            g2d.drawImage(playerPortrait, startX, startY, iconSize, iconSize, null);
+        } else {
+            // Fallback: draw a simple colored circle
+            g2d.setColor(Color.BLUE);
+            g2d.fillOval(startX, startY, iconSize, iconSize);
+            g2d.setColor(Color.WHITE);
+            g2d.drawOval(startX, startY, iconSize, iconSize);
+        }
+
+        // Position bars to the right of the icon
+        int barsX = startX + iconSize + margin;
+        int hpBarY = startY + 4;
+        int manaBarY = hpBarY + barHeight + 8;
+
+        // Draw HP bar background (rounded, clean design)
+        g2d.setColor(new Color(64, 64, 64, 200)); // Semi-transparent dark gray background
+        g2d.fillRoundRect(barsX, hpBarY, barWidth, barHeight, arcWidth, arcHeight);
+        g2d.setColor(Color.WHITE);
+        g2d.drawRoundRect(barsX, hpBarY, barWidth, barHeight, arcWidth, arcHeight);
+
+        // Draw HP bar fill (rounded, no text)
+        g2d.setColor(Color.GREEN);
+        int hpWidth = Math.max(barHeight, (int) (barWidth * ((double) s.playerHp / s.playerMaxHp)));
+        g2d.fillRoundRect(barsX, hpBarY, hpWidth, barHeight, arcWidth, arcHeight);
+
+        // Draw Mana bar background (rounded, clean design)
+        g2d.setColor(new Color(64, 64, 64, 200)); // Semi-transparent dark gray background
+        g2d.fillRoundRect(barsX, manaBarY, barWidth, barHeight, arcWidth, arcHeight);
+        g2d.setColor(Color.WHITE);
+        g2d.drawRoundRect(barsX, manaBarY, barWidth, barHeight, arcWidth, arcHeight);
+
+        // Draw Mana bar fill (rounded, no text)
+        g2d.setColor(Color.BLUE);
+        int manaWidth = Math.max(barHeight, (int) (barWidth * ((double) s.playerMana / s.playerMaxMana)));
+        g2d.fillRoundRect(barsX, manaBarY, manaWidth, barHeight, arcWidth, arcHeight);
+    }
+}
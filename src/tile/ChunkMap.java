@@ -0,0 +1,151 @@
+package tile;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.function.Consumer;
+
+// Open-addressing hash map from long keys to values, without boxing the keys. Writers are
+// serialized (put/remove are synchronized); get never locks and is safe from any thread: a
+// slot's value is published before its key (release/acquire), removed slots are never reused
+// before the next resize, and a resize swaps in a whole new table.
+final class ChunkMap<V> {
+
+    private static final long EMPTY = Long.MIN_VALUE;       // keys must not be either of these
+    private static final long REMOVED = Long.MIN_VALUE + 1;
+    private static final VarHandle KEYS = MethodHandles.arrayElementVarHandle(long[].class);
+    private static final VarHandle VALUES = MethodHandles.arrayElementVarHandle(Object[].class);
+
+    private static final class Table {
+        final long[] keys;
+        final Object[] values;
+        final int shift; // index = top bits of key * golden ratio
+
+        Table(int capacity) {
+            keys = new long[capacity];
+            values = new Object[capacity];
+            shift = 64 - Integer.numberOfTrailingZeros(capacity);
+            java.util.Arrays.fill(keys, EMPTY);
+        }
+
+        int slot(long key) {
+            return (int) ((key * 0x9E3779B97F4A7C15L) >>> shift);
+        }
+    }
+
+    private volatile Table table;
+    private int size = 0; // live entries
+    private int used = 0; // live entries plus removed slots
+
+    ChunkMap(int expectedSize) {
+        int capacity = 16;
+        while (capacity * 3 < expectedSize * 4) {
+            capacity <<= 1;
+        }
+        table = new Table(capacity);
+    }
+
+    @SuppressWarnings("unchecked")
+    V get(long key) {
+        Table t = table;
+        int mask = t.keys.length - 1;
+        for (int i = t.slot(key); ; i = (i + 1) & mask) {
+            long k = (long) KEYS.getAcquire(t.keys, i);
+            if (k == key) {
+                return (V) VALUES.getAcquire(t.values, i);
+            }
+            if (k == EMPTY) {
+                return null;
+            }
+        }
+    }
+
+    synchronized void put(long key, V value) {
+        Table t = table;
+        int mask = t.keys.length - 1;
+        int i = t.slot(key);
+        for (; t.keys[i] != EMPTY; i = (i + 1) & mask) {
+            if (t.keys[i] == key) {
+                VALUES.setRelease(t.values, i, value);
+                return;
+            }
+        }
+        if ((used + 1) * 4 > t.keys.length * 3) {
+            resize(size + 1);
+            put(key, value);
+            return;
+        }
+        VALUES.setRelease(t.values, i, value);
+        KEYS.setRelease(t.keys, i, key);
+        size++;
+        used++;
+    }
+
+    synchronized V remove(long key) {
+        Table t = table;
+        int mask = t.keys.length - 1;
+        for (int i = t.slot(key); t.keys[i] != EMPTY; i = (i + 1) & mask) {
+            if (t.keys[i] == key) {
+                @SuppressWarnings("unchecked")
+                V old = (V) t.values[i];
+                KEYS.setRelease(t.keys, i, REMOVED);
+                VALUES.setRelease(t.values, i, null);
+                size--;
+                return old;
+            }
+        }
+        return null;
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    // Calls action on every value; writers only (holds the lock throughout)
+    synchronized void forEachValue(Consumer<V> action) {
+        Table t = table;
+        for (int i = 0; i < t.keys.length; i++) {
+            if (t.keys[i] != EMPTY && t.keys[i] != REMOVED) {
+                @SuppressWarnings("unchecked")
+                V value = (V) t.values[i];
+                action.accept(value);
+            }
+        }
+    }
+
+    // Copies every live key into out (grown if needed); returns the count. Writers only.
+    synchronized int keys(long[][] out) {
+        Table t = table;
+        if (out[0] == null || out[0].length < size) {
+            out[0] = new long[Math.max(16, size * 2)];
+        }
+        int n = 0;
+        for (int i = 0; i < t.keys.length; i++) {
+            if (t.keys[i] != EMPTY && t.keys[i] != REMOVED) {
+                out[0][n++] = t.keys[i];
+            }
+        }
+        return n;
+    }
+
+    private void resize(int liveSize) {
+        int capacity = 16;
+        while (capacity * 3 < liveSize * 2 * 4) { // half full at most afterwards
+            capacity <<= 1;
+        }
+        Table old = table;
+        Table fresh = new Table(capacity);
+        int mask = capacity - 1;
+        for (int j = 0; j < old.keys.length; j++) {
+            long key = old.keys[j];
+            if (key == EMPTY || key == REMOVED) continue;
+            int i = fresh.slot(key);
+            while (fresh.keys[i] != EMPTY) {
+                i = (i + 1) & mask;
+            }
+            fresh.keys[i] = key;
+            fresh.values[i] = old.values[j];
+        }
+        used = size;
+        table = fresh; // volatile write publishes the filled table
+    }
+}
@@ -0,0 +1,223 @@
+package tile;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Keeps the chunks of a big memory-mapped map loaded around the camera instead of all of them.
+//
+// Each tick update() wants every chunk under the view plus `radius` chunks around it, and as
+// many again ahead when the camera is moving. Wanted chunks that aren't resident are queued
+// nearest first for the loader thread, which builds them from the mapping; they are stored
+// into the map on the simulation thread at the next update, so only that thread ever writes
+// the chunk map. Until then a chunk reads as TileChunk.PENDING: solid, and drawn black.
+//
+// Chunks no longer wanted stay resident until their memory passes the budget, then the least
+// recently wanted go first. Chunks changed through setTile are never dropped, since the map
+// file doesn't have the change.
+final class ChunkStreamer {
+
+    // Heap of one stored (non-flyweight) chunk: IDs, collision rows and object headers
+    private static final long CHUNK_BYTES = 2L * TileChunk.SIZE * TileChunk.SIZE + 4L * TileChunk.SIZE + 64;
+
+    private static final class Resident {
+        final long key;
+        final int chunkCol, chunkRow;
+        TileChunk chunk;          // null while loading
+        long lastWanted;          // update() count
+        boolean edited;           // changed by setTile: kept for good
+        volatile boolean cancelled;
+
+        Resident(long key, int chunkCol, int chunkRow) {
+            this.key = key;
+            this.chunkCol = chunkCol;
+            this.chunkRow = chunkRow;
+        }
+    }
+
+    private static final class Arrival {
+        final Resident resident;
+        final TileChunk chunk;
+
+        Arrival(Resident resident, TileChunk chunk) {
+            this.resident = resident;
+            this.chunk = chunk;
+        }
+    }
+
+    private final TileManager tiles;
+    private final ChunkMap<TileChunk> store;
+    private final MapFormat.MapData source;
+    private final int chunkCols, chunkRows;
+    private final int radius;
+    private final long budgetBytes;
+
+    private final ExecutorService loader;
+    private final ConcurrentLinkedQueue<Arrival> arrivals = new ConcurrentLinkedQueue<>();
+
+    // Simulation thread only
+    private final ChunkMap<Resident> residents = new ChunkMap<>(256);
+    private long residentBytes = 0;
+    private long updates = 0;
+    private int lastCenterX, lastCenterY;
+    private boolean started = false;
+    private long[][] keyScratch = new long[1][];
+
+    ChunkStreamer(TileManager tiles, ChunkMap<TileChunk> store, MapFormat.MapData source,
+                  int radius, long budgetBytes) {
+        this.tiles = tiles;
+        this.store = store;
+        this.source = source;
+        this.chunkCols = (source.width + TileChunk.MASK) >> TileChunk.SHIFT;
+        this.chunkRows = (source.height + TileChunk.MASK) >> TileChunk.SHIFT;
+        this.radius = Math.max(0, radius);
+        this.budgetBytes = budgetBytes;
+        this.loader = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "Chunk loader");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // Stops loading; whatever is queued is dropped
+    void close() {
+        loader.shutdownNow();
+    }
+
+    // Streams around the view at (viewX, viewY) in world pixels. Simulation thread.
+    void update(int viewX, int viewY, int viewWidth, int viewHeight) {
+        updates++;
+        receiveArrivals();
+
+        int chunkPixels = TileChunk.SIZE * tiles.getTileSize();
+        int centerX = viewX + viewWidth / 2;
+        int centerY = viewY + viewHeight / 2;
+        int moveX = started ? Integer.signum(centerX - lastCenterX) : 0;
+        int moveY = started ? Integer.signum(centerY - lastCenterY) : 0;
+        lastCenterX = centerX;
+        lastCenterY = centerY;
+        started = true;
+
+        // View plus radius, stretched by another radius ahead of the movement
+        int minCol = Math.floorDiv(viewX, chunkPixels) - radius - (moveX < 0 ? radius : 0);
+        int maxCol = Math.floorDiv(viewX + viewWidth - 1, chunkPixels) + radius + (moveX > 0 ? radius : 0);
+        int minRow = Math.floorDiv(viewY, chunkPixels) - radius - (moveY < 0 ? radius : 0);
+        int maxRow = Math.floorDiv(viewY + viewHeight - 1, chunkPixels) + radius + (moveY > 0 ? radius : 0);
+        minCol = Math.max(0, minCol);
+        minRow = Math.max(0, minRow);
+        maxCol = Math.min(chunkCols - 1, maxCol);
+        maxRow = Math.min(chunkRows - 1, maxRow);
+
+        // Ring by ring out from the chunk at the center, so the nearest are queued first
+        int centerCol = Math.min(Math.max(Math.floorDiv(centerX, chunkPixels), minCol), maxCol);
+        int centerRow = Math.min(Math.max(Math.floorDiv(centerY, chunkPixels), minRow), maxRow);
+        int rings = Math.max(Math.max(centerCol - minCol, maxCol - centerCol),
+                Math.max(centerRow - minRow, maxRow - centerRow));
+        for (int ring = 0; ring <= rings; ring++) {
+            for (int row = centerRow - ring; row <= centerRow + ring; row++) {
+                if (row < minRow || row > maxRow) continue;
+                boolean edge = row == centerRow - ring || row == centerRow + ring;
+                int step = edge ? 1 : 2 * ring;
+                for (int col = centerCol - ring; col <= centerCol + ring; col += Math.max(1, step)) {
+                    if (col >= minCol && col <= maxCol) {
+                        want(col, row);
+                    }
+                }
+            }
+        }
+
+        if (residentBytes > budgetBytes) {
+            evict();
+        }
+    }
+
+    // Chunk (chunkCol, chunkRow) as stored, loading it right away if it isn't yet; for setTile,
+    // which then hands the written chunk to edited(). Simulation thread.
+    TileChunk loadNow(int chunkCol, int chunkRow) {
+        long key = TileChunk.key(chunkCol, chunkRow);
+        Resident resident = residents.get(key);
+        if (resident == null) {
+            resident = new Resident(key, chunkCol, chunkRow);
+            residents.put(key, resident);
+        }
+        resident.lastWanted = updates;
+        if (resident.chunk == null) {
+            resident.cancelled = true; // a queued load would only repeat this
+            store(resident, tiles.buildChunk(source, chunkCol, chunkRow, new TileChunk(false)));
+        }
+        return resident.chunk;
+    }
+
+    // setTile wrote chunk (possibly a fresh copy of the flyweight that was there)
+    void edited(int chunkCol, int chunkRow, TileChunk chunk) {
+        Resident resident = residents.get(TileChunk.key(chunkCol, chunkRow));
+        if (resident.chunk.shared && !chunk.shared) {
+            residentBytes += CHUNK_BYTES;
+        }
+        resident.chunk = chunk;
+        resident.edited = true;
+    }
+
+    private void want(int chunkCol, int chunkRow) {
+        long key = TileChunk.key(chunkCol, chunkRow);
+        Resident resident = residents.get(key);
+        if (resident == null) {
+            Resident queued = new Resident(key, chunkCol, chunkRow);
+            residents.put(key, queued);
+            loader.execute(() -> {
+                if (!queued.cancelled) {
+                    arrivals.add(new Arrival(queued, tiles.buildChunk(source, chunkCol, chunkRow, new TileChunk(false))));
+                }
+            });
+            resident = queued;
+        }
+        resident.lastWanted = updates;
+    }
+
+    private void receiveArrivals() {
+        Arrival arrival;
+        while ((arrival = arrivals.poll()) != null) {
+            Resident resident = arrival.resident;
+            if (!resident.cancelled && resident.chunk == null) {
+                store(resident, arrival.chunk);
+            }
+        }
+    }
+
+    private void store(Resident resident, TileChunk chunk) {
+        resident.chunk = chunk;
+        if (!chunk.shared) {
+            residentBytes += CHUNK_BYTES;
+        }
+        store.put(resident.key, chunk); // flyweights too: absent means not loaded here
+        tiles.chunkLoaded(resident.chunkCol, resident.chunkRow);
+    }
+
+    // Drops chunks not wanted this update, least recently wanted first, until within budget.
+    // Loads still queued for such chunks are cancelled as well.
+    private void evict() {
+        int count = residents.keys(keyScratch);
+        long[] keys = keyScratch[0];
+        long[] order = new long[count]; // lastWanted in the high bits, index in the low 24
+        int candidates = 0;
+        for (int i = 0; i < count; i++) {
+            Resident resident = residents.get(keys[i]);
+            if (resident.lastWanted != updates && !resident.edited) {
+                order[candidates++] = (resident.lastWanted << 24) | i;
+            }
+        }
+        Arrays.sort(order, 0, candidates);
+        for (int i = 0; i < candidates && residentBytes > budgetBytes; i++) {
+            Resident resident = residents.remove(keys[(int) (order[i] & 0xFFFFFF)]);
+            resident.cancelled = true;
+            if (resident.chunk != null) {
+                if (!resident.chunk.shared) {
+                    residentBytes -= CHUNK_BYTES;
+                }
+                store.remove(resident.key);
+                tiles.chunkLoaded(resident.chunkCol, resident.chunkRow);
+            }
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package tile;
+
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.GraphicsDevice;
+import java.awt.GraphicsEnvironment;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+
+// Turns loaded images into screen-ready copies: in the display's pixel format, at the exact
+// size they are drawn, and only as transparent as their pixels need. Drawing one is then a
+// plain blit the pipeline can accelerate, instead of a scale plus format conversion each frame.
+public final class ImagePreparer {
+
+    private ImagePreparer() {
+    }
+
+    // Configuration of the default screen, or null when there is no display
+    public static GraphicsConfiguration defaultConfiguration() {
+        if (GraphicsEnvironment.isHeadless()) {
+            return null;
+        }
+        return GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice().getDefaultConfiguration();
+    }
+
+    // True when images prepared for `prepared` should be redone to draw on `target`: the target
+    // is a different screen configuration (e.g. after the fullscreen toggle or moving to another
+    // monitor). Offscreen targets such as the game-over screenshot take any image as it is.
+    public static boolean needsPreparing(GraphicsConfiguration prepared, GraphicsConfiguration target) {
+        return target != null && target != prepared
+                && target.getDevice().getType() == GraphicsDevice.TYPE_RASTER_SCREEN;
+    }
+
+    // Empty image compatible with gc (or a plain BufferedImage without a display)
+    public static BufferedImage createImage(GraphicsConfiguration gc, int width, int height, int transparency) {
+        if (gc != null) {
+            return gc.createCompatibleImage(width, height, transparency);
+        }
+        return new BufferedImage(width, height,
+                transparency == Transparency.OPAQUE ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB);
+    }
+
+    // Copy of source scaled to width x height. Scaling is nearest neighbour, the same as
+    // drawImage(source, x, y, width, height, null) does on the fly, so it looks identical.
+    public static BufferedImage prepare(BufferedImage source, int width, int height, GraphicsConfiguration gc) {
+        BufferedImage image = createImage(gc, width, height, transparencyOf(source));
+        Graphics2D g = image.createGraphics();
+        g.drawImage(source, 0, 0, width, height, null);
+        g.dispose();
+        return image;
+    }
+
+    // Transparency the pixels actually use; PNGs often carry an alpha channel they never use
+    public static int transparencyOf(BufferedImage image) {
+        if (image.getTransparency() == Transparency.OPAQUE) {
+            return Transparency.OPAQUE;
+        }
+        boolean partial = false;
+        boolean clear = false;
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                int alpha = image.getRGB(x, y) >>> 24;
+                if (alpha == 0) {
+                    clear = true;
+                } else if (alpha != 255) {
+                    partial = true;
+                }
+            }
+        }
+        return partial ? Transparency.TRANSLUCENT : clear ? Transparency.BITMASK : Transparency.OPAQUE;
+    }
+}
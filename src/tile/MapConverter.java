@@ -0,0 +1,71 @@
+package tile;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+// Converts text maps into the binary map format (see MapFormat):
+//
+//   java -cp <classes> tile.MapConverter [--palette src/maps/tiles.txt] [--out DIR] [MAP.txt ...]
+//
+// With no maps given it converts every src/maps/*.txt except the palette. Each MAP.txt becomes
+// MAP.map next to it (or in DIR), stamped with the palette's checksum. TileManager prefers the
+// .map when both exist, so rerun this after editing a text map.
+public class MapConverter {
+
+    public static void main(String[] args) throws IOException {
+        Path palette = Paths.get("src", "maps", "tiles.txt");
+        Path outDir = null;
+        List<Path> inputs = new ArrayList<>();
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--palette": palette = Paths.get(args[++i]); break;
+                case "--out": outDir = Paths.get(args[++i]); break;
+                default:
+                    if (args[i].startsWith("--")) {
+                        System.err.println("Unknown argument: " + args[i]);
+                        System.err.println("Usage: MapConverter [--palette FILE] [--out DIR] [MAP.txt ...]");
+                        System.exit(2);
+                    }
+                    inputs.add(Paths.get(args[i]));
+            }
+        }
+
+        if (inputs.isEmpty()) {
+            try (DirectoryStream<Path> dir = Files.newDirectoryStream(palette.toAbsolutePath().getParent(), "*.txt")) {
+                for (Path path : dir) {
+                    if (!Files.isSameFile(path, palette)) {
+                        inputs.add(path);
+                    }
+                }
+            }
+        }
+
+        long paletteChecksum;
+        try (BufferedReader reader = Files.newBufferedReader(palette, StandardCharsets.UTF_8)) {
+            paletteChecksum = MapFormat.paletteChecksum(reader);
+        }
+
+        for (Path input : inputs) {
+            MapFormat.MapData map = MapFormat.read(input, 2) // water where rows are short
+                    .withPaletteChecksum(paletteChecksum);
+
+            String name = input.getFileName().toString();
+            int dot = name.lastIndexOf('.');
+            Path output = (outDir != null ? outDir : input.toAbsolutePath().getParent())
+                    .resolve((dot > 0 ? name.substring(0, dot) : name) + ".map");
+            try (OutputStream out = Files.newOutputStream(output)) {
+                MapFormat.writeBinary(out, map);
+            }
+            System.out.println(input + " -> " + output + " (" + map.width + "x" + map.height + ")");
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package tile;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+
+// Tile maps on disk, in either of two formats told apart by their first bytes:
+//
+// Text (the original maps/*.txt): one row per line, comma-separated tile IDs.
+//
+// Binary, little-endian throughout:
+//   "BQMP" magic, short version, short layerCount
+//   int width, int height (in tiles)
+//   long paletteChecksum   see paletteChecksum(); 0 = not recorded
+//   short tiles[layerCount][height][width]
+//
+// Binary maps that are plain files are memory-mapped and read in place: their MapData has no
+// tiles array, only a view of the mapping, so a big map is never copied whole onto the heap.
+// MapConverter writes them from the text maps.
+public final class MapFormat {
+
+    private static final byte[] MAGIC = {'B', 'Q', 'M', 'P'};
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 24;
+
+    // A loaded map. Layer 0 is the tile layer; tiles are row-major, layer after layer. They are
+    // either in the tiles array or, for memory-mapped maps (tiles == null), in the mapping.
+    public static final class MapData {
+        public final int width, height, layers;
+        public final long paletteChecksum;
+        public final short[] tiles;
+        private final ShortBuffer mapped;
+
+        public MapData(int width, int height, int layers, long paletteChecksum, short[] tiles) {
+            this(width, height, layers, paletteChecksum, tiles, null);
+        }
+
+        private MapData(int width, int height, int layers, long paletteChecksum, short[] tiles, ShortBuffer mapped) {
+            this.width = width;
+            this.height = height;
+            this.layers = layers;
+            this.paletteChecksum = paletteChecksum;
+            this.tiles = tiles;
+            this.mapped = mapped;
+        }
+
+        public int getTile(int layer, int col, int row) {
+            int index = (layer * height + row) * width + col;
+            return tiles != null ? tiles[index] : mapped.get(index);
+        }
+
+        // Copies count tiles of one row, starting at col, into dst at offset
+        public void copyRow(int layer, int row, int col, short[] dst, int offset, int count) {
+            int index = (layer * height + row) * width + col;
+            if (tiles != null) {
+                System.arraycopy(tiles, index, dst, offset, count);
+            } else {
+                mapped.get(index, dst, offset, count);
+            }
+        }
+
+        // Same tiles, stamped with another palette checksum
+        public MapData withPaletteChecksum(long checksum) {
+            return new MapData(width, height, layers, checksum, tiles, mapped);
+        }
+    }
+
+    private MapFormat() {
+    }
+
+    // Reads a map resource in either format
+    public static MapData read(URL url, int fillTile) throws IOException {
+        if ("file".equals(url.getProtocol())) {
+            try {
+                return read(Paths.get(url.toURI()), fillTile);
+            } catch (URISyntaxException | IllegalArgumentException e) {
+                // Not a plain path after all; read it as a stream
+            }
+        }
+        try (InputStream in = url.openStream()) {
+            return read(in, fillTile);
+        }
+    }
+
+    // Reads a map file in either format; binary ones are memory-mapped
+    public static MapData read(Path file, int fillTile) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size >= MAGIC.length) {
+                ByteBuffer head = ByteBuffer.allocate(MAGIC.length);
+                channel.read(head, 0);
+                if (isBinary(head.array())) {
+                    MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+                    return readBinary(buffer, true);
+                }
+            }
+        }
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return readText(reader, fillTile);
+        }
+    }
+
+    // Reads a map stream in either format
+    public static MapData read(InputStream stream, int fillTile) throws IOException {
+        BufferedInputStream in = new BufferedInputStream(stream);
+        in.mark(MAGIC.length);
+        byte[] head = in.readNBytes(MAGIC.length);
+        in.reset();
+        if (isBinary(head)) {
+            return readBinary(ByteBuffer.wrap(in.readAllBytes()), false);
+        }
+        return readText(new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8)), fillTile);
+    }
+
+    private static boolean isBinary(byte[] head) {
+        return head.length >= MAGIC.length && Arrays.equals(Arrays.copyOf(head, MAGIC.length), MAGIC);
+    }
+
+    // inPlace: keep a view of buffer instead of copying the tiles out
+    private static MapData readBinary(ByteBuffer buffer, boolean inPlace) throws IOException {
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.remaining() < HEADER_SIZE) {
+            throw new IOException("Truncated map header");
+        }
+        buffer.position(buffer.position() + MAGIC.length);
+        int version = buffer.getShort() & 0xFFFF;
+        if (version != VERSION) {
+            throw new IOException("Unsupported map version " + version);
+        }
+        int layers = buffer.getShort() & 0xFFFF;
+        int width = buffer.getInt();
+        int height = buffer.getInt();
+        long paletteChecksum = buffer.getLong();
+        if (width < 0 || height < 0 || layers < 1) {
+            throw new IOException("Bad map dimensions " + width + "x" + height + "x" + layers);
+        }
+
+        long cells = (long) width * height * layers;
+        if (cells > Integer.MAX_VALUE || buffer.remaining() < cells * 2) {
+            throw new IOException("Truncated map: expected " + cells + " tiles");
+        }
+        ShortBuffer view = buffer.slice().order(ByteOrder.LITTLE_ENDIAN).asShortBuffer();
+        if (inPlace) {
+            return new MapData(width, height, layers, paletteChecksum, null, view);
+        }
+        short[] tiles = new short[(int) cells];
+        view.get(tiles);
+        return new MapData(width, height, layers, paletteChecksum, tiles);
+    }
+
+    // Text map: rows of comma-separated IDs. Rows may differ in length; the map is as wide as
+    // the longest one, and cells missing from shorter rows get fillTile.
+    public static MapData readText(BufferedReader reader, int fillTile) throws IOException {
+        List<short[]> rows = new ArrayList<>();
+        int width = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            String[] tileNumbers = line.split(",");
+            short[] row = new short[tileNumbers.length];
+            for (int col = 0; col < tileNumbers.length; col++) {
+                row[col] = (short) Integer.parseInt(tileNumbers[col].trim());
+            }
+            rows.add(row);
+            width = Math.max(width, row.length);
+        }
+
+        short[] tiles = new short[width * rows.size()];
+        Arrays.fill(tiles, (short) fillTile);
+        for (int r = 0; r < rows.size(); r++) {
+            short[] row = rows.get(r);
+            System.arraycopy(row, 0, tiles, r * width, row.length);
+        }
+        return new MapData(width, rows.size(), 1, 0, tiles);
+    }
+
+    public static void writeBinary(OutputStream out, MapData map) throws IOException {
+        int cells = map.width * map.height * map.layers;
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + cells * 2).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put(MAGIC);
+        buffer.putShort((short) VERSION);
+        buffer.putShort((short) map.layers);
+        buffer.putInt(map.width);
+        buffer.putInt(map.height);
+        buffer.putLong(map.paletteChecksum);
+        if (map.tiles != null) {
+            buffer.asShortBuffer().put(map.tiles, 0, cells);
+        } else {
+            buffer.asShortBuffer().put(map.mapped.duplicate().clear().limit(cells));
+        }
+        out.write(buffer.array());
+    }
+
+    // Checksum of a tile palette (the tiles.txt entries: ID, image and collision of each tile),
+    // so a binary map can tell when it was made for different tile IDs. Feed every entry in
+    // file order, then call getValue().
+    public static final class PaletteChecksum {
+        private final CRC32 crc = new CRC32();
+
+        public void add(int tileID, String imagePath, boolean collision) {
+            crc.update((tileID + "," + imagePath + "," + (collision ? 1 : 0) + "\n").getBytes(StandardCharsets.UTF_8));
+        }
+
+        public long getValue() {
+            return crc.getValue();
+        }
+    }
+
+    // Palette checksum of a tiles.txt-style config
+    public static long paletteChecksum(BufferedReader config) throws IOException {
+        PaletteChecksum checksum = new PaletteChecksum();
+        String line;
+        while ((line = config.readLine()) != null) {
+            line = line.trim();
+            if (line.startsWith("#") || line.isEmpty()) {
+                continue;
+            }
+            String[] parts = line.split(",");
+            if (parts.length >= 3) {
+                checksum.add(Integer.parseInt(parts[0].trim()), parts[1].trim(), Integer.parseInt(parts[2].trim()) == 1);
+            }
+        }
+        return checksum.getValue();
+    }
+}
@@ -4,5 +4,6 @@ import java.awt.image.BufferedImage;
 
 public class Tile {
     public BufferedImage image;
+    public BufferedImage prepared; // image at the on-screen tile size, in the screen's format
     public boolean collision = false;
 }
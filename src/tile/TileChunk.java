@@ -0,0 +1,75 @@
+package tile;
+
+// SIZE x SIZE block of the tile map: its tile IDs plus a collision bit per cell (bit col of
+// solidRows[row], 1 = solid). Shared chunks are flyweights standing in for every chunk that
+// is one tile all over; they are never written, TileManager copies one before a change.
+final class TileChunk {
+    static final int SHIFT = 5;
+    static final int SIZE = 1 << SHIFT; // 32, so a row of collision bits fits an int
+    static final int MASK = SIZE - 1;
+
+    final short[] ids = new short[SIZE * SIZE]; // row-major: ids[(row << SHIFT) | col]
+    final int[] solidRows = new int[SIZE];
+    final boolean shared;
+
+    // Placeholder for a chunk of a streamed map that hasn't loaded yet: solid, and no tile
+    static final TileChunk PENDING = pending();
+
+    TileChunk(boolean shared) {
+        this.shared = shared;
+    }
+
+    // Flyweight chunk of nothing but tileId
+    static TileChunk uniform(int tileId) {
+        TileChunk chunk = new TileChunk(true);
+        java.util.Arrays.fill(chunk.ids, (short) tileId);
+        return chunk;
+    }
+
+    private static TileChunk pending() {
+        TileChunk chunk = uniform(-1);
+        java.util.Arrays.fill(chunk.solidRows, -1);
+        return chunk;
+    }
+
+    // Map key of the chunk at chunk coordinates (chunkCol, chunkRow)
+    static long key(int chunkCol, int chunkRow) {
+        return ((long) chunkRow << 32) | (chunkCol & 0xFFFFFFFFL);
+    }
+
+    // Writable copy (of a flyweight, typically)
+    TileChunk copy() {
+        TileChunk chunk = new TileChunk(false);
+        System.arraycopy(ids, 0, chunk.ids, 0, ids.length);
+        System.arraycopy(solidRows, 0, chunk.solidRows, 0, solidRows.length);
+        return chunk;
+    }
+
+    // True when every cell holds the same tile
+    boolean isUniform() {
+        short first = ids[0];
+        for (short id : ids) {
+            if (id != first) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    int getTile(int col, int row) {
+        return ids[(row << SHIFT) | col];
+    }
+
+    // Recomputes the collision bits from the tile IDs
+    void updateSolid(TileManager tiles) {
+        for (int row = 0; row < SIZE; row++) {
+            int bits = 0;
+            for (int col = 0; col < SIZE; col++) {
+                if (tiles.isTileSolid(ids[(row << SHIFT) | col])) {
+                    bits |= 1 << col;
+                }
+            }
+            solidRows[row] = bits;
+        }
+    }
+}
@@ -1,17 +1,78 @@
 package tile;
 
+import java.awt.Color;
 import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import javax.imageio.ImageIO;
 
 public class TileManager {
+    public static final int TILE_SIZE = 80; // px, on screen and in the world; GameWorld.TILE_SIZE too
+
     private Tile[] tile;
-    private int tileSize = 80; // Default tile size, synced with GameLoop
-    private int mapWidth = 64; // Expanded map width
-    private int mapHeight = 64; // Expanded map height
-    private int[][] tileMap; // 2D array to store tile IDs
+    private final int tileSize = TILE_SIZE;
+    private static final int DEFAULT_MAP_SIZE = 64;
+    private int mapWidth = DEFAULT_MAP_SIZE; // Expanded map width, grows with bigger map files
+    private int mapHeight = DEFAULT_MAP_SIZE; // Expanded map height
+    private long paletteChecksum = 0; // of the loaded tiles.txt, see MapFormat.PaletteChecksum
+
+    // Tile IDs and collision bits, stored sparsely in TileChunk.SIZE-square chunks keyed by
+    // TileChunk.key(chunkCol, chunkRow). Chunks of a single tile share one flyweight per tile ID, and
+    // all-water chunks (the fill around and between the islands) are not stored at all, so a
+    // big mostly-empty map costs memory only where it has content. setTile copies a flyweight
+    // before writing and publishes the copy through the map, so readers never see it half-done.
+    private static final int FILL_TILE = 2; // water
+    private ChunkMap<TileChunk> tileChunks;
+    private TileChunk[] uniformChunks = new TileChunk[0]; // flyweights by tile ID, see rebuildSolidBits
+    private TileChunk fillChunk; // flyweight for absent chunks, set by rebuildSolidBits
+
+    // Static object colliders (rocks and the like, see addSolidBox) rasterized into a grid of
+    // 16 px cells, so isWalkable answers for tiles and objects in one pass. Kept sparsely, one
+    // bit block per TileChunk area that has objects in it, row-aligned like the tile rows.
+    private static final int OBJECT_CELL_SHIFT = 4; // 16 px cells, 5 per tile
+    public static final int COLLISION_CELL_SIZE = 1 << OBJECT_CELL_SHIFT; // what raycast steps through
+    private final int objectBlockCells = (TileChunk.SIZE * tileSize) >> OBJECT_CELL_SHIFT; // per block side
+    private final int objectWordsPerRow = (objectBlockCells + 63) >>> 6;
+    private ChunkMap<long[]> objectBlocks = new ChunkMap<>(16);
+    private boolean hasObjectColliders = false;
+
+    // Bumped whenever what isWalkable answers may have changed, so pathfinding can tell when
+    // its view of the map is stale
+    private int collisionVersion = 0;
+
+    // Maps too big to load up front stream their chunks from the map file instead (see
+    // ChunkStreamer); chunks not loaded yet read as TileChunk.PENDING, which is solid.
+    private static final long STREAM_MIN_TILES = 512 * 512;
+    private ChunkStreamer streamer; // null unless the current map streams
+    private int streamRadius = Integer.getInteger("game.streamRadius", 2); // chunks kept around the view
+    private long streamBudget = Long.getLong("game.streamBudgetMB", 64) << 20; // heap for chunks out of view
+
+    // Static tile layer cache: the map is pre-rendered in CHUNK_TILES x CHUNK_TILES chunk
+    // images, so a frame blits the few chunks under the camera instead of one scaled drawImage
+    // per tile. setTile and streaming (simulation thread) bump the version of the chunks they
+    // touch; capture copies the chunks around the camera, with their versions, into the
+    // snapshot's TileView, and draw (render thread) re-renders a chunk from that copy when its
+    // image is older. The renderer never reads the live map. Chunks not drawn recently are
+    // dropped once more than a couple of screens' worth are cached.
+    static final int CHUNK_TILES = 8;
+    static final int CHUNK_AREA = CHUNK_TILES * CHUNK_TILES;
+    private static final int MIN_CACHED_CHUNKS = 16;
+    private int chunkCols, chunkRows;
+    private int[] chunkVersion;
+    // Render thread only
+    private BufferedImage[] chunkImages;
+    private int[] chunkImageVersion;
+    private long[] chunkLastDrawn;
+    private int[] cachedChunkList = new int[MIN_CACHED_CHUNKS]; // indices of the cached images
+    private int cachedChunks = 0;
+    private long drawCount = 0;
+
+    // Screen the tile and chunk images are prepared for (null = no display)
+    private GraphicsConfiguration preparedFor = ImagePreparer.defaultConfiguration();
 
     public TileManager(Object gameLoop) {
         tile = new Tile[50]; // Support up to 50 tile types
@@ -24,6 +85,7 @@ public class TileManager {
             BufferedReader br = new BufferedReader(new InputStreamReader(
                 getClass().getResourceAsStream("/maps/tiles.txt")));
 
+            MapFormat.PaletteChecksum checksum = new MapFormat.PaletteChecksum();
             String line;
             while ((line = br.readLine()) != null) {
                 line = line.trim();
@@ -39,6 +101,7 @@ public class TileManager {
                     int tileID = Integer.parseInt(parts[0].trim());
                     String imagePath = parts[1].trim();
                     boolean collision = Integer.parseInt(parts[2].trim()) == 1;
+                    checksum.add(tileID, imagePath, collision);
 
                     // Load tile image and properties
                     if (tileID >= 0 && tileID < tile.length) {
@@ -55,7 +118,11 @@ public class TileManager {
             }
 
             br.close();
+            paletteChecksum = checksum.getValue();
             System.out.println("Tile configuration loaded successfully");
+            prepareTiles();
+            rebuildSolidBits();
+            invalidateAllChunks();
 
         } catch (Exception e) {
             System.err.println("Failed to load tile configuration");
@@ -100,40 +167,70 @@ public class TileManager {
         } catch (IOException e) {
             System.err.println("Failed to load default tiles");
         }
+        prepareTiles();
+        rebuildSolidBits();
+        invalidateAllChunks();
     }
 
-    public void createExampleMap() {
-        // Initialize the tile map with water (tile 2)
-        tileMap = new int[mapHeight][mapWidth];
-        for (int row = 0; row < mapHeight; row++) {
-            for (int col = 0; col < mapWidth; col++) {
-                tileMap[row][col] = 2; // water
+    // Screen-ready copy of every tile image at tileSize x tileSize
+    private void prepareTiles() {
+        for (Tile t : tile) {
+            if (t != null) {
+                t.prepared = t.image != null ? ImagePreparer.prepare(t.image, tileSize, tileSize, preparedFor) : null;
             }
         }
+    }
+
+    public void createExampleMap() {
+        // Initialize the tile map with water (tile 2)
+        resizeMap(mapWidth, mapHeight);
 
-        // Load map from text file, overwriting with the actual map data
+        // Load map from file, overwriting with the actual map data
         loadMapFromFile("world01");
     }
 
+    // Fresh all-water map of the given size. Only while nothing is drawing or simulating yet.
+    private void resizeMap(int width, int height) {
+        mapWidth = width;
+        mapHeight = height;
+        tileChunks = new ChunkMap<>(64);
+        objectBlocks = new ChunkMap<>(16);
+        hasObjectColliders = false;
+        chunkCols = (mapWidth + CHUNK_TILES - 1) / CHUNK_TILES;
+        chunkRows = (mapHeight + CHUNK_TILES - 1) / CHUNK_TILES;
+        chunkVersion = new int[chunkCols * chunkRows];
+    }
+
+    // Loads /maps/<mapName>.map (binary) if there is one, otherwise /maps/<mapName>.txt. The
+    // format is detected from the content either way (see MapFormat). The map is laid over
+    // water at the default size, and grows if the file is bigger.
     public void loadMapFromFile(String mapName) {
         try {
-            BufferedReader br = new BufferedReader(new InputStreamReader(
-                getClass().getResourceAsStream("/maps/" + mapName + ".txt")));
-
-            String line;
-            int row = 0;
+            java.net.URL url = getClass().getResource("/maps/" + mapName + ".map");
+            if (url == null) {
+                url = getClass().getResource("/maps/" + mapName + ".txt");
+            }
+            if (url == null) {
+                throw new IOException("No map resource for " + mapName);
+            }
+            MapFormat.MapData map = MapFormat.read(url, 2);
+            if (map.paletteChecksum != 0 && map.paletteChecksum != paletteChecksum) {
+                System.err.println("Map " + mapName + " was made for a different tiles.txt; tile IDs may be off");
+            }
 
-            while ((line = br.readLine()) != null && row < mapHeight) {
-                // Split by comma and parse tile IDs
-                String[] tileNumbers = line.split(",");
-                for (int col = 0; col < tileNumbers.length && col < mapWidth; col++) {
-                    tileMap[row][col] = Integer.parseInt(tileNumbers[col].trim());
-                }
-                row++;
+            stopStreaming();
+            resizeMap(Math.max(DEFAULT_MAP_SIZE, map.width), Math.max(DEFAULT_MAP_SIZE, map.height));
+            boolean stream = map.tiles == null && (long) map.width * map.height >= STREAM_MIN_TILES;
+            if (stream) {
+                // Memory-mapped and big: load chunks around the camera as it goes (see streamAround)
+                streamer = new ChunkStreamer(this, tileChunks, map, streamRadius, streamBudget);
+            } else {
+                storeChunks(map);
             }
 
-            br.close();
-            System.out.println("Loaded map: " + mapName + " (" + mapWidth + "x" + mapHeight + ")");
+            rebuildSolidBits();
+            invalidateAllChunks();
+            System.out.println("Loaded map: " + mapName + " (" + mapWidth + "x" + mapHeight + (stream ? ", streaming" : "") + ")");
 
         } catch (Exception e) {
             System.err.println("Failed to load map from file: " + mapName);
@@ -146,41 +243,292 @@ public class TileManager {
     private void createDefaultMap() {
         // Fallback map if file loading fails
         System.out.println("Creating default fallback map");
+        stopStreaming();
+        short[] tiles = new short[mapWidth * mapHeight];
         for (int row = 0; row < mapHeight; row++) {
             for (int col = 0; col < mapWidth; col++) {
                 if (row == 0 || row == mapHeight - 1 || col == 0 || col == mapWidth - 1) {
-                    tileMap[row][col] = 1; // Walls on borders
+                    tiles[row * mapWidth + col] = 1; // Walls on borders
                 } else {
-                    tileMap[row][col] = 0; // Grass inside
+                    tiles[row * mapWidth + col] = 0; // Grass inside
                 }
             }
         }
+        tileChunks = new ChunkMap<>(64);
+        storeChunks(new MapFormat.MapData(mapWidth, mapHeight, 1, 0, tiles));
+        rebuildSolidBits();
+        invalidateAllChunks();
+    }
+
+    private void stopStreaming() {
+        if (streamer != null) {
+            streamer.close();
+            streamer = null;
+        }
+    }
+
+    // Radius (in TileChunk.SIZE chunks) kept loaded around the view, and heap budget for chunks
+    // outside it, when a map streams. Applies from the next map load; the defaults come from
+    // the game.streamRadius and game.streamBudgetMB system properties.
+    public void setStreaming(int radius, long budgetBytes) {
+        streamRadius = radius;
+        streamBudget = budgetBytes;
+    }
+
+    // Loads and drops streamed chunks for a camera at (cameraX, cameraY) showing viewWidth x
+    // viewHeight pixels. Once per tick from the simulation thread; no-op unless the map streams.
+    public void streamAround(int cameraX, int cameraY, int viewWidth, int viewHeight) {
+        if (streamer != null) {
+            streamer.update(cameraX, cameraY, viewWidth, viewHeight);
+        }
     }
 
-    public void draw(Graphics2D g2, int cameraX, int cameraY, int screenWidth, int screenHeight) {
-        // Draw only visible tiles within the screen bounds
-        int startCol = Math.max(0, cameraX / tileSize);
-        int startRow = Math.max(0, cameraY / tileSize);
-        int endCol = Math.min(mapWidth, (cameraX + screenWidth) / tileSize + 1);
-        int endRow = Math.min(mapHeight, (cameraY + screenHeight) / tileSize + 1);
+    // A streamed chunk arrived or left: its images need redrawing
+    void chunkLoaded(int chunkCol, int chunkRow) {
+        collisionVersion++;
+        int perChunk = TileChunk.SIZE / CHUNK_TILES;
+        int endCol = Math.min(chunkCols, (chunkCol + 1) * perChunk);
+        int endRow = Math.min(chunkRows, (chunkRow + 1) * perChunk);
+        for (int row = chunkRow * perChunk; row < endRow; row++) {
+            for (int col = chunkCol * perChunk; col < endCol; col++) {
+                chunkVersion[row * chunkCols + col]++;
+            }
+        }
+    }
 
-        // Draw the visible tiles
-        for (int row = startRow; row < endRow; row++) {
-            for (int col = startCol; col < endCol; col++) {
-                int tileIndex = tileMap[row][col];
+    private void invalidateAllChunks() {
+        collisionVersion++;
+        if (chunkVersion == null) return; // no map yet
+        for (int i = 0; i < chunkVersion.length; i++) {
+            chunkVersion[i]++;
+        }
+    }
 
-                // Only draw if the tile exists and has an image
-                if (tile[tileIndex] != null && tile[tileIndex].image != null) {
-                    int worldX = col * tileSize;
-                    int worldY = row * tileSize;
-                    int screenX = worldX - cameraX;
-                    int screenY = worldY - cameraY;
-                    g2.drawImage(tile[tileIndex].image, screenX, screenY, tileSize, tileSize, null);
+    // Flyweight chunk of tileId, or null when there is none (no such tile)
+    private TileChunk uniformChunk(int tileId) {
+        return tileId >= 0 && tileId < uniformChunks.length ? uniformChunks[tileId] : null;
+    }
+
+    // Chunk holding the given chunk coordinates: the fill flyweight where none is stored, or
+    // the solid placeholder while a streamed map hasn't loaded it yet
+    private TileChunk chunkAt(int chunkCol, int chunkRow) {
+        TileChunk chunk = tileChunks.get(TileChunk.key(chunkCol, chunkRow));
+        if (chunk != null) {
+            return chunk;
+        }
+        return streamer != null ? TileChunk.PENDING : fillChunk;
+    }
+
+    // Chunk (chunkCol, chunkRow) of map layer 0, with water past the map's edge: the flyweight
+    // when it is one tile all over, otherwise scratch filled in. Only reads the map and the tile
+    // config, so the streamer calls it off the simulation thread.
+    TileChunk buildChunk(MapFormat.MapData map, int chunkCol, int chunkRow, TileChunk scratch) {
+        int startCol = chunkCol << TileChunk.SHIFT;
+        int startRow = chunkRow << TileChunk.SHIFT;
+        int count = Math.max(0, Math.min(TileChunk.SIZE, map.width - startCol));
+        java.util.Arrays.fill(scratch.ids, (short) FILL_TILE);
+        for (int row = 0; row < TileChunk.SIZE && startRow + row < map.height; row++) {
+            map.copyRow(0, startRow + row, startCol, scratch.ids, row << TileChunk.SHIFT, count);
+        }
+
+        if (scratch.isUniform()) {
+            TileChunk flyweight = uniformChunk(scratch.ids[0]);
+            if (flyweight != null) {
+                return flyweight;
+            }
+        }
+        scratch.updateSolid(this);
+        return scratch;
+    }
+
+    // Splits map layer 0 into chunks and stores the ones that aren't all water
+    private void storeChunks(MapFormat.MapData map) {
+        int cols = (mapWidth + TileChunk.MASK) >> TileChunk.SHIFT;
+        int rows = (mapHeight + TileChunk.MASK) >> TileChunk.SHIFT;
+        TileChunk scratch = new TileChunk(false);
+        for (int chunkRow = 0; chunkRow < rows; chunkRow++) {
+            for (int chunkCol = 0; chunkCol < cols; chunkCol++) {
+                TileChunk chunk = buildChunk(map, chunkCol, chunkRow, scratch);
+                if (chunk == fillChunk) {
+                    continue; // absent means water
+                }
+                if (chunk == scratch) {
+                    scratch = new TileChunk(false); // this one is kept; fill a new one next
                 }
+                tileChunks.put(TileChunk.key(chunkCol, chunkRow), chunk);
             }
         }
     }
 
+    // Recomputes every chunk's collision bits from its tile IDs and the tile config. Also makes
+    // the flyweights: one per configured tile, plus water for the fill.
+    private void rebuildSolidBits() {
+        if (uniformChunks.length < tile.length) {
+            uniformChunks = java.util.Arrays.copyOf(uniformChunks, tile.length);
+        }
+        for (int id = 0; id < tile.length; id++) {
+            if (uniformChunks[id] == null && (tile[id] != null || id == FILL_TILE)) {
+                uniformChunks[id] = TileChunk.uniform(id);
+            }
+        }
+        fillChunk = uniformChunks[FILL_TILE];
+        for (TileChunk flyweight : uniformChunks) {
+            if (flyweight != null) {
+                flyweight.updateSolid(this);
+            }
+        }
+        if (tileChunks == null) return; // tile config loaded before the map; the map load rebuilds
+        tileChunks.forEachValue(chunk -> {
+            if (!chunk.shared) {
+                chunk.updateSolid(this);
+            }
+        });
+    }
+
+    // Copies the render chunks under a width x height view at (x, y) into view. Simulation
+    // thread; chunks the view already holds at their current version aren't copied again.
+    public void capture(int x, int y, int width, int height, TileView view) {
+        int chunkSize = CHUNK_TILES * tileSize;
+        int startCol = Math.max(0, Math.floorDiv(x, chunkSize));
+        int startRow = Math.max(0, Math.floorDiv(y, chunkSize));
+        int cols = Math.max(0, Math.min(chunkCols - 1, Math.floorDiv(x + width - 1, chunkSize)) - startCol + 1);
+        int rows = Math.max(0, Math.min(chunkRows - 1, Math.floorDiv(y + height - 1, chunkSize)) - startRow + 1);
+        boolean sameChunks = view.chunkCol == startCol && view.chunkRow == startRow
+                && view.cols == cols && view.rows == rows;
+        view.ensureCapacity(cols * rows);
+        view.chunkCol = startCol;
+        view.chunkRow = startRow;
+        view.cols = cols;
+        view.rows = rows;
+
+        int n = 0;
+        for (int row = startRow; row < startRow + rows; row++) {
+            for (int col = startCol; col < startCol + cols; col++, n++) {
+                int version = chunkVersion[row * chunkCols + col];
+                if (sameChunks && view.versions[n] == version) {
+                    continue;
+                }
+                view.versions[n] = version;
+                copyChunkTiles(col, row, view.ids, n * CHUNK_AREA);
+            }
+        }
+    }
+
+    // Tile IDs of render chunk (col, row) into ids at offset, -1 past the map's edge. A render
+    // chunk lies within one map chunk, so each of its rows is one copy.
+    private void copyChunkTiles(int col, int row, short[] ids, int offset) {
+        int tileX = col * CHUNK_TILES;
+        int tileY = row * CHUNK_TILES;
+        TileChunk chunk = chunkAt(tileX >> TileChunk.SHIFT, tileY >> TileChunk.SHIFT);
+        int count = Math.min(CHUNK_TILES, mapWidth - tileX);
+        for (int r = 0; r < CHUNK_TILES; r++, offset += CHUNK_TILES) {
+            if (tileY + r < mapHeight) {
+                int from = (((tileY + r) & TileChunk.MASK) << TileChunk.SHIFT) | (tileX & TileChunk.MASK);
+                System.arraycopy(chunk.ids, from, ids, offset, count);
+                java.util.Arrays.fill(ids, offset + count, offset + CHUNK_TILES, (short) -1);
+            } else {
+                java.util.Arrays.fill(ids, offset, offset + CHUNK_TILES, (short) -1);
+            }
+        }
+    }
+
+    // Draws the tiles under the camera from view, which capture filled for (at least) this area
+    public void draw(Graphics2D g2, int cameraX, int cameraY, int screenWidth, int screenHeight, TileView view) {
+        int chunkCount = chunkCols * chunkRows;
+        if (chunkImages == null || chunkImages.length != chunkCount) {
+            chunkImages = new BufferedImage[chunkCount];
+            chunkImageVersion = new int[chunkCount];
+            chunkLastDrawn = new long[chunkCount];
+            cachedChunks = 0;
+        }
+        GraphicsConfiguration target = g2.getDeviceConfiguration();
+        if (ImagePreparer.needsPreparing(preparedFor, target)) {
+            // Different screen (fullscreen toggle, other monitor): redo tiles and chunks for it
+            preparedFor = target;
+            prepareTiles();
+            for (int i = 0; i < cachedChunks; i++) {
+                chunkImages[cachedChunkList[i]].flush();
+                chunkImages[cachedChunkList[i]] = null;
+            }
+            cachedChunks = 0;
+        }
+        drawCount++;
+
+        // Draw only the chunks within the screen bounds (and the view)
+        int chunkSize = CHUNK_TILES * tileSize;
+        int startCol = Math.max(view.chunkCol, Math.floorDiv(cameraX, chunkSize));
+        int startRow = Math.max(view.chunkRow, Math.floorDiv(cameraY, chunkSize));
+        int endCol = Math.min(view.chunkCol + view.cols - 1, Math.floorDiv(cameraX + screenWidth - 1, chunkSize));
+        int endRow = Math.min(view.chunkRow + view.rows - 1, Math.floorDiv(cameraY + screenHeight - 1, chunkSize));
+
+        for (int row = startRow; row <= endRow; row++) {
+            for (int col = startCol; col <= endCol; col++) {
+                int chunk = row * chunkCols + col;
+                int slot = (row - view.chunkRow) * view.cols + (col - view.chunkCol);
+                int version = view.versions[slot];
+                if (chunkImages[chunk] == null || chunkImageVersion[chunk] != version) {
+                    renderChunk(chunk, view.ids, slot * CHUNK_AREA);
+                    chunkImageVersion[chunk] = version;
+                }
+                chunkLastDrawn[chunk] = drawCount;
+                g2.drawImage(chunkImages[chunk], col * chunkSize - cameraX, row * chunkSize - cameraY, null);
+            }
+        }
+
+        int visible = Math.max(0, endCol - startCol + 1) * Math.max(0, endRow - startRow + 1);
+        evictChunks(Math.max(MIN_CACHED_CHUNKS, visible * 2));
+    }
+
+    // Draws one chunk's tiles (CHUNK_AREA IDs in ids from offset), scaled to tileSize, into its cached image
+    private void renderChunk(int chunk, short[] ids, int offset) {
+        int chunkSize = CHUNK_TILES * tileSize;
+        BufferedImage image = chunkImages[chunk];
+        if (image == null) {
+            // Compatible with the screen, so it can live in video memory and blit unconverted.
+            // Opaque: tile images have no transparency, and a plain copy beats alpha blending.
+            image = ImagePreparer.createImage(preparedFor, chunkSize, chunkSize, Transparency.OPAQUE);
+            chunkImages[chunk] = image;
+            if (cachedChunks == cachedChunkList.length) {
+                cachedChunkList = java.util.Arrays.copyOf(cachedChunkList, cachedChunks * 2);
+            }
+            cachedChunkList[cachedChunks++] = chunk;
+        }
+
+        Graphics2D g = image.createGraphics();
+        g.setColor(Color.BLACK); // cells without an image show the game's black background
+        g.fillRect(0, 0, chunkSize, chunkSize);
+
+        for (int row = 0; row < CHUNK_TILES; row++) {
+            for (int col = 0; col < CHUNK_TILES; col++) {
+                int tileIndex = ids[offset + row * CHUNK_TILES + col];
+
+                // Only draw if the tile exists and has an image; prepared ones are already tileSize
+                if (tileIndex >= 0 && tileIndex < tile.length && tile[tileIndex] != null && tile[tileIndex].prepared != null) {
+                    g.drawImage(tile[tileIndex].prepared, col * tileSize, row * tileSize, null);
+                }
+            }
+        }
+        g.dispose();
+    }
+
+    // Drops least recently drawn chunk images until at most maxCached remain
+    private void evictChunks(int maxCached) {
+        while (cachedChunks > maxCached) {
+            int oldest = -1;
+            for (int i = 0; i < cachedChunks; i++) {
+                long lastDrawn = chunkLastDrawn[cachedChunkList[i]];
+                if (lastDrawn != drawCount && (oldest < 0 || lastDrawn < chunkLastDrawn[cachedChunkList[oldest]])) {
+                    oldest = i;
+                }
+            }
+            if (oldest < 0) return; // everything cached is on screen
+            int chunk = cachedChunkList[oldest];
+            chunkImages[chunk].flush();
+            chunkImages[chunk] = null;
+            cachedChunkList[oldest] = cachedChunkList[--cachedChunks];
+        }
+    }
+
     public boolean isTileSolid(int tileIndex) {
         if (tileIndex >= 0 && tileIndex < tile.length && tile[tileIndex] != null) {
             return tile[tileIndex].collision;
@@ -208,26 +556,181 @@ public class TileManager {
         int tileX2 = (x + width - 1) / tileSize;
         int tileY2 = (y + height - 1) / tileSize;
 
-        // Check all tiles that the entity occupies
-        for (int tileY = tileY1; tileY <= tileY2; tileY++) {
-            for (int tileX = tileX1; tileX <= tileX2; tileX++) {
-                if (tileX >= 0 && tileX < mapWidth && tileY >= 0 && tileY < mapHeight) {
-                    int tileIndex = tileMap[tileY][tileX];
-                    if (isTileSolid(tileIndex)) {
+        if (tileX2 < tileX1 || tileY2 < tileY1) {
+            return true; // Empty box, occupies no tiles
+        }
+        if (tileX1 < 0 || tileY1 < 0 || tileX2 >= mapWidth || tileY2 >= mapHeight) {
+            return false; // Out of bounds is solid
+        }
+
+        // Check all tiles that the entity occupies, chunk by chunk with one mask per chunk row
+        int firstChunkCol = tileX1 >> TileChunk.SHIFT;
+        int lastChunkCol = tileX2 >> TileChunk.SHIFT;
+        int firstChunkRow = tileY1 >> TileChunk.SHIFT;
+        int lastChunkRow = tileY2 >> TileChunk.SHIFT;
+        int firstMask = -1 << tileX1;               // shifts use the low 5 bits: column % 32
+        int lastMask = -1 >>> (TileChunk.MASK - (tileX2 & TileChunk.MASK));
+        for (int chunkRow = firstChunkRow; chunkRow <= lastChunkRow; chunkRow++) {
+            int rowFrom = chunkRow == firstChunkRow ? tileY1 & TileChunk.MASK : 0;
+            int rowTo = chunkRow == lastChunkRow ? tileY2 & TileChunk.MASK : TileChunk.MASK;
+            for (int chunkCol = firstChunkCol; chunkCol <= lastChunkCol; chunkCol++) {
+                int mask = -1;
+                if (chunkCol == firstChunkCol) mask &= firstMask;
+                if (chunkCol == lastChunkCol) mask &= lastMask;
+                int[] solidRows = chunkAt(chunkCol, chunkRow).solidRows;
+                for (int row = rowFrom; row <= rowTo; row++) {
+                    if ((solidRows[row] & mask) != 0) {
                         return false; // Solid tile found
                     }
-                } else {
-                    return false; // Out of bounds is solid
                 }
             }
         }
-        return true; // All tiles are walkable
+        return !hasObjectColliders || !isObjectCellSet(x, y, width, height); // All tiles are walkable
+    }
+
+    // How far along the segment from (x0, y0) to (x1, y1) it can go before entering anything
+    // isWalkable would reject, as a fraction: 1 when the whole segment is clear, 0 when it starts
+    // inside something solid. Walks the 16 px collision cells the segment crosses in order (grid
+    // DDA), so a fast mover can't skip over a thin wall the way checking only its end point would.
+    public double raycast(double x0, double y0, double x1, double y1) {
+        int cellSize = 1 << OBJECT_CELL_SHIFT;
+        int cellX = (int) Math.floor(x0) >> OBJECT_CELL_SHIFT;
+        int cellY = (int) Math.floor(y0) >> OBJECT_CELL_SHIFT;
+        int endX = (int) Math.floor(x1) >> OBJECT_CELL_SHIFT;
+        int endY = (int) Math.floor(y1) >> OBJECT_CELL_SHIFT;
+        if (isCellSolid(cellX, cellY)) {
+            return 0;
+        }
+        double dx = x1 - x0, dy = y1 - y0;
+        int stepX = dx > 0 ? 1 : -1;
+        int stepY = dy > 0 ? 1 : -1;
+        // Fraction of the segment at which it crosses into the next column / row of cells, and
+        // how much that grows per cell
+        double nextX = dx > 0 ? ((cellX + 1) * (double) cellSize - x0) / dx
+                : dx < 0 ? (cellX * (double) cellSize - x0) / dx : Double.POSITIVE_INFINITY;
+        double nextY = dy > 0 ? ((cellY + 1) * (double) cellSize - y0) / dy
+                : dy < 0 ? (cellY * (double) cellSize - y0) / dy : Double.POSITIVE_INFINITY;
+        double stepFractionX = dx != 0 ? cellSize / Math.abs(dx) : Double.POSITIVE_INFINITY;
+        double stepFractionY = dy != 0 ? cellSize / Math.abs(dy) : Double.POSITIVE_INFINITY;
+        while (cellX != endX || cellY != endY) {
+            double fraction;
+            if (nextX < nextY) {
+                fraction = nextX;
+                cellX += stepX;
+                nextX += stepFractionX;
+            } else {
+                fraction = nextY;
+                cellY += stepY;
+                nextY += stepFractionY;
+            }
+            if (fraction > 1) {
+                break; // rounding: the end cell is behind us
+            }
+            if (isCellSolid(cellX, cellY)) {
+                return fraction;
+            }
+        }
+        return 1;
+    }
+
+    // isWalkable for one 16 px cell, as two bit lookups
+    private boolean isCellSolid(int cellX, int cellY) {
+        if (cellX < 0 || cellY < 0) {
+            return true; // Out of bounds is solid
+        }
+        int cellSize = 1 << OBJECT_CELL_SHIFT;
+        if (tileSize % cellSize != 0) {
+            return !isWalkable(cellX << OBJECT_CELL_SHIFT, cellY << OBJECT_CELL_SHIFT, cellSize, cellSize);
+        }
+        int tileX = (cellX << OBJECT_CELL_SHIFT) / tileSize; // the one tile the cell is in
+        int tileY = (cellY << OBJECT_CELL_SHIFT) / tileSize;
+        if (tileX >= mapWidth || tileY >= mapHeight) {
+            return true;
+        }
+        int[] solidRows = chunkAt(tileX >> TileChunk.SHIFT, tileY >> TileChunk.SHIFT).solidRows;
+        if ((solidRows[tileY & TileChunk.MASK] & (1 << tileX)) != 0) { // shift uses the low 5 bits
+            return true;
+        }
+        if (!hasObjectColliders) {
+            return false;
+        }
+        long[] block = objectBlocks.get(TileChunk.key(cellX / objectBlockCells, cellY / objectBlockCells));
+        if (block == null) {
+            return false;
+        }
+        int col = cellX % objectBlockCells;
+        return (block[(cellY % objectBlockCells) * objectWordsPerRow + (col >>> 6)] & (1L << col)) != 0;
+    }
+
+    // Marks the box (world pixels) as solid for isWalkable, like a solid tile. For objects that
+    // never move; boxes not on the 16 px grid block every cell they touch.
+    public void addSolidBox(int x, int y, int width, int height) {
+        if (width <= 0 || height <= 0) return;
+        int cellX1 = Math.max(0, x >> OBJECT_CELL_SHIFT);
+        int cellY1 = Math.max(0, y >> OBJECT_CELL_SHIFT);
+        int cellX2 = (x + width - 1) >> OBJECT_CELL_SHIFT;
+        int cellY2 = (y + height - 1) >> OBJECT_CELL_SHIFT;
+        for (int cellY = cellY1; cellY <= cellY2; cellY++) {
+            for (int cellX = cellX1; cellX <= cellX2; cellX++) {
+                long key = TileChunk.key(cellX / objectBlockCells, cellY / objectBlockCells);
+                long[] block = objectBlocks.get(key);
+                if (block == null) {
+                    block = new long[objectBlockCells * objectWordsPerRow];
+                    objectBlocks.put(key, block);
+                }
+                int col = cellX % objectBlockCells;
+                block[(cellY % objectBlockCells) * objectWordsPerRow + (col >>> 6)] |= 1L << col;
+            }
+        }
+        hasObjectColliders = true;
+        collisionVersion++;
+    }
+
+    public int getCollisionVersion() {
+        return collisionVersion;
+    }
+
+    // True when any 16 px object cell under the box is solid
+    private boolean isObjectCellSet(int x, int y, int width, int height) {
+        int cellX1 = x >> OBJECT_CELL_SHIFT;
+        int cellY1 = y >> OBJECT_CELL_SHIFT;
+        int cellX2 = (x + width - 1) >> OBJECT_CELL_SHIFT;
+        int cellY2 = (y + height - 1) >> OBJECT_CELL_SHIFT;
+        for (int blockRow = Math.floorDiv(cellY1, objectBlockCells); blockRow <= Math.floorDiv(cellY2, objectBlockCells); blockRow++) {
+            for (int blockCol = Math.floorDiv(cellX1, objectBlockCells); blockCol <= Math.floorDiv(cellX2, objectBlockCells); blockCol++) {
+                long[] block = objectBlocks.get(TileChunk.key(blockCol, blockRow));
+                if (block == null) continue;
+                int originX = blockCol * objectBlockCells;
+                int originY = blockRow * objectBlockCells;
+                int colFrom = Math.max(cellX1, originX) - originX;
+                int colTo = Math.min(cellX2, originX + objectBlockCells - 1) - originX;
+                int rowFrom = Math.max(cellY1, originY) - originY;
+                int rowTo = Math.min(cellY2, originY + objectBlockCells - 1) - originY;
+                int firstWord = colFrom >>> 6;
+                int lastWord = colTo >>> 6;
+                long firstMask = -1L << colFrom;            // shifts use the low 6 bits: col % 64
+                long lastMask = -1L >>> (63 - (colTo & 63));
+                for (int row = rowFrom; row <= rowTo; row++) {
+                    int rowStart = row * objectWordsPerRow;
+                    for (int word = firstWord; word <= lastWord; word++) {
+                        long mask = -1L;
+                        if (word == firstWord) mask &= firstMask;
+                        if (word == lastWord) mask &= lastMask;
+                        if ((block[rowStart + word] & mask) != 0) {
+                            return true;
+                        }
+                    }
+                }
+            }
+        }
+        return false;
     }
 
     // Method to get tile ID at specific tile coordinates
     public int getTileId(int tileX, int tileY) {
         if (tileX >= 0 && tileX < mapWidth && tileY >= 0 && tileY < mapHeight) {
-            return tileMap[tileY][tileX];
+            return chunkAt(tileX >> TileChunk.SHIFT, tileY >> TileChunk.SHIFT)
+                    .getTile(tileX & TileChunk.MASK, tileY & TileChunk.MASK);
         }
         return -1; // Invalid position
     }
@@ -235,7 +738,32 @@ public class TileManager {
     // Method to set tile ID at specific tile coordinates
     public void setTile(int tileX, int tileY, int tileId) {
         if (tileX >= 0 && tileX < mapWidth && tileY >= 0 && tileY < mapHeight) {
-            tileMap[tileY][tileX] = tileId;
+            int chunkCol = tileX >> TileChunk.SHIFT;
+            int chunkRow = tileY >> TileChunk.SHIFT;
+            int col = tileX & TileChunk.MASK;
+            int row = tileY & TileChunk.MASK;
+            TileChunk chunk = streamer != null ? streamer.loadNow(chunkCol, chunkRow) : chunkAt(chunkCol, chunkRow);
+            if (chunk.getTile(col, row) == tileId) {
+                return; // unchanged; keeps flyweights shared
+            }
+            boolean copied = chunk.shared;
+            if (copied) {
+                chunk = chunk.copy(); // copy on write, filled in before anyone can see it
+            }
+            chunk.ids[(row << TileChunk.SHIFT) | col] = (short) tileId;
+            if (isTileSolid(tileId)) {
+                chunk.solidRows[row] |= 1 << col;
+            } else {
+                chunk.solidRows[row] &= ~(1 << col);
+            }
+            if (copied) {
+                tileChunks.put(TileChunk.key(chunkCol, chunkRow), chunk);
+            }
+            if (streamer != null) {
+                streamer.edited(chunkCol, chunkRow, chunk);
+            }
+            chunkVersion[(tileY / CHUNK_TILES) * chunkCols + tileX / CHUNK_TILES]++;
+            collisionVersion++;
         }
     }
 }
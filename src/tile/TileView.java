@@ -0,0 +1,21 @@
+package tile;
+
+import java.util.Arrays;
+
+// Copy of the tile map around a view, for drawing a frame without touching the live map:
+// the tile IDs of a block of render chunks and the version each chunk had when copied.
+// TileManager.capture fills it on the simulation thread, TileManager.draw reads it on the
+// render thread; it travels between them inside the render snapshot.
+public class TileView {
+    int chunkCol, chunkRow; // render chunk at the top left
+    int cols, rows;         // render chunks across and down
+    int[] versions = new int[16];
+    short[] ids = new short[16 * TileManager.CHUNK_AREA]; // per chunk, row-major; -1 = off the map
+
+    void ensureCapacity(int chunks) {
+        if (chunks <= versions.length) return;
+        int cap = Math.max(chunks, versions.length * 2);
+        versions = Arrays.copyOf(versions, cap);
+        ids = Arrays.copyOf(ids, cap * TileManager.CHUNK_AREA);
+    }
+}
@@ -0,0 +1,17 @@
+package world;
+
+// Integer axis-aligned boxes as (x, y, width, height), the way java.awt.Rectangle has them,
+// for the hit and collision tests that run too often to make Rectangles for
+public final class Boxes {
+
+    private Boxes() {
+    }
+
+    // Rectangle.intersects without the Rectangles: boxes with no area never intersect
+    public static boolean intersect(int x1, int y1, int width1, int height1,
+                                    int x2, int y2, int width2, int height2) {
+        return width1 > 0 && height1 > 0 && width2 > 0 && height2 > 0
+                && x2 < x1 + width1 && x1 < x2 + width2
+                && y2 < y1 + height1 && y1 < y2 + height2;
+    }
+}
@@ -0,0 +1,174 @@
+package world;
+
+import java.util.Arrays;
+
+// Hands out handles for the things in a world (enemies, NPCs, drops), so one subsystem can keep
+// a reference to something another one owns without holding on to it. A handle is an int: the
+// low INDEX_BITS bits are a slot, the rest the slot's generation. Destroying a handle bumps its
+// slot's generation before the slot is reused, so an old handle to a reused slot is told apart
+// from the new one (isAlive, get) instead of quietly meaning something else. NONE is never a
+// live handle.
+//
+// The live entries are also kept densely, [0, size()), for passes over everything of a kind;
+// destroy() swap-removes, so it is O(1) and moves the last entry into the gap. Slots never
+// exceed slotCapacity(), so arrays indexed by slotOf(handle) work as lookup tables.
+//
+// Not thread-safe: handles are created and destroyed on the update thread.
+public final class EntityRegistry {
+
+    public static final int NONE = 0;
+    // kinds
+    public static final byte ENEMY = 1, NPC = 2, DROP = 3;
+
+    private static final int INDEX_BITS = 20; // a million slots
+    private static final int INDEX_MASK = (1 << INDEX_BITS) - 1;
+    private static final int GENERATION_MASK = (1 << (31 - INDEX_BITS)) - 1; // handles stay positive
+
+    // Per slot: its generation, and where its entry is in the dense arrays (or, for a free slot,
+    // the next free slot, -1 at the end)
+    private int[] generation = new int[16];
+    private int[] denseOf = new int[16];
+    private int slotCount = 0;
+    private int firstFree = -1;
+
+    // Dense: the live entries
+    private int[] handles = new int[16];
+    private Object[] entities = new Object[16];
+    private byte[] kinds = new byte[16];
+    private int size = 0;
+
+    // A new live handle for entity (which may be null, for things that are only data)
+    public int create(byte kind, Object entity) {
+        int slot = firstFree;
+        if (slot >= 0) {
+            firstFree = denseOf[slot];
+        } else {
+            if (slotCount > INDEX_MASK) {
+                throw new IllegalStateException("More than " + (INDEX_MASK + 1) + " entities");
+            }
+            slot = slotCount++;
+            if (slot == generation.length) {
+                generation = Arrays.copyOf(generation, slot * 2);
+                denseOf = Arrays.copyOf(denseOf, slot * 2);
+            }
+            generation[slot] = 1; // so no handle is NONE
+        }
+        if (size == handles.length) {
+            handles = Arrays.copyOf(handles, size * 2);
+            entities = Arrays.copyOf(entities, size * 2);
+            kinds = Arrays.copyOf(kinds, size * 2);
+        }
+        int handle = generation[slot] << INDEX_BITS | slot;
+        denseOf[slot] = size;
+        handles[size] = handle;
+        entities[size] = entity;
+        kinds[size] = kind;
+        size++;
+        return handle;
+    }
+
+    // Ends handle: it, and every copy of it, is stale from now on. Returns false if it already was.
+    public boolean destroy(int handle) {
+        int d = denseIndex(handle);
+        if (d < 0) return false;
+        int last = --size;
+        if (d != last) {
+            handles[d] = handles[last];
+            entities[d] = entities[last];
+            kinds[d] = kinds[last];
+            denseOf[slotOf(handles[d])] = d;
+        }
+        entities[last] = null;
+        int slot = slotOf(handle);
+        int next = (generation[slot] + 1) & GENERATION_MASK;
+        generation[slot] = next == 0 ? 1 : next;
+        denseOf[slot] = firstFree;
+        firstFree = slot;
+        return true;
+    }
+
+    public boolean isAlive(int handle) {
+        return denseIndex(handle) >= 0;
+    }
+
+    // What handle was created for, or null if it is stale
+    public Object get(int handle) {
+        int d = denseIndex(handle);
+        return d < 0 ? null : entities[d];
+    }
+
+    // handle's kind, or 0 if it is stale
+    public byte kindOf(int handle) {
+        int d = denseIndex(handle);
+        return d < 0 ? 0 : kinds[d];
+    }
+
+    // Where handle's entry is in [0, size()), or -1 if it is stale
+    public int denseIndex(int handle) {
+        int slot = slotOf(handle);
+        if (handle <= NONE || slot >= slotCount) return -1;
+        int d = denseOf[slot];
+        return d >= 0 && d < size && handles[d] == handle ? d : -1;
+    }
+
+    // Live handles
+    public int size() {
+        return size;
+    }
+
+    public int handleAt(int i) {
+        return handles[i];
+    }
+
+    public Object entityAt(int i) {
+        return entities[i];
+    }
+
+    public byte kindAt(int i) {
+        return kinds[i];
+    }
+
+    // handle's slot, below slotCapacity(); a reused slot is shared with older, stale handles
+    public static int slotOf(int handle) {
+        return handle & INDEX_MASK;
+    }
+
+    // Slots handed out so far: size for lookup tables indexed by slotOf
+    public int slotCapacity() {
+        return slotCount;
+    }
+
+    // A small set of handles as a sorted int array, for "has this one been dealt with already"
+    // (which enemies an attack has hit). contains is a binary search, and nothing is allocated
+    // once the array has grown to the most handles ever held.
+    public static final class HandleSet {
+        private int[] handles = new int[8];
+        private int size = 0;
+
+        public boolean contains(int handle) {
+            return Arrays.binarySearch(handles, 0, size, handle) >= 0;
+        }
+
+        // Returns false if handle was in the set already
+        public boolean add(int handle) {
+            int at = Arrays.binarySearch(handles, 0, size, handle);
+            if (at >= 0) return false;
+            at = -at - 1;
+            if (size == handles.length) {
+                handles = Arrays.copyOf(handles, size * 2);
+            }
+            System.arraycopy(handles, at, handles, at + 1, size - at);
+            handles[at] = handle;
+            size++;
+            return true;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public void clear() {
+            size = 0;
+        }
+    }
+}
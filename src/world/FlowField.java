@@ -0,0 +1,250 @@
+package world;
+
+import java.util.Arrays;
+import tile.TileManager;
+
+// Walking distance to the player's tile from every tile around the player, shared by all the
+// enemies: each one asks which tile to head for next instead of walking straight at the
+// player, so water and trees get walked around instead of pushed against.
+//
+// The field covers a window of tiles around the player (the whole map when it is smaller).
+// It is only searched again when the player moves to another tile or the map's collision
+// changes; the window only moves when the player gets near its edge, and the passable grid
+// is only read again when the window moves or the collision changes.
+//
+// A collision change that only opens tiles up (the sacred tree opening, say) is repaired in
+// place: distances can only drop, so the search carries on from the opened tiles' neighbors
+// with the distances it has and stops where nothing gets shorter. Anything closing needs the
+// whole window searched again, since every distance that went through it may grow. So does a
+// new player tile: every distance is measured from it. That is one Dijkstra over at most
+// 65x65 tiles, about half a millisecond, at most once per tick and only on ticks the player
+// crosses into another tile.
+//
+// A tile is passable when the whole of it is (isWalkable over the tile, which includes the
+// baked object colliders). Steps are 8-way, diagonals only between two passable tiles so
+// nothing cuts a corner. Blocked tiles next to reachable ones still get a direction, so an
+// enemy that is partly on one (a tile with a small rock on it, say) isn't left without one.
+public class FlowField {
+
+    private static final int RADIUS = 32; // tiles from the window center to its sides
+    private static final int SIZE = 2 * RADIUS + 1;
+    private static final int MARGIN = 8;  // window recenters once the player is this close to a side
+
+    private static final int STRAIGHT = 10, DIAGONAL = 14; // step costs, about 1 : sqrt(2)
+    private static final int UNREACHED = Integer.MAX_VALUE;
+    // Directions, straight ones first; a tile's direction is the step from its neighbor toward it
+    private static final int[] STEP_X = {1, -1, 0, 0, 1, 1, -1, -1};
+    private static final int[] STEP_Y = {0, 0, 1, -1, 1, -1, 1, -1};
+
+    private final TileManager tiles;
+    private final int tileSize;
+
+    private final boolean[] passable = new boolean[SIZE * SIZE]; // window tiles, row-major, stride windowWidth
+    private final int[] distance = new int[SIZE * SIZE];
+    private final byte[] toward = new byte[SIZE * SIZE]; // direction that reached the tile; -1 for none
+    private long[] heap = new long[256];                 // distance << 32 | tile, min first
+    private int heapSize = 0;
+    private final int[] opened = new int[SIZE * SIZE];   // readPassable: tiles that became passable
+    private int openedCount = 0;
+
+    // Window in map tiles
+    private int windowX, windowY, windowWidth = -1, windowHeight = -1;
+    private int goalCol = Integer.MIN_VALUE, goalRow = Integer.MIN_VALUE;
+    private int passableVersion;
+    private boolean ready = false; // false until searched, or while the player is off the map
+
+    public FlowField(TileManager tiles) {
+        this.tiles = tiles;
+        this.tileSize = tiles.getTileSize();
+    }
+
+    // Brings the field up to date for the player at (playerX, playerY) in world pixels; once
+    // per tick, before the enemies move
+    public void update(int playerX, int playerY) {
+        int col = Math.floorDiv(playerX, tileSize);
+        int row = Math.floorDiv(playerY, tileSize);
+        int version = tiles.getCollisionVersion();
+        boolean collisionChanged = version != passableVersion || windowWidth < 0;
+        if (col == goalCol && row == goalRow && !collisionChanged) {
+            return;
+        }
+        boolean goalMoved = col != goalCol || row != goalRow;
+        goalCol = col;
+        goalRow = row;
+
+        if (recenter(tiles.getMapWidth(), tiles.getMapHeight())) {
+            readPassable();
+            passableVersion = version;
+            goalMoved = true; // new window: nothing of the old field carries over
+        } else if (collisionChanged) {
+            boolean closed = readPassable();
+            passableVersion = version;
+            if (ready && !goalMoved && !closed) {
+                repair();
+                return;
+            }
+        }
+        int goalX = col - windowX, goalY = row - windowY;
+        ready = goalX >= 0 && goalY >= 0 && goalX < windowWidth && goalY < windowHeight;
+        if (ready) {
+            search(goalY * windowWidth + goalX);
+        }
+    }
+
+    // Writes the center of the tile to head for from (x, y) into target (x, y in world pixels);
+    // false when there is none: outside the window, cut off from the player, or already on the
+    // player's tile
+    public boolean steer(double x, double y, double[] target) {
+        if (!ready) {
+            return false;
+        }
+        int col = (int) Math.floor(x / tileSize) - windowX;
+        int row = (int) Math.floor(y / tileSize) - windowY;
+        if (col < 0 || row < 0 || col >= windowWidth || row >= windowHeight) {
+            return false;
+        }
+        int direction = toward[row * windowWidth + col];
+        if (direction < 0) {
+            return false;
+        }
+        target[0] = (windowX + col - STEP_X[direction]) * tileSize + tileSize / 2.0;
+        target[1] = (windowY + row - STEP_Y[direction]) * tileSize + tileSize / 2.0;
+        return true;
+    }
+
+    // Moves the window when the map size changed or the player is near a side that isn't the
+    // map's; true if it moved
+    private boolean recenter(int mapWidth, int mapHeight) {
+        int width = Math.min(SIZE, mapWidth), height = Math.min(SIZE, mapHeight);
+        if (width == windowWidth && height == windowHeight
+                && !nearSide(goalCol, windowX, width, mapWidth) && !nearSide(goalRow, windowY, height, mapHeight)) {
+            return false;
+        }
+        windowWidth = width;
+        windowHeight = height;
+        windowX = Math.max(0, Math.min(goalCol - RADIUS, mapWidth - width));
+        windowY = Math.max(0, Math.min(goalRow - RADIUS, mapHeight - height));
+        return true;
+    }
+
+    private static boolean nearSide(int tile, int start, int length, int mapLength) {
+        return (tile - start < MARGIN && start > 0)
+                || (start + length - 1 - tile < MARGIN && start + length < mapLength);
+    }
+
+    // Reads which window tiles are passable, noting the ones that became passable in opened;
+    // true if any stopped being passable
+    private boolean readPassable() {
+        boolean closed = false;
+        openedCount = 0;
+        for (int row = 0; row < windowHeight; row++) {
+            for (int col = 0; col < windowWidth; col++) {
+                int tile = row * windowWidth + col;
+                boolean now = tiles.isWalkable((windowX + col) * tileSize, (windowY + row) * tileSize, tileSize, tileSize);
+                if (now != passable[tile]) {
+                    if (now) {
+                        opened[openedCount++] = tile;
+                    } else {
+                        closed = true;
+                    }
+                    passable[tile] = now;
+                }
+            }
+        }
+        return closed;
+    }
+
+    // Dijkstra out from the goal tile over the window
+    private void search(int goal) {
+        int tileCount = windowWidth * windowHeight;
+        Arrays.fill(distance, 0, tileCount, UNREACHED);
+        Arrays.fill(toward, 0, tileCount, (byte) -1);
+        heapSize = 0;
+        distance[goal] = 0;
+        push(goal, 0);
+        relax();
+    }
+
+    // The field after only the opened tiles became passable, same goal and window. Each opened
+    // tile and its reached neighbors are expanded again with the distances they have: that
+    // covers every step the opening made possible (into, out of, and diagonally past an opened
+    // tile), and relax() takes it from there.
+    private void repair() {
+        heapSize = 0;
+        for (int k = 0; k < openedCount; k++) {
+            int tile = opened[k];
+            int col = tile % windowWidth, row = tile / windowWidth;
+            if (distance[tile] != UNREACHED) {
+                push(tile, distance[tile]);
+            }
+            for (int d = 0; d < STEP_X.length; d++) {
+                int nextCol = col + STEP_X[d], nextRow = row + STEP_Y[d];
+                if (nextCol < 0 || nextRow < 0 || nextCol >= windowWidth || nextRow >= windowHeight) continue;
+                int next = nextRow * windowWidth + nextCol;
+                if (passable[next] && distance[next] != UNREACHED) {
+                    push(next, distance[next]);
+                }
+            }
+        }
+        relax();
+    }
+
+    // Expands the heap's tiles until it is empty, lowering distances wherever a step is shorter
+    private void relax() {
+        while (heapSize > 0) {
+            long top = pop();
+            int tile = (int) top;
+            int dist = (int) (top >>> 32);
+            if (dist > distance[tile]) continue; // stale entry, already reached cheaper
+            int col = tile % windowWidth, row = tile / windowWidth;
+            for (int d = 0; d < STEP_X.length; d++) {
+                int nextCol = col + STEP_X[d], nextRow = row + STEP_Y[d];
+                if (nextCol < 0 || nextRow < 0 || nextCol >= windowWidth || nextRow >= windowHeight) continue;
+                boolean diagonal = d >= 4;
+                if (diagonal && !(passable[row * windowWidth + nextCol] && passable[nextRow * windowWidth + col])) {
+                    continue; // would cut the corner of a blocked tile
+                }
+                int next = nextRow * windowWidth + nextCol;
+                int nextDist = dist + (diagonal ? DIAGONAL : STRAIGHT);
+                if (nextDist < distance[next]) {
+                    distance[next] = nextDist;
+                    toward[next] = (byte) d;
+                    if (passable[next]) {
+                        push(next, nextDist); // blocked tiles get a direction but lead nowhere
+                    }
+                }
+            }
+        }
+    }
+
+    private void push(int tile, int dist) {
+        if (heapSize == heap.length) {
+            heap = Arrays.copyOf(heap, heapSize * 2);
+        }
+        long entry = ((long) dist << 32) | tile;
+        int i = heapSize++;
+        while (i > 0) {
+            int parent = (i - 1) >> 1;
+            if (heap[parent] <= entry) break;
+            heap[i] = heap[parent];
+            i = parent;
+        }
+        heap[i] = entry;
+    }
+
+    private long pop() {
+        long top = heap[0];
+        long last = heap[--heapSize];
+        int i = 0;
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= heapSize) break;
+            if (child + 1 < heapSize && heap[child + 1] < heap[child]) child++;
+            if (heap[child] >= last) break;
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = last;
+        return top;
+    }
+}
@@ -3,6 +3,7 @@ package world;
 import entities.WorldObject;
 import tile.TileManager;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Random;
 
@@ -44,9 +45,14 @@ public class ObjectManager {
     private boolean[] objectCollidable; // true for objects that block movement
 
     public ObjectManager(TileManager tileM) {
+        this(tileM, new Random());
+    }
+
+    // Object placement comes from random, so a seeded one gives the same world every time
+    public ObjectManager(TileManager tileM, Random random) {
         this.tileM = tileM;
         this.objects = new ArrayList<>();
-        this.random = new Random();
+        this.random = random;
         this.tileSize = tileM.getTileSize();
         this.mapWidth = tileM.getMapWidth();
         this.mapHeight = tileM.getMapHeight();
@@ -147,6 +153,7 @@ public class ObjectManager {
 
                 WorldObject obj = new WorldObject(pixelX, pixelY, imagePath, name, collision);
                 objects.add(obj);
+                bakeCollision(obj);
             }
         }
 
@@ -236,6 +243,7 @@ public class ObjectManager {
             WorldObject obj = new WorldObject(pixelX, pixelY, imagePath, name, collision);
 
             objects.add(obj);
+            bakeCollision(obj);
 
             return true;
         }
@@ -329,22 +337,25 @@ public class ObjectManager {
         return true;
     }
 
-    public void draw(java.awt.Graphics2D g2, int cameraX, int cameraY, int screenWidth, int screenHeight) {
-        for (WorldObject obj : objects) {
-            // Only draw objects visible on screen (using scaled dimensions)
-            int objX = obj.getX();
-            int objY = obj.getY();
-
-            // Reduced scaling for better collision sizing
-            float scaleFactor = 2.0f;
-            int objWidth = (int)(obj.getWidth() * scaleFactor);
-            int objHeight = (int)(obj.getHeight() * scaleFactor);
-
-            if (objX + objWidth >= cameraX && objX <= cameraX + screenWidth &&
-                objY + objHeight >= cameraY && objY <= cameraY + screenHeight) {
-                // Draw with appropriate scale
-                obj.drawScaled(g2, cameraX, cameraY, scaleFactor);
-            }
+    // Reduced scaling for better collision sizing
+    private static final float DRAW_SCALE = 2.0f;
+
+    // Whether obj shows on a width x height view at (x, y) (using scaled dimensions)
+    public boolean isVisible(WorldObject obj, int x, int y, int width, int height) {
+        int objX = obj.getX();
+        int objY = obj.getY();
+        int objWidth = (int)(obj.getWidth() * DRAW_SCALE);
+        int objHeight = (int)(obj.getHeight() * DRAW_SCALE);
+        return objX + objWidth >= x && objX <= x + width &&
+               objY + objHeight >= y && objY <= y + height;
+    }
+
+    // Draws the first count of visible, which the simulation picked out with isVisible. Objects
+    // don't change once placed, so the renderer can hold on to them.
+    public void draw(java.awt.Graphics2D g2, int cameraX, int cameraY, WorldObject[] visible, int count) {
+        WorldObject.prepareFor(g2.getDeviceConfiguration());
+        for (int i = 0; i < count; i++) {
+            visible[i].drawScaled(g2, cameraX, cameraY, DRAW_SCALE);
         }
     }
 
@@ -361,51 +372,86 @@ public class ObjectManager {
     public void addObject(int x, int y, String imagePath, String name, boolean collision) {
         WorldObject obj = new WorldObject(x, y, imagePath, name, collision);
         objects.add(obj);
+        bakeCollision(obj);
+    }
+
+    // Dropped item icons (for enemy drops), as parallel arrays: drop i is at (dropX[i], dropY[i])
+    // and has the registry handle dropHandle[i]. Removing one swap-removes it, so the last drop
+    // takes its index. dropIndexBySlot finds a drop from its handle.
+    private EntityRegistry registry = new EntityRegistry(); // Replaced by the world's (setRegistry)
+    private int dropCount = 0;
+    private int[] dropX = new int[8], dropY = new int[8], dropHandle = new int[8];
+    private int[] dropIndexBySlot = new int[8];
+
+    public void setRegistry(EntityRegistry registry) {
+        this.registry = registry;
+    }
+
+    // Add dropped item icon (for enemy drops); returns its handle
+    public int addDrop(int x, int y) {
+        if (dropCount == dropX.length) {
+            dropX = Arrays.copyOf(dropX, dropCount * 2);
+            dropY = Arrays.copyOf(dropY, dropCount * 2);
+            dropHandle = Arrays.copyOf(dropHandle, dropCount * 2);
+        }
+        int handle = registry.create(EntityRegistry.DROP, null);
+        int slot = EntityRegistry.slotOf(handle);
+        if (slot >= dropIndexBySlot.length) {
+            dropIndexBySlot = Arrays.copyOf(dropIndexBySlot, Math.max(slot + 1, dropIndexBySlot.length * 2));
+        }
+        dropX[dropCount] = x;
+        dropY[dropCount] = y;
+        dropHandle[dropCount] = handle;
+        dropIndexBySlot[slot] = dropCount;
+        dropCount++;
+        return handle;
+    }
+
+    public int getDropCount() {
+        return dropCount;
+    }
+
+    public int getDropX(int index) {
+        return dropX[index];
     }
 
-    // Add dropped item icon (for enemy drops)
-    private java.util.List<int[]> droppedItems = new java.util.ArrayList<>();
-    public void addDrop(int x, int y) {
-        droppedItems.add(new int[]{x, y});
+    public int getDropY(int index) {
+        return dropY[index];
     }
 
-    public java.util.List<int[]> getDroppedItems() {
-        return droppedItems;
+    public int getDropHandle(int index) {
+        return dropHandle[index];
     }
 
+    // Index of the drop with this handle, or -1 once it has been picked up
+    public int getDropIndex(int handle) {
+        return registry.isAlive(handle) && registry.kindOf(handle) == EntityRegistry.DROP
+                ? dropIndexBySlot[EntityRegistry.slotOf(handle)] : -1;
+    }
+
+    // The last drop moves into index
     public void removeDrop(int index) {
-        if (index >= 0 && index < droppedItems.size()) {
-            droppedItems.remove(index);
+        if (index < 0 || index >= dropCount) return;
+        registry.destroy(dropHandle[index]);
+        int last = --dropCount;
+        if (index != last) {
+            dropX[index] = dropX[last];
+            dropY[index] = dropY[last];
+            dropHandle[index] = dropHandle[last];
+            dropIndexBySlot[EntityRegistry.slotOf(dropHandle[index])] = index;
         }
     }
 
-    // Check if a position collides with any object
-    // Use display size (2x scale) with accurate positioning for right-side collision
-    public boolean isObjectCollision(int x, int y, int width, int height) {
-        for (WorldObject obj : objects) {
-            if (!obj.hasCollision()) continue;
-
-            // Use the same 2x scaling as display for accurate collision
-            // Calculate the actual visual boundaries where the object appears
-            float scaleFactor = 2.0f;
-            int visualX = obj.getX(); // Visual starts at object position
-            int visualY = obj.getY(); // Visual starts at object position
-            int visualWidth = (int)(obj.getWidth() * scaleFactor);
-            int visualHeight = (int)(obj.getHeight() * scaleFactor);
-
-            // Collision area covers the full visual object size
-            int collisionX = visualX;
-            int collisionWidth = visualWidth;
-            int collisionHeight = visualHeight;
-            int collisionY = visualY;
-
-            if (x < collisionX + collisionWidth &&
-                x + width > collisionX &&
-                y < collisionY + collisionHeight &&
-                y + height > collisionY) {
-                return true;
-            }
-        }
-        return false;
+    // Objects don't move once placed, so each collidable one's box is computed once, here, and
+    // baked into the tile collision grid: TileManager.isWalkable covers objects too
+    private void bakeCollision(WorldObject obj) {
+        if (!obj.hasCollision()) return;
+
+        // Use the same 2x scaling as display for accurate collision
+        // Collision area covers the full visual object size, starting at the object position
+        float scaleFactor = 2.0f;
+        int visualWidth = (int)(obj.getWidth() * scaleFactor);
+        int visualHeight = (int)(obj.getHeight() * scaleFactor);
+        tileM.addSolidBox(obj.getX(), obj.getY(), visualWidth, visualHeight);
     }
 }
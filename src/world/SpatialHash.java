@@ -0,0 +1,221 @@
+package world;
+
+import java.util.Arrays;
+import java.util.List;
+
+// Uniform grid over moving things (enemies, NPCs) for "what overlaps this area" queries, so
+// hit checks cost about the number of nearby things instead of all of them. Rebuilt from
+// scratch each tick: clear(), add() everything with its bounds, then build().
+//
+// The cells are about twice the size of the largest thing added (the power of two at or above
+// it, so finding a cell is a shift), and most things sit in one to four cells. Cells are hashed
+// into a bucket table sized to the item count; bucket collisions only cost a few extra bound
+// checks. Queries return each match once, in the order things were added, so callers that act
+// on the results (damage, random drops) behave as a plain loop over the list would. Nothing is
+// allocated once the arrays have grown to the largest population.
+public class SpatialHash<T> {
+
+    private static final int MIN_CELL_SHIFT = 5; // 32 px
+
+    private Object[] items = new Object[16];
+    private int[] minX = new int[16], minY = new int[16], maxX = new int[16], maxY = new int[16]; // max exclusive
+    private int count = 0;
+
+    private int cellShift = MIN_CELL_SHIFT; // cells are 1 << cellShift px square
+    private int bucketMask;
+    private int[] bucketStart = new int[1]; // entries of bucket b: entries[bucketStart[b] .. bucketStart[b + 1])
+    private int[] entries = new int[16];    // item indices, grouped by bucket
+    private int[] bucketFill = new int[0];  // build() scratch: next free entry per bucket
+
+    // Query state: items already reported by the running query, and the matches so far
+    private int[] seenStamp = new int[16];
+    private int stamp = 0;
+    private int[] matches = new int[16];
+
+    public void clear() {
+        Arrays.fill(items, 0, count, null);
+        count = 0;
+    }
+
+    // Adds item with the given bounds; empty bounds never match anything
+    public void add(T item, int x, int y, int width, int height) {
+        if (count == items.length) {
+            int size = count * 2;
+            items = Arrays.copyOf(items, size);
+            minX = Arrays.copyOf(minX, size);
+            minY = Arrays.copyOf(minY, size);
+            maxX = Arrays.copyOf(maxX, size);
+            maxY = Arrays.copyOf(maxY, size);
+        }
+        items[count] = item;
+        minX[count] = x;
+        minY[count] = y;
+        maxX[count] = x + width;
+        maxY[count] = y + height;
+        count++;
+    }
+
+    // Buckets everything added since clear(); call before querying
+    public void build() {
+        int largest = 0;
+        for (int i = 0; i < count; i++) {
+            largest = Math.max(largest, Math.max(maxX[i] - minX[i], maxY[i] - minY[i]));
+        }
+        cellShift = largest > 0 ? Math.max(MIN_CELL_SHIFT, 32 - Integer.numberOfLeadingZeros(largest * 2 - 1)) : MIN_CELL_SHIFT;
+
+        int buckets = Integer.highestOneBit(Math.max(1, count) * 2 - 1) * 2; // power of two >= 2 * count
+        bucketMask = buckets - 1;
+        if (bucketStart.length < buckets + 1) {
+            bucketStart = new int[buckets + 1];
+        } else {
+            Arrays.fill(bucketStart, 0, buckets + 1, 0);
+        }
+        if (seenStamp.length < count) {
+            seenStamp = new int[items.length];
+            matches = new int[items.length];
+            stamp = 0;
+        }
+
+        // Count the entries per bucket, prefix-sum them into start offsets, then fill in.
+        // bucketStart[b + 1] counts bucket b, so after the sum it is where b + 1 starts.
+        int total = 0;
+        for (int i = 0; i < count; i++) {
+            if (maxX[i] <= minX[i] || maxY[i] <= minY[i]) continue;
+            int cellX1 = cell(minX[i]), cellX2 = cell(maxX[i] - 1), cellY2 = cell(maxY[i] - 1);
+            for (int cy = cell(minY[i]); cy <= cellY2; cy++) {
+                for (int cx = cellX1; cx <= cellX2; cx++) {
+                    bucketStart[bucket(cx, cy) + 1]++;
+                    total++;
+                }
+            }
+        }
+        for (int b = 0; b < buckets; b++) {
+            bucketStart[b + 1] += bucketStart[b];
+        }
+        if (entries.length < total) {
+            entries = new int[total * 2];
+        }
+        if (bucketFill.length < buckets) {
+            bucketFill = new int[buckets];
+        }
+        System.arraycopy(bucketStart, 0, bucketFill, 0, buckets);
+        for (int i = 0; i < count; i++) {
+            if (maxX[i] <= minX[i] || maxY[i] <= minY[i]) continue;
+            int cellX1 = cell(minX[i]), cellX2 = cell(maxX[i] - 1), cellY2 = cell(maxY[i] - 1);
+            for (int cy = cell(minY[i]); cy <= cellY2; cy++) {
+                for (int cx = cellX1; cx <= cellX2; cx++) {
+                    entries[bucketFill[bucket(cx, cy)]++] = i;
+                }
+            }
+        }
+    }
+
+    // Adds to out everything whose bounds intersect the rectangle (as Rectangle.intersects
+    // would decide); returns out
+    public List<T> queryRect(int x, int y, int width, int height, List<T> out) {
+        if (width <= 0 || height <= 0) {
+            return out;
+        }
+        int found = collect(x, y, x + width, y + height, -1, 0, 0);
+        return report(found, out);
+    }
+
+    // queryRect without the list, for things kept by index: how many intersect the rectangle.
+    // matchAt(0 .. count - 1) are then their add() indices since clear(), in order, until the
+    // next query.
+    public int queryRect(int x, int y, int width, int height) {
+        if (width <= 0 || height <= 0) {
+            return 0;
+        }
+        int found = collect(x, y, x + width, y + height, -1, 0, 0);
+        if (found > 1) {
+            Arrays.sort(matches, 0, found);
+        }
+        return found;
+    }
+
+    public int matchAt(int k) {
+        return matches[k];
+    }
+
+    // Adds to out everything whose bounds come within radius of (centerX, centerY); returns out
+    public List<T> queryCircle(int centerX, int centerY, int radius, List<T> out) {
+        if (radius < 0) {
+            return out;
+        }
+        int found = collect(centerX - radius, centerY - radius, centerX + radius + 1, centerY + radius + 1,
+                radius, centerX, centerY);
+        return report(found, out);
+    }
+
+    // Gathers the indices of items overlapping [x1, x2) x [y1, y2), and also within radius of
+    // the center when radius >= 0, into matches; returns how many
+    private int collect(int x1, int y1, int x2, int y2, int radius, int centerX, int centerY) {
+        if (count == 0) {
+            return 0;
+        }
+        if (++stamp == 0) { // wrapped: forget every old stamp
+            Arrays.fill(seenStamp, 0);
+            stamp = 1;
+        }
+        int found = 0;
+        int cellX1 = cell(x1), cellX2 = cell(x2 - 1);
+        int cellY1 = cell(y1), cellY2 = cell(y2 - 1);
+        if ((long) (cellX2 - cellX1 + 1) * (cellY2 - cellY1 + 1) > count) {
+            // Area covers more cells than there are things: checking them all is cheaper
+            for (int i = 0; i < count; i++) {
+                if (overlaps(i, x1, y1, x2, y2, radius, centerX, centerY)) {
+                    matches[found++] = i;
+                }
+            }
+            return found;
+        }
+        for (int cy = cellY1; cy <= cellY2; cy++) {
+            for (int cx = cellX1; cx <= cellX2; cx++) {
+                int b = bucket(cx, cy);
+                for (int e = bucketStart[b]; e < bucketStart[b + 1]; e++) {
+                    int i = entries[e];
+                    if (seenStamp[i] != stamp && overlaps(i, x1, y1, x2, y2, radius, centerX, centerY)) {
+                        seenStamp[i] = stamp;
+                        matches[found++] = i;
+                    }
+                }
+            }
+        }
+        return found;
+    }
+
+    private boolean overlaps(int i, int x1, int y1, int x2, int y2, int radius, int centerX, int centerY) {
+        if (maxX[i] <= minX[i] || maxY[i] <= minY[i]
+                || minX[i] >= x2 || maxX[i] <= x1 || minY[i] >= y2 || maxY[i] <= y1) {
+            return false;
+        }
+        if (radius < 0) {
+            return true;
+        }
+        // Distance from the center to the nearest point of the bounds
+        long dx = Math.max(0, Math.max(minX[i] - centerX, centerX - (maxX[i] - 1)));
+        long dy = Math.max(0, Math.max(minY[i] - centerY, centerY - (maxY[i] - 1)));
+        return dx * dx + dy * dy <= (long) radius * radius;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<T> report(int found, List<T> out) {
+        if (found > 1) {
+            Arrays.sort(matches, 0, found); // back into insertion order
+        }
+        for (int m = 0; m < found; m++) {
+            out.add((T) items[matches[m]]);
+        }
+        return out;
+    }
+
+    private int cell(int coordinate) {
+        return coordinate >> cellShift;
+    }
+
+    private int bucket(int cellX, int cellY) {
+        int h = cellX * 0x9E3779B1 + cellY * 0x85EBCA77;
+        return (h ^ (h >>> 16)) & bucketMask;
+    }
+}